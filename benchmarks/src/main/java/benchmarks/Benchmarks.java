@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual jmh command line, for example:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar 'ListBenchmarks.get.*' -p size=1000000 -rf json -rff list.json
+ * </pre>
+ * jmh only takes one thread count per run, so the bench.threads system property (comma separated) runs the whole
+ * selection once per thread count and writes all the runs to the one result file:
+ * <pre>
+ * java -Dbench.threads=1,4,16 -jar benchmarks/target/benchmarks.jar MemoizerBenchmarks.hit -rf csv -rff hit.csv
+ * </pre>
+ */
+public class Benchmarks {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        final var threadCounts = System.getProperty("bench.threads");
+        if (threadCounts == null) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        final var options = new CommandLineOptions(args);
+        final var results = new ArrayList<RunResult>();
+        // the individual runs write their results here, the combined ones are written below
+        final var scratch = Files.createTempFile("jmh-run", ".txt");
+        try {
+            for (final var threads : parseInts(threadCounts)) {
+                results.addAll(new Runner(new OptionsBuilder()
+                        .parent(options)
+                        .threads(threads)
+                        .resultFormat(ResultFormatType.TEXT)
+                        .result(scratch.toString())
+                        .build()).run());
+            }
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+
+        final var format = options.getResultFormat().orElse(ResultFormatType.JSON);
+        final var file = options.getResult().orElse("jmh-result." + format.name().toLowerCase(Locale.ROOT));
+        ResultFormatFactory.getInstance(format, file).writeOut(results);
+    }
+
+    private static int[] parseInts(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+    }
+}
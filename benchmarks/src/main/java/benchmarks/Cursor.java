@@ -0,0 +1,25 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per thread state for the benchmarks that share one structure between threads. Every thread gets its own offset so
+ * they don't all walk through the keys in lockstep, and its own xorshift sequence.
+ */
+@State(Scope.Thread)
+public class Cursor {
+    private static final AtomicInteger threads = new AtomicInteger();
+
+    final int offset = threads.getAndIncrement();
+    private int x = 0x9E3779B9 * (offset + 1);
+
+    int next() {
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        return x;
+    }
+}
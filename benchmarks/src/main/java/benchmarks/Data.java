@@ -0,0 +1,29 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so runs on different commits see the same data.
+ */
+final class Data {
+    private Data() {
+    }
+
+    static int[] randomInts(int count, int bound, long seed) {
+        final var rand = new Random(seed);
+        final var result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = rand.nextInt(bound);
+        }
+        return result;
+    }
+
+    /**
+     * Boxed up front, and held strongly, so the weak and soft maps don't lose them halfway through an iteration.
+     */
+    static Integer[] keys(int size) {
+        final var keys = new Integer[size];
+        for (int i = 0; i < size; i++) keys[i] = i * 31 + 7;
+        return keys;
+    }
+}
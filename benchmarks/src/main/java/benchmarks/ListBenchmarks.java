@@ -0,0 +1,274 @@
+package benchmarks;
+
+import collections.persistent.PersistentList;
+import io.vavr.collection.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcollections.TreePVector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lines {@link PersistentList} up against {@link ArrayList}, vavr's {@link Vector} and pcollections'
+ * {@link TreePVector}. Operations that produce a new list are compared against copying the ArrayList and modifying the
+ * copy, since that's what it costs to get the same semantics out of java.util.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmarks {
+    static final int LOOKUPS = 1024;
+    static final int UPDATES = 64;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private PersistentList<Integer> persistent;
+    private ArrayList<Integer> array;
+    private Vector<Integer> vavr;
+    private TreePVector<Integer> pcollections;
+    private int[] indexes;
+
+    private PersistentList<Integer> shuffled;
+    private ArrayList<Integer> shuffledArray;
+    private Vector<Integer> shuffledVavr;
+    /**
+     * A sorted list with its two halves swapped around, the case optosort is meant for.
+     */
+    private PersistentList<Integer> mostlySorted;
+
+    @Setup
+    public void setup() {
+        persistent = PersistentList.generate(i -> i, size);
+        array = new ArrayList<>(persistent);
+        vavr = Vector.ofAll(array);
+        pcollections = TreePVector.from(array);
+        indexes = Data.randomInts(LOOKUPS, size, 42);
+
+        shuffled = persistent.sorted(Comparator.comparingInt(i -> i * 0x9E3779B9));
+        shuffledArray = new ArrayList<>(shuffled);
+        shuffledVavr = Vector.ofAll(shuffledArray);
+        mostlySorted = persistent.get(size / 2, size - size / 2).concat(persistent.get(0, size / 2));
+    }
+
+    // ====== get ======
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getPersistentList() {
+        long sum = 0;
+        for (final var index : indexes) sum += persistent.get(index);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getArrayList() {
+        long sum = 0;
+        for (final var index : indexes) sum += array.get(index);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getVavrVector() {
+        long sum = 0;
+        for (final var index : indexes) sum += vavr.get(index);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getPcollectionsTreePVector() {
+        long sum = 0;
+        for (final var index : indexes) sum += pcollections.get(index);
+        return sum;
+    }
+
+    // ====== insert ======
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void insertPersistentList(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) blackhole.consume(persistent.insertSingle(indexes[i], i));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void insertArrayListCopy(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) {
+            final var copy = new ArrayList<>(array);
+            copy.add(indexes[i], i);
+            blackhole.consume(copy);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void insertVavrVector(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) blackhole.consume(vavr.insert(indexes[i], i));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void insertPcollectionsTreePVector(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) blackhole.consume(pcollections.plus(indexes[i], i));
+    }
+
+    // ====== append ======
+
+    /**
+     * Builds the whole list one item at a time.
+     */
+    @Benchmark
+    public PersistentList<Integer> appendPersistentList() {
+        var result = new PersistentList<Integer>();
+        for (int i = 0; i < size; i++) result = result.put(i);
+        return result;
+    }
+
+    @Benchmark
+    public ArrayList<Integer> appendArrayList() {
+        final var result = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) result.add(i);
+        return result;
+    }
+
+    @Benchmark
+    public Vector<Integer> appendVavrVector() {
+        var result = Vector.<Integer>empty();
+        for (int i = 0; i < size; i++) result = result.append(i);
+        return result;
+    }
+
+    @Benchmark
+    public TreePVector<Integer> appendPcollectionsTreePVector() {
+        var result = TreePVector.<Integer>empty();
+        for (int i = 0; i < size; i++) result = result.plus(i);
+        return result;
+    }
+
+    // ====== concat ======
+
+    @Benchmark
+    public PersistentList<Integer> concatPersistentList() {
+        return persistent.concat(persistent);
+    }
+
+    @Benchmark
+    public ArrayList<Integer> concatArrayListCopy() {
+        final var result = new ArrayList<Integer>(size * 2);
+        result.addAll(array);
+        result.addAll(array);
+        return result;
+    }
+
+    @Benchmark
+    public Vector<Integer> concatVavrVector() {
+        return vavr.appendAll(vavr);
+    }
+
+    @Benchmark
+    public TreePVector<Integer> concatPcollectionsTreePVector() {
+        return pcollections.plusAll(pcollections);
+    }
+
+    // ====== slice ======
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public long slicePersistentList() {
+        long sum = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            final var start = indexes[i] / 2;
+            sum += persistent.get(start, indexes[i] - start).size();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public long sliceVavrVector() {
+        long sum = 0;
+        for (int i = 0; i < UPDATES; i++) sum += vavr.slice(indexes[i] / 2, indexes[i]).size();
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public long slicePcollectionsTreePVector() {
+        long sum = 0;
+        for (int i = 0; i < UPDATES; i++) sum += pcollections.subList(indexes[i] / 2, indexes[i]).size();
+        return sum;
+    }
+
+    // ====== repeat ======
+
+    /**
+     * repeat is memoized per list, so it's called on a fresh copy of the list every time; the copy just shares the
+     * tree.
+     */
+    @Benchmark
+    public PersistentList<Integer> repeatPersistentList() {
+        return new PersistentList<>(persistent).repeat(16);
+    }
+
+    @Benchmark
+    public ArrayList<Integer> repeatArrayListCopy() {
+        final var result = new ArrayList<Integer>(size * 16);
+        for (int i = 0; i < 16; i++) result.addAll(array);
+        return result;
+    }
+
+    @Benchmark
+    public Vector<Integer> repeatVavrVector() {
+        var result = vavr;
+        for (int i = 1; i < 16; i++) result = result.appendAll(vavr);
+        return result;
+    }
+
+    // ====== sorted ======
+
+    @Benchmark
+    public PersistentList<Integer> sortedPersistentList() {
+        return shuffled.sorted(Comparator.naturalOrder());
+    }
+
+    @Benchmark
+    public ArrayList<Integer> sortedArrayListCopy() {
+        final var result = new ArrayList<>(shuffledArray);
+        result.sort(Comparator.naturalOrder());
+        return result;
+    }
+
+    @Benchmark
+    public Vector<Integer> sortedVavrVector() {
+        return shuffledVavr.sorted();
+    }
+
+    @Benchmark
+    public PersistentList<Integer> optosortMostlySorted() {
+        return mostlySorted.optosort(Comparator.naturalOrder());
+    }
+
+    @Benchmark
+    public PersistentList<Integer> sortedMostlySorted() {
+        return mostlySorted.sorted(Comparator.naturalOrder());
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import collections.persistent.PersistentList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compares parallel aggregation over a {@link PersistentList} using its own spliterator against the index based
+ * spliterator it used to have, in pools of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListSpliteratorBenchmarks {
+    @Param({"1000000", "20000000"})
+    public int size;
+
+    @Param({"1", "4", "16"})
+    public int cores;
+
+    private PersistentList<Integer> list;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        list = PersistentList.generate(i -> i, size);
+        pool = new ForkJoinPool(cores);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public long tree() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> sum(list.spliterator())).get();
+    }
+
+    @Benchmark
+    public long indexed() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> sum(Spliterators.spliterator(list, Spliterator.IMMUTABLE))).get();
+    }
+
+    private static long sum(Spliterator<Integer> spliterator) {
+        return StreamSupport.stream(spliterator, true).mapToLong(i -> i).sum();
+    }
+}
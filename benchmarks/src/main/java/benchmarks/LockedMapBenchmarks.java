@@ -0,0 +1,84 @@
+package benchmarks;
+
+import collections.decorators.ReadWriteLockedMap;
+import collections.decorators.StampedLockedMap;
+import collections.decorators.StripedLockedMap;
+import collections.persistent.CopyOnWriteMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the locking map decorators, and the copy-on-write map, under contention: every thread hammers the same map
+ * with a mix of gets and puts. The puts overwrite keys that are already there so the size stays put. Meant to be run
+ * over a range of thread counts, for example:
+ * <pre>
+ * java -Dbench.threads=1,2,4,8,16,32,64 -jar benchmarks/target/benchmarks.jar LockedMapBenchmarks
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockedMapBenchmarks {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"0", "1", "10", "50"})
+    public int writePercentage;
+
+    @Param({
+            "Collections.synchronizedMap",
+            "ReadWriteLockedMap",
+            "StampedLockedMap",
+            "StripedLockedMap",
+            "CopyOnWriteMap",
+            "ConcurrentHashMap"})
+    public String implementation;
+
+    private Map<Integer, Integer> map;
+
+    @Setup
+    public void setup() {
+        map = switch (implementation) {
+            case "Collections.synchronizedMap" -> Collections.synchronizedMap(new HashMap<>());
+            case "ReadWriteLockedMap" -> new ReadWriteLockedMap<>(new HashMap<>());
+            case "StampedLockedMap" -> new StampedLockedMap<>(new HashMap<>());
+            case "StripedLockedMap" -> new StripedLockedMap<>();
+            case "CopyOnWriteMap" -> new CopyOnWriteMap<>();
+            case "ConcurrentHashMap" -> new ConcurrentHashMap<>();
+            default -> throw new IllegalArgumentException("unknown map: " + implementation);
+        };
+        for (int i = 0; i < size; i++) map.put(i, i);
+    }
+
+    /**
+     * One get or put, picked at random with the configured odds.
+     */
+    @Benchmark
+    public Integer mixed(Cursor cursor) {
+        final var x = cursor.next();
+        final var key = (x >>> 8) % size;
+        if ((x & 0xFF) * 100 < writePercentage * 256) {
+            return map.put(key, x);
+        } else {
+            return map.get(key);
+        }
+    }
+}
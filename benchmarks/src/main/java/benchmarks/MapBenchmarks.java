@@ -0,0 +1,152 @@
+package benchmarks;
+
+import collections.persistent.PersistentMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcollections.HashPMap;
+import org.pcollections.HashTreePMap;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lines {@link PersistentMap} up against {@link HashMap}, vavr's {@link io.vavr.collection.HashMap} and pcollections'
+ * {@link HashTreePMap}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmarks {
+    static final int LOOKUPS = 1024;
+    static final int UPDATES = 64;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private int[] keys;
+    private int[] newKeys;
+
+    private PersistentMap<Integer, Integer> persistent;
+    private HashMap<Integer, Integer> mutable;
+    private io.vavr.collection.HashMap<Integer, Integer> vavr;
+    private HashPMap<Integer, Integer> pcollections;
+
+    @Setup
+    public void setup() {
+        keys = Data.randomInts(size, Integer.MAX_VALUE, 11);
+        newKeys = Data.randomInts(UPDATES, Integer.MAX_VALUE, 12);
+
+        persistent = buildPersistentMap();
+        mutable = buildHashMap();
+        vavr = buildVavrHashMap();
+        pcollections = buildPcollectionsHashTreePMap();
+    }
+
+    // ====== build ======
+
+    @Benchmark
+    public PersistentMap<Integer, Integer> buildPersistentMap() {
+        var result = new PersistentMap<Integer, Integer>();
+        for (final var key : keys) result = result.with(key, key);
+        return result;
+    }
+
+    @Benchmark
+    public HashMap<Integer, Integer> buildHashMap() {
+        final var result = new HashMap<Integer, Integer>();
+        for (final var key : keys) result.put(key, key);
+        return result;
+    }
+
+    @Benchmark
+    public io.vavr.collection.HashMap<Integer, Integer> buildVavrHashMap() {
+        var result = io.vavr.collection.HashMap.<Integer, Integer>empty();
+        for (final var key : keys) result = result.put(key, key);
+        return result;
+    }
+
+    @Benchmark
+    public HashPMap<Integer, Integer> buildPcollectionsHashTreePMap() {
+        var result = HashTreePMap.<Integer, Integer>empty();
+        for (final var key : keys) result = result.plus(key, key);
+        return result;
+    }
+
+    // ====== get ======
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getPersistentMap() {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += persistent.get(keys[i % size]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getHashMap() {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += mutable.get(keys[i % size]);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getVavrHashMap() {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += vavr.getOrElse(keys[i % size], 0);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long getPcollectionsHashTreePMap() {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += pcollections.get(keys[i % size]);
+        return sum;
+    }
+
+    // ====== with ======
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withPersistentMap(Blackhole blackhole) {
+        for (final var key : newKeys) blackhole.consume(persistent.with(key, key));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withHashMapCopy(Blackhole blackhole) {
+        for (final var key : newKeys) {
+            final var copy = new HashMap<>(mutable);
+            copy.put(key, key);
+            blackhole.consume(copy);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withVavrHashMap(Blackhole blackhole) {
+        for (final var key : newKeys) blackhole.consume(vavr.put(key, key));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withPcollectionsHashTreePMap(Blackhole blackhole) {
+        for (final var key : newKeys) blackhole.consume(pcollections.plus(key, key));
+    }
+}
@@ -0,0 +1,95 @@
+package benchmarks;
+
+import memoization.pure.function.BoundedMemoizedFunction;
+import memoization.pure.function.MemoizedFunction;
+import memoization.pure.function.SoftMemoizedFunction;
+import memoization.pure.function.WeakMemoizedFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Times the memoizers against memoizing with {@link ConcurrentHashMap#computeIfAbsent}. The hit benchmark shares one
+ * warm memoizer between all the threads, so run it with a few thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoizerBenchmarks {
+    static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({
+            "MemoizedFunction",
+            "SoftMemoizedFunction",
+            "WeakMemoizedFunction",
+            "BoundedMemoizedFunction",
+            "ConcurrentHashMap.computeIfAbsent"})
+    public String implementation;
+
+    private Integer[] keys;
+    private Function<Integer, Integer> warm;
+
+    @Setup
+    public void setup() {
+        keys = Data.keys(size);
+        warm = memoize(MemoizerBenchmarks::work);
+        for (final var key : keys) warm.apply(key);
+    }
+
+    private Function<Integer, Integer> memoize(Function<Integer, Integer> original) {
+        return switch (implementation) {
+            case "MemoizedFunction" -> new MemoizedFunction<>(original);
+            case "SoftMemoizedFunction" -> new SoftMemoizedFunction<>(original);
+            case "WeakMemoizedFunction" -> new WeakMemoizedFunction<>(original);
+            case "BoundedMemoizedFunction" -> new BoundedMemoizedFunction<>(original, size);
+            case "ConcurrentHashMap.computeIfAbsent" -> {
+                final var cache = new ConcurrentHashMap<Integer, Integer>();
+                yield key -> cache.computeIfAbsent(key, original);
+            }
+            default -> throw new IllegalArgumentException("unknown memoizer: " + implementation);
+        };
+    }
+
+    private static Integer work(Integer i) {
+        return Integer.rotateLeft(i * 0x9E3779B9, 7) ^ i;
+    }
+
+    /**
+     * Fills a fresh memoizer with every key, so every call is a miss. Timed per fill.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long miss() {
+        final var memoized = memoize(MemoizerBenchmarks::work);
+        long sum = 0;
+        for (final var key : keys) sum += memoized.apply(key);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long hit(Cursor cursor) {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) sum += warm.apply(keys[(i * 7919 + cursor.offset) % size]);
+        return sum;
+    }
+}
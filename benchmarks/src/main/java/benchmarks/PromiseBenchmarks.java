@@ -0,0 +1,142 @@
+package benchmarks;
+
+import concurrency.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times {@link Promise} chains against {@link CompletableFuture}. Pending chains are built on a pending promise and
+ * then resolved so the cost of queueing the reactions and running them is counted; fan out hangs every reaction off of
+ * the same promise, timeout arms and then disarms that many timers, and all waits on that many promises at once. Every
+ * benchmark is timed per whole batch of {@code size} promises.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromiseBenchmarks {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    // ====== chains ======
+
+    @Benchmark
+    public Integer chainPendingPromise() {
+        final var deferred = Promise.<Integer>deferred();
+        var promise = deferred.promise();
+        for (int i = 0; i < size; i++) promise = promise.then(x -> x + 1);
+        deferred.settle().resolve(0);
+        return promise.getResult();
+    }
+
+    @Benchmark
+    public Integer chainPendingCompletableFuture() {
+        final var first = new CompletableFuture<Integer>();
+        var future = first;
+        for (int i = 0; i < size; i++) future = future.thenApply(x -> x + 1);
+        first.complete(0);
+        return future.getNow(null);
+    }
+
+    @Benchmark
+    public Integer chainResolvedPromise() {
+        var promise = Promise.resolved(0);
+        for (int i = 0; i < size; i++) promise = promise.then(x -> x + 1);
+        return promise.getResult();
+    }
+
+    @Benchmark
+    public Integer chainResolvedCompletableFuture() {
+        var future = CompletableFuture.completedFuture(0);
+        for (int i = 0; i < size; i++) future = future.thenApply(x -> x + 1);
+        return future.getNow(null);
+    }
+
+    // ====== fan out ======
+
+    @Benchmark
+    public Promise<Integer> fanOutPromise() {
+        final var deferred = Promise.<Integer>deferred();
+        final var promise = deferred.promise();
+        for (int i = 0; i < size; i++) promise.then(x -> x + 1);
+        deferred.settle().resolve(0);
+        return promise;
+    }
+
+    @Benchmark
+    public CompletableFuture<Integer> fanOutCompletableFuture() {
+        final var future = new CompletableFuture<Integer>();
+        for (int i = 0; i < size; i++) future.thenApply(x -> x + 1);
+        future.complete(0);
+        return future;
+    }
+
+    // ====== timeout ======
+
+    @Benchmark
+    public List<Promise<Integer>.Deferred> timeoutPromise() {
+        final var deferreds = new ArrayList<Promise<Integer>.Deferred>(size);
+        for (int i = 0; i < size; i++) {
+            final var deferred = Promise.<Integer>deferred();
+            deferred.promise().withTimeout(TIMEOUT);
+            deferreds.add(deferred);
+        }
+        for (final var deferred : deferreds) deferred.settle().resolve(0);
+        return deferreds;
+    }
+
+    @Benchmark
+    public List<CompletableFuture<Integer>> timeoutCompletableFuture() {
+        final var futures = new ArrayList<CompletableFuture<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            final var future = new CompletableFuture<Integer>();
+            future.orTimeout(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            futures.add(future);
+        }
+        for (final var future : futures) future.complete(0);
+        return futures;
+    }
+
+    // ====== all ======
+
+    @Benchmark
+    public Object allPromise() {
+        final var deferreds = new ArrayList<Promise<Integer>.Deferred>(size);
+        final var promises = new ArrayList<Promise<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            final var deferred = Promise.<Integer>deferred();
+            deferreds.add(deferred);
+            promises.add(deferred.promise());
+        }
+        final var all = Promise.all(promises);
+        for (int i = 0; i < size; i++) deferreds.get(i).settle().resolve(i);
+        return all.getResult();
+    }
+
+    @Benchmark
+    public Object allCompletableFuture() {
+        final var futures = new ArrayList<CompletableFuture<Integer>>(size);
+        for (int i = 0; i < size; i++) futures.add(new CompletableFuture<>());
+        final var all = CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new));
+        for (int i = 0; i < size; i++) futures.get(i).complete(i);
+        return all.getNow(null);
+    }
+}
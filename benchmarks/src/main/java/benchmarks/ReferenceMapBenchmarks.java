@@ -0,0 +1,105 @@
+package benchmarks;
+
+import collections.bounded.BoundedConcurrentHashMap;
+import collections.reference.CleanupMode;
+import collections.reference.SoftConcurrentHashMap;
+import collections.reference.SoftIdentityConcurrentHashMap;
+import collections.reference.SoftValueConcurrentHashMap;
+import collections.reference.WeakConcurrentHashMap;
+import collections.reference.WeakIdentityConcurrentHashMap;
+import collections.reference.WeakKeySoftValueConcurrentHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the reference maps the memoizers are built on, and the bounded map, against a plain
+ * {@link ConcurrentHashMap}. The get benchmark shares one map between all the threads, so run it with a few thread
+ * counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceMapBenchmarks {
+    static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({
+            "WeakConcurrentHashMap",
+            "SoftConcurrentHashMap",
+            "WeakConcurrentHashMap (background cleanup)",
+            "SoftConcurrentHashMap (background cleanup)",
+            "SoftValueConcurrentHashMap",
+            "WeakKeySoftValueConcurrentHashMap",
+            "WeakIdentityConcurrentHashMap",
+            "SoftIdentityConcurrentHashMap",
+            "BoundedConcurrentHashMap",
+            "ConcurrentHashMap"})
+    public String implementation;
+
+    private Integer[] keys;
+    private Map<Integer, Integer> shared;
+
+    @Setup
+    public void setup() {
+        keys = Data.keys(size);
+        shared = newMap();
+        for (final var key : keys) shared.put(key, key);
+    }
+
+    private Map<Integer, Integer> newMap() {
+        return switch (implementation) {
+            case "WeakConcurrentHashMap" -> new WeakConcurrentHashMap<>();
+            case "SoftConcurrentHashMap" -> new SoftConcurrentHashMap<>();
+            case "WeakConcurrentHashMap (background cleanup)" -> new WeakConcurrentHashMap<>(CleanupMode.BACKGROUND);
+            case "SoftConcurrentHashMap (background cleanup)" -> new SoftConcurrentHashMap<>(CleanupMode.BACKGROUND);
+            case "SoftValueConcurrentHashMap" -> new SoftValueConcurrentHashMap<>();
+            case "WeakKeySoftValueConcurrentHashMap" -> new WeakKeySoftValueConcurrentHashMap<>();
+            case "WeakIdentityConcurrentHashMap" -> new WeakIdentityConcurrentHashMap<>();
+            case "SoftIdentityConcurrentHashMap" -> new SoftIdentityConcurrentHashMap<>();
+            case "BoundedConcurrentHashMap" -> new BoundedConcurrentHashMap<>(size);
+            case "ConcurrentHashMap" -> new ConcurrentHashMap<>();
+            default -> throw new IllegalArgumentException("unknown map: " + implementation);
+        };
+    }
+
+    /**
+     * Fills a fresh map with every key. Timed per fill.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<Integer, Integer> put() {
+        final var map = newMap();
+        for (final var key : keys) map.put(key, key);
+        return map;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long get(Cursor cursor) {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            final var value = shared.get(keys[(i * 7919 + cursor.offset) % size]);
+            if (value != null) sum += value;
+        }
+        return sum;
+    }
+}
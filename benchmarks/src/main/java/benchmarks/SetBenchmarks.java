@@ -0,0 +1,154 @@
+package benchmarks;
+
+import collections.persistent.PersistentSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pcollections.HashTreePSet;
+import org.pcollections.MapPSet;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lines {@link PersistentSet} up against {@link HashSet}, vavr's {@link io.vavr.collection.HashSet} and pcollections'
+ * {@link HashTreePSet}. Half of the lookups hit and half (almost certainly) miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetBenchmarks {
+    static final int LOOKUPS = 1024;
+    static final int UPDATES = 64;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private int[] values;
+    private int[] lookups;
+
+    private PersistentSet<Integer> persistent;
+    private HashSet<Integer> mutable;
+    private io.vavr.collection.HashSet<Integer> vavr;
+    private MapPSet<Integer> pcollections;
+
+    @Setup
+    public void setup() {
+        values = Data.randomInts(size, Integer.MAX_VALUE, 9);
+        final var misses = Data.randomInts(LOOKUPS / 2, Integer.MAX_VALUE, 10);
+        lookups = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) lookups[i] = i % 2 == 0 ? values[i % size] : misses[i / 2];
+
+        persistent = buildPersistentSet();
+        mutable = buildHashSet();
+        vavr = buildVavrHashSet();
+        pcollections = buildPcollectionsHashTreePSet();
+    }
+
+    // ====== build ======
+
+    @Benchmark
+    public PersistentSet<Integer> buildPersistentSet() {
+        var result = new PersistentSet<Integer>();
+        for (final var value : values) result = result.with(value);
+        return result;
+    }
+
+    @Benchmark
+    public HashSet<Integer> buildHashSet() {
+        final var result = new HashSet<Integer>();
+        for (final var value : values) result.add(value);
+        return result;
+    }
+
+    @Benchmark
+    public io.vavr.collection.HashSet<Integer> buildVavrHashSet() {
+        var result = io.vavr.collection.HashSet.<Integer>empty();
+        for (final var value : values) result = result.add(value);
+        return result;
+    }
+
+    @Benchmark
+    public MapPSet<Integer> buildPcollectionsHashTreePSet() {
+        var result = HashTreePSet.<Integer>empty();
+        for (final var value : values) result = result.plus(value);
+        return result;
+    }
+
+    // ====== contains ======
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsPersistentSet() {
+        int found = 0;
+        for (final var value : lookups) if (persistent.contains(value)) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsHashSet() {
+        int found = 0;
+        for (final var value : lookups) if (mutable.contains(value)) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsVavrHashSet() {
+        int found = 0;
+        for (final var value : lookups) if (vavr.contains(value)) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsPcollectionsHashTreePSet() {
+        int found = 0;
+        for (final var value : lookups) if (pcollections.contains(value)) found++;
+        return found;
+    }
+
+    // ====== with ======
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withPersistentSet(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) blackhole.consume(persistent.with(lookups[i * 2 + 1]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withHashSetCopy(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) {
+            final var copy = new HashSet<>(mutable);
+            copy.add(lookups[i * 2 + 1]);
+            blackhole.consume(copy);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withVavrHashSet(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) blackhole.consume(vavr.add(lookups[i * 2 + 1]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public void withPcollectionsHashTreePSet(Blackhole blackhole) {
+        for (int i = 0; i < UPDATES; i++) blackhole.consume(pcollections.plus(lookups[i * 2 + 1]));
+    }
+}
@@ -0,0 +1,153 @@
+package benchmarks;
+
+import collections.persistent.PersistentTreeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pcollections.TreePSet;
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lines {@link PersistentTreeSet} up against {@link TreeSet}, vavr's {@link io.vavr.collection.TreeSet} and
+ * pcollections' {@link TreePSet}. The build benchmarks insert every value one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeSetBenchmarks {
+    static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private int[] values;
+    private int[] lookups;
+
+    private PersistentTreeSet<Integer> persistent;
+    private TreeSet<Integer> mutable;
+    private io.vavr.collection.TreeSet<Integer> vavr;
+    private TreePSet<Integer> pcollections;
+
+    private PersistentTreeSet<Integer> otherPersistent;
+    private TreeSet<Integer> otherMutable;
+    private io.vavr.collection.TreeSet<Integer> otherVavr;
+
+    @Setup
+    public void setup() {
+        values = Data.randomInts(size, Integer.MAX_VALUE, 7);
+        lookups = Data.randomInts(LOOKUPS, Integer.MAX_VALUE, 8);
+
+        persistent = buildPersistentTreeSet();
+        mutable = buildTreeSet();
+        vavr = buildVavrTreeSet();
+        pcollections = buildPcollectionsTreePSet();
+
+        var other = new PersistentTreeSet<Integer>();
+        for (final var value : lookups) other = other.with(value);
+        otherPersistent = other;
+        otherMutable = new TreeSet<>(otherPersistent);
+        otherVavr = io.vavr.collection.TreeSet.ofAll(otherMutable);
+    }
+
+    // ====== build ======
+
+    @Benchmark
+    public PersistentTreeSet<Integer> buildPersistentTreeSet() {
+        var result = new PersistentTreeSet<Integer>();
+        for (final var value : values) result = result.with(value);
+        return result;
+    }
+
+    @Benchmark
+    public TreeSet<Integer> buildTreeSet() {
+        final var result = new TreeSet<Integer>();
+        for (final var value : values) result.add(value);
+        return result;
+    }
+
+    @Benchmark
+    public io.vavr.collection.TreeSet<Integer> buildVavrTreeSet() {
+        var result = io.vavr.collection.TreeSet.<Integer>empty();
+        for (final var value : values) result = result.add(value);
+        return result;
+    }
+
+    @Benchmark
+    public TreePSet<Integer> buildPcollectionsTreePSet() {
+        var result = TreePSet.<Integer>empty();
+        for (final var value : values) result = result.plus(value);
+        return result;
+    }
+
+    // ====== contains ======
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsPersistentTreeSet() {
+        int found = 0;
+        for (final var value : lookups) if (persistent.contains(value)) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsTreeSet() {
+        int found = 0;
+        for (final var value : lookups) if (mutable.contains(value)) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsVavrTreeSet() {
+        int found = 0;
+        for (final var value : lookups) if (vavr.contains(value)) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int containsPcollectionsTreePSet() {
+        int found = 0;
+        for (final var value : lookups) if (pcollections.contains(value)) found++;
+        return found;
+    }
+
+    // ====== union ======
+
+    @Benchmark
+    public PersistentTreeSet<Integer> unionPersistentTreeSet() {
+        return persistent.union(otherPersistent);
+    }
+
+    @Benchmark
+    public TreeSet<Integer> unionTreeSetCopy() {
+        final var result = new TreeSet<>(mutable);
+        result.addAll(otherMutable);
+        return result;
+    }
+
+    @Benchmark
+    public io.vavr.collection.TreeSet<Integer> unionVavrTreeSet() {
+        return vavr.union(otherVavr);
+    }
+
+    @Benchmark
+    public TreePSet<Integer> unionPcollectionsTreePSet() {
+        return pcollections.plusAll(otherMutable);
+    }
+}
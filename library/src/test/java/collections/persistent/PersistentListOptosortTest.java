@@ -0,0 +1,44 @@
+package collections.persistent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PersistentListOptosortTest {
+    /**
+     * Lists glued together out of odd sized, partly sorted pieces, so the tree has irregular leaves and a mix of
+     * sorted and unsorted subtrees.
+     */
+    private static PersistentList<Integer> randomList(Random rand, int maxPieceSize) {
+        var list = new PersistentList<Integer>();
+        final var pieces = 1 + rand.nextInt(8);
+        for (int p = 0; p < pieces; p++) {
+            var piece = PersistentList.generate(i -> rand.nextInt(100), rand.nextInt(maxPieceSize));
+            if (rand.nextBoolean()) piece = piece.sorted(Comparator.naturalOrder());
+            list = list.concat(piece);
+        }
+        for (int i = rand.nextInt(4); i > 0; i--) {
+            list = list.insertSingle(rand.nextInt(list.size() + 1), rand.nextInt(100));
+        }
+        if (list.size() > 4 && rand.nextBoolean()) list = list.get(1, list.size() - 2);
+        return list;
+    }
+
+    @Test
+    void optosortMatchesSorted() {
+        final var rand = new Random(42);
+        for (int trial = 0; trial < 2000; trial++) {
+            final var list = randomList(rand, trial < 1000 ? 40 : 300);
+            final var expected = new ArrayList<>(list);
+            Collections.sort(expected);
+
+            assertEquals(expected, new ArrayList<>(list.sorted(Comparator.naturalOrder())), "sorted, trial " + trial);
+            assertEquals(expected, new ArrayList<>(list.optosort(Comparator.naturalOrder())), "optosort, trial " + trial);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import collections.records.MapRecord;
 import collections.records.SetRecord;
 import collections.reference.WeakConcurrentHashMap;
 import concurrency.Promise;
+import memoization.pure.function.MemoizedBiFunction;
 import memoization.pure.function.MemoizedFunction;
 
 import java.util.*;
@@ -16,33 +17,6 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 
-class MemoizedBiFunction<T, U, R> implements BiFunction<T, U, R> {
-    private final MemoizedFunction<Arguments<T, U>, R> function;
-
-    public MemoizedBiFunction(BiFunction<T, U, R> original) {
-        function = new MemoizedFunction<>((args) -> original.apply(args.t, args.u));
-    }
-
-    public R apply(T t, U u) {
-        return function.apply(new Arguments<>(t, u));
-    }
-
-    public R cacheApply(T t, U u) {
-        return function.cacheApply(new Arguments<>(t, u));
-    }
-
-    public R hardApply(T t, U u) {
-        return function.hardApply(new Arguments<>(t, u));
-    }
-
-    public boolean isCached(T t, U u) {
-        return function.isCached(new Arguments<>(t, u));
-    }
-
-    private record Arguments<T, U>(T t, U u) {
-    }
-}
-
 /**
  * int wrapper that returns a (B)ad (H)ash for testing hashmaps
  */
@@ -84,7 +84,7 @@ public class ArrayUtils {
     }
 
     public static Object[] map(Object[] original, BiFunction<Object, Integer, Object> mapping, int modificationLimit, Pointer<Integer> out_modificationCount) {
-        return map(original, mapping, modificationLimit, out_modificationCount);
+        return map(original, mapping, modificationLimit, out_modificationCount, false, false);
     }
 
     public static Object[] map(Object[] original, BiFunction<Object, Integer, Object> mapping, int modificationLimit, Pointer<Integer> out_modificationCount, boolean sourceReversed, boolean reverseResult) {
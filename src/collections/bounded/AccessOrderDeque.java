@@ -0,0 +1,44 @@
+package collections.bounded;
+
+/**
+ * Intrusive doubly linked list of nodes, least recently used first. Not thread safe.
+ */
+final class AccessOrderDeque<K, V> {
+    private Node<K, V> first;
+    private Node<K, V> last;
+
+    boolean isEmpty() {
+        return first == null;
+    }
+
+    Node<K, V> peekFirst() {
+        return first;
+    }
+
+    Node<K, V> peekLast() {
+        return last;
+    }
+
+    void linkLast(Node<K, V> node) {
+        node.previous = last;
+        node.next = null;
+        if (last == null) first = node;
+        else last.next = node;
+        last = node;
+    }
+
+    void unlink(Node<K, V> node) {
+        if (node.previous == null) first = node.next;
+        else node.previous.next = node.next;
+        if (node.next == null) last = node.previous;
+        else node.next.previous = node.previous;
+        node.previous = null;
+        node.next = null;
+    }
+
+    void moveToBack(Node<K, V> node) {
+        if (node == last) return;
+        unlink(node);
+        linkLast(node);
+    }
+}
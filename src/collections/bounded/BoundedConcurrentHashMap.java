@@ -0,0 +1,418 @@
+package collections.bounded;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent map that evicts entries to stay under a maximum size or weight, picked by an {@link EvictionPolicy}.
+ * Unlike the soft and weak maps, what gets evicted and when doesn't depend on the garbage collector.
+ * <p>
+ * Reads don't lock. They're recorded in a lossy, striped buffer that the policy catches up on later. Writes go through
+ * a queue that's drained by whichever thread gets the eviction lock, and that thread also does the evicting, so the
+ * map can be over its maximum for a moment while another thread is mid-write.
+ * <p>
+ * Null keys and values aren't allowed.
+ */
+public class BoundedConcurrentHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final long maximum;
+    private final Weigher<? super K, ? super V> weigher;
+    private final EvictionPolicy evictionPolicy;
+
+    /**
+     * Guarded by evictionLock, along with everything the policy keeps in the nodes.
+     */
+    private final Policy<K, V> policy;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    /**
+     * Only written while holding evictionLock.
+     */
+    private volatile long evictions = 0;
+
+    /**
+     * Bounded by number of entries, with W-TinyLFU eviction.
+     */
+    public BoundedConcurrentHashMap(long maximumSize) {
+        this(BoundedConcurrentHashMap.<K, V>builder().maximumSize(maximumSize));
+    }
+
+    private BoundedConcurrentHashMap(Builder<K, V> builder) {
+        if (builder.maximum < 0) throw new IllegalStateException("The maximum size or weight was not set");
+
+        maximum = builder.maximum;
+        weigher = builder.weigher;
+        evictionPolicy = builder.evictionPolicy;
+        policy = evictionPolicy.build();
+        policy.setMaximum(maximum);
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    // ====== reads ======
+
+    @Override
+    public V get(Object key) {
+        final var node = data.get(key);
+        if (node == null) return null;
+
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        for (final var node : data.values()) {
+            if (value.equals(node.value)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    // ====== writes ======
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(@NotNull K key, V value) {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        final var weight = weigh(key, value);
+
+        Node<K, V> node = null;
+        while (true) {
+            var prior = data.get(key);
+            if (prior == null) {
+                if (node == null) node = new Node<>(key, value, weight);
+                prior = data.putIfAbsent(key, node);
+                if (prior == null) {
+                    final var added = node;
+                    afterWrite(() -> {
+                        if (!added.retired) policy.onAdd(added);
+                    });
+                    return null;
+                }
+            }
+
+            final V oldValue;
+            synchronized (prior) {
+                // removed since, try again
+                if (prior.retired) continue;
+
+                oldValue = prior.value;
+                if (!onlyIfAbsent) {
+                    prior.value = value;
+                    prior.weight = weight;
+                }
+            }
+
+            if (onlyIfAbsent) {
+                afterRead(prior);
+            } else {
+                afterUpdate(prior);
+            }
+            return oldValue;
+        }
+    }
+
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        final var node = data.get(Objects.requireNonNull(key));
+        if (node == null) return null;
+        final var weight = weigh(key, value);
+
+        final V oldValue;
+        synchronized (node) {
+            if (node.retired) return null;
+            oldValue = node.value;
+            node.value = value;
+            node.weight = weight;
+        }
+
+        afterUpdate(node);
+        return oldValue;
+    }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        final var node = data.get(Objects.requireNonNull(key));
+        if (node == null) return false;
+        final var weight = weigh(key, newValue);
+
+        synchronized (node) {
+            if (node.retired || !oldValue.equals(node.value)) return false;
+            node.value = newValue;
+            node.weight = weight;
+        }
+
+        afterUpdate(node);
+        return true;
+    }
+
+    @Override
+    public V remove(Object key) {
+        final var removed = retire(key, null);
+        return removed == null ? null : removed.value;
+    }
+
+    @Override
+    public boolean remove(@NotNull Object key, Object value) {
+        return value != null && retire(key, value) != null;
+    }
+
+    @Override
+    public void clear() {
+        for (final var key : data.keySet()) remove(key);
+    }
+
+    /**
+     * Takes the key's node out of the map, if its value equals the given one or the given one is null.
+     *
+     * @return The node that was removed, or null if none was.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<K, V> retire(Object key, Object value) {
+        final var removed = new AtomicReference<Node<K, V>>();
+        data.computeIfPresent((K) key, (k, node) -> {
+            synchronized (node) {
+                if (value != null && !value.equals(node.value)) return node;
+                node.retired = true;
+            }
+            removed.setPlain(node);
+            return null;
+        });
+
+        final var node = removed.getPlain();
+        if (node != null) afterWrite(() -> policy.onRemove(node));
+        return node;
+    }
+
+    private int weigh(K key, V value) {
+        final var weight = weigher.weigh(key, value);
+        if (weight < 0) throw new IllegalArgumentException("Negative weight: " + weight);
+        return weight;
+    }
+
+    // ====== maintenance ======
+
+    private void afterRead(Node<K, V> node) {
+        if (!readBuffer.offer(node)) maintain();
+    }
+
+    private void afterUpdate(Node<K, V> node) {
+        afterWrite(() -> policy.onUpdate(node));
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        maintain();
+    }
+
+    /**
+     * Catches the policy up on what's happened and evicts until the map fits, unless another thread is already on it.
+     * That thread checks the write buffer again after letting go of the lock, so nothing is left waiting.
+     */
+    private void maintain() {
+        do {
+            if (!evictionLock.tryLock()) return;
+            try {
+                drainBuffers();
+                evict();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    private void drainBuffers() {
+        readBuffer.drain(policy::onAccess);
+
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) task.run();
+    }
+
+    private void evict() {
+        while (policy.weightedSize() > maximum) {
+            final var victim = policy.evict();
+            if (victim == null) return;
+
+            final var evicted = new boolean[1];
+            data.computeIfPresent(victim.key, (key, node) -> {
+                if (node != victim) return node;
+                synchronized (node) {
+                    node.retired = true;
+                }
+                evicted[0] = true;
+                return null;
+            });
+            if (evicted[0]) evictions++;
+        }
+    }
+
+    // ====== views ======
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return data.size();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                final var nodes = data.values().iterator();
+                return new Iterator<>() {
+                    private Node<K, V> current = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        return nodes.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        current = nodes.next();
+                        return new SimpleImmutableEntry<>(current.key, current.value);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) throw new IllegalStateException();
+                        BoundedConcurrentHashMap.this.remove(current.key, current.value);
+                        current = null;
+                    }
+                };
+            }
+        };
+    }
+
+    // ====== properties ======
+
+    /**
+     * @return The maximum size, or weight if the map was built with a weigher.
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * @return How many entries have been evicted to keep the map under its maximum. Entries taken out with remove
+     * don't count.
+     */
+    public long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return The total weight of the entries, as of the last time the policy caught up.
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return policy.weightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Catches the eviction policy up on everything that's happened so far and evicts whatever doesn't fit.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainBuffers();
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // ====== builder ======
+
+    public static class Builder<K, V> {
+        private long maximum = -1;
+        private Weigher<? super K, ? super V> weigher = Weigher.singleton();
+        private EvictionPolicy evictionPolicy = EvictionPolicy.WINDOW_TINY_LFU;
+
+        private Builder() {
+        }
+
+        /**
+         * Bound the map by its number of entries.
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            if (maximumSize < 0) throw new IllegalArgumentException("maximumSize must not be negative");
+            maximum = maximumSize;
+            weigher = Weigher.singleton();
+            return this;
+        }
+
+        /**
+         * Bound the map by the total weight of its entries.
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight, @NotNull Weigher<? super K, ? super V> weigher) {
+            if (maximumWeight < 0) throw new IllegalArgumentException("maximumWeight must not be negative");
+            maximum = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        /**
+         * Defaults to {@link EvictionPolicy#WINDOW_TINY_LFU}.
+         */
+        public Builder<K, V> evictionPolicy(@NotNull EvictionPolicy evictionPolicy) {
+            this.evictionPolicy = Objects.requireNonNull(evictionPolicy);
+            return this;
+        }
+
+        public BoundedConcurrentHashMap<K, V> build() {
+            return new BoundedConcurrentHashMap<>(this);
+        }
+    }
+}
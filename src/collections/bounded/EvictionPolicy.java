@@ -0,0 +1,30 @@
+package collections.bounded;
+
+/**
+ * Decides which entry a {@link BoundedConcurrentHashMap} evicts once it's over its maximum.
+ */
+public enum EvictionPolicy {
+    /**
+     * Least recently used. Simple and cheap, but a single pass over a lot of keys that are never used again flushes
+     * out everything that's actually popular.
+     */
+    LRU {
+        @Override
+        <K, V> Policy<K, V> build() {
+            return new LruPolicy<>();
+        }
+    },
+    /**
+     * Window TinyLFU. New entries start in a small LRU window. Once they fall out of it they have to beat the main
+     * space's next victim on how often they've been used, as estimated by a count-min sketch, to be kept. Scans and
+     * one-off keys don't push out popular entries, so the hit rate is usually better than LRU's.
+     */
+    WINDOW_TINY_LFU {
+        @Override
+        <K, V> Policy<K, V> build() {
+            return new WindowTinyLfuPolicy<>();
+        }
+    };
+
+    abstract <K, V> Policy<K, V> build();
+}
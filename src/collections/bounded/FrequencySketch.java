@@ -0,0 +1,107 @@
+package collections.bounded;
+
+/**
+ * Count-min sketch estimating how often keys have been seen, in 4 bits per counter. Each key maps to one counter in
+ * each of 4 rows and its frequency is the smallest of them, so collisions can only make an estimate too high, never
+ * too low.
+ * <p>
+ * Counters are halved once the number of increments reaches 10 times the capacity, so the estimates follow what's
+ * popular now rather than what was popular at some point. Not thread safe.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * 16 counters per long. A key's 4 counters are all in the same group of 4 within their longs.
+     */
+    private long[] table = new long[0];
+    private int tableMask = 0;
+    private int sampleSize = 0;
+    private int additions = 0;
+
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Makes room for estimating the frequency of the given number of keys. Growing starts the counts over.
+     */
+    void ensureCapacity(long keys) {
+        final var wanted = (int) Math.min(Math.max(keys, 16), MAX_CAPACITY);
+        if (table.length >= wanted) return;
+
+        final var size = Integer.highestOneBit(wanted - 1) << 1;
+        table = new long[size];
+        tableMask = size - 1;
+        sampleSize = size * 10;
+        additions = 0;
+    }
+
+    /**
+     * @return The estimated number of times the key has been seen recently, up to 15.
+     */
+    int frequency(Object key) {
+        if (table.length == 0) return 0;
+
+        final var hash = spread(key.hashCode());
+        final var start = (hash & 3) << 2;
+        var frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            final var count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        if (table.length == 0) ensureCapacity(16);
+
+        final var hash = spread(key.hashCode());
+        final var start = (hash & 3) << 2;
+        var added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++additions >= sampleSize) reset();
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        final var offset = counter << 2;
+        final var mask = 0xFL << offset;
+        if ((table[index] & mask) == mask) return false;
+
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /**
+     * Halves every counter.
+     */
+    private void reset() {
+        var odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        // the halving drops the odd counters' last increment
+        additions = (additions - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        var h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
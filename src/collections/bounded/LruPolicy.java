@@ -0,0 +1,32 @@
+package collections.bounded;
+
+final class LruPolicy<K, V> extends Policy<K, V> {
+    private static final int LINKED = 1;
+
+    private final AccessOrderDeque<K, V> deque = new AccessOrderDeque<>();
+
+    @Override
+    void setMaximum(long maximum) {
+    }
+
+    @Override
+    void link(Node<K, V> node) {
+        node.queue = LINKED;
+        deque.linkLast(node);
+    }
+
+    @Override
+    void access(Node<K, V> node) {
+        deque.moveToBack(node);
+    }
+
+    @Override
+    void unlink(Node<K, V> node) {
+        deque.unlink(node);
+    }
+
+    @Override
+    Node<K, V> victim() {
+        return deque.peekFirst();
+    }
+}
@@ -0,0 +1,41 @@
+package collections.bounded;
+
+/**
+ * An entry in a {@link BoundedConcurrentHashMap}. Value and weight are read without locking. Writes to them and
+ * retiring the node happen while holding its monitor, so an update can never land on a node that has already left
+ * the map.
+ * <p>
+ * The rest is the eviction policy's bookkeeping and is only touched while holding the map's eviction lock.
+ */
+final class Node<K, V> {
+    static final int UNLINKED = 0;
+    /**
+     * Tracked by the policy but in none of its queues, because it weighs nothing and so is never evicted.
+     */
+    static final int PINNED = -1;
+
+    final K key;
+    volatile V value;
+    volatile int weight;
+    /**
+     * Set when the node is taken out of the map.
+     */
+    volatile boolean retired = false;
+
+    Node<K, V> previous;
+    Node<K, V> next;
+    /**
+     * Which of the policy's queues the node is in, or {@link #UNLINKED} or {@link #PINNED}.
+     */
+    int queue = UNLINKED;
+    /**
+     * The weight as far as the policy knows. Can lag behind {@link #weight} until the update is processed.
+     */
+    int policyWeight;
+
+    Node(K key, V value, int weight) {
+        this.key = key;
+        this.value = value;
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,109 @@
+package collections.bounded;
+
+/**
+ * Keeps track of the order of the entries and picks what to evict. Only ever used while holding the map's eviction
+ * lock, so implementations don't need to be thread safe.
+ */
+abstract class Policy<K, V> {
+    private long weightedSize = 0;
+    private int count = 0;
+
+    /**
+     * Called once by the map, before anything else.
+     */
+    abstract void setMaximum(long maximum);
+
+    long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * @return How many entries the policy is tracking.
+     */
+    int count() {
+        return count;
+    }
+
+    // ====== events ======
+
+    final void onAdd(Node<K, V> node) {
+        if (node.queue != Node.UNLINKED) return;
+        node.policyWeight = node.weight;
+        weightedSize += node.policyWeight;
+        count++;
+        if (node.policyWeight == 0) {
+            node.queue = Node.PINNED;
+        } else {
+            link(node);
+        }
+    }
+
+    final void onAccess(Node<K, V> node) {
+        if (node.queue != Node.UNLINKED && node.queue != Node.PINNED) access(node);
+    }
+
+    final void onUpdate(Node<K, V> node) {
+        if (node.queue == Node.UNLINKED) return;
+        final var delta = node.weight - node.policyWeight;
+        node.policyWeight = node.weight;
+        weightedSize += delta;
+
+        // entries that weigh nothing are kept out of the queues so they're never picked as victims
+        if (node.queue == Node.PINNED) {
+            if (node.policyWeight != 0) link(node);
+        } else if (node.policyWeight == 0) {
+            // unlinking goes by the weight the queues were given
+            node.policyWeight -= delta;
+            unlink(node);
+            node.policyWeight = 0;
+            node.queue = Node.PINNED;
+        } else {
+            reweigh(node, delta);
+            access(node);
+        }
+    }
+
+    final void onRemove(Node<K, V> node) {
+        if (node.queue == Node.UNLINKED) return;
+        if (node.queue != Node.PINNED) unlink(node);
+        node.queue = Node.UNLINKED;
+        weightedSize -= node.policyWeight;
+        count--;
+    }
+
+    /**
+     * Picks a victim and stops tracking it.
+     *
+     * @return The node to evict or null if there's nothing left that can be evicted. Nodes that weigh nothing never
+     * are.
+     */
+    final Node<K, V> evict() {
+        final var victim = victim();
+        if (victim != null) onRemove(victim);
+        return victim;
+    }
+
+    // ====== implementation ======
+
+    /**
+     * Starts tracking the node. Has to set the node's queue to something other than {@link Node#UNLINKED}.
+     */
+    abstract void link(Node<K, V> node);
+
+    abstract void access(Node<K, V> node);
+
+    /**
+     * The node's weight changed by delta.
+     */
+    void reweigh(Node<K, V> node, int delta) {
+    }
+
+    abstract void unlink(Node<K, V> node);
+
+    /**
+     * Called while the map is over its maximum.
+     *
+     * @return The node that should go next, still linked. Null if there's nothing left.
+     */
+    abstract Node<K, V> victim();
+}
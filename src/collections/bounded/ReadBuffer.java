@@ -0,0 +1,76 @@
+package collections.bounded;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Where reads are recorded until the eviction policy gets to them. Split into stripes picked by thread so readers
+ * rarely touch the same memory, and lossy: when a stripe is full, or another reader wins the race for a slot, the
+ * read is dropped instead of waiting. Losing some reads only makes the policy's idea of recency a little fuzzy.
+ * <p>
+ * Any number of threads can offer, but only one at a time may drain.
+ */
+final class ReadBuffer<E> {
+    private static final int STRIPES = ceilingPowerOf2(4 * Runtime.getRuntime().availableProcessors());
+    private static final int STRIPE_SIZE = 16;
+
+    private final Stripe<E>[] stripes;
+
+    private static final class Stripe<E> {
+        final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(STRIPE_SIZE);
+        final AtomicLong writes = new AtomicLong();
+        /**
+         * Only written by the drainer.
+         */
+        volatile long reads = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        stripes = (Stripe<E>[]) new Stripe<?>[STRIPES];
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe<>();
+    }
+
+    /**
+     * @return False if the stripe was full, meaning it's time to drain.
+     */
+    boolean offer(E element) {
+        final var stripe = stripes[probe()];
+        final var tail = stripe.writes.get();
+        if (tail - stripe.reads >= STRIPE_SIZE) return false;
+
+        // contended, drop it
+        if (!stripe.writes.compareAndSet(tail, tail + 1)) return true;
+
+        stripe.slots.lazySet((int) (tail & (STRIPE_SIZE - 1)), element);
+        return true;
+    }
+
+    void drain(Consumer<E> consumer) {
+        for (final var stripe : stripes) {
+            var head = stripe.reads;
+            final var tail = stripe.writes.get();
+            while (head < tail) {
+                final var index = (int) (head & (STRIPE_SIZE - 1));
+                final var element = stripe.slots.get(index);
+                // claimed but not written yet
+                if (element == null) break;
+
+                stripe.slots.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+            }
+            stripe.reads = head;
+        }
+    }
+
+    private static int probe() {
+        final var id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    private static int ceilingPowerOf2(int x) {
+        return x <= 1 ? 1 : Integer.highestOneBit(x - 1) << 1;
+    }
+}
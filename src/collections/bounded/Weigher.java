@@ -0,0 +1,19 @@
+package collections.bounded;
+
+/**
+ * How much an entry counts against a {@link BoundedConcurrentHashMap}'s maximum weight.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+    /**
+     * @return The entry's weight. Must not be negative. Entries that weigh 0 are never evicted.
+     */
+    int weigh(K key, V value);
+
+    /**
+     * @return A weigher that counts every entry as 1, which bounds the map by its number of entries.
+     */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+}
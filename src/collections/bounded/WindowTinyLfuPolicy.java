@@ -0,0 +1,120 @@
+package collections.bounded;
+
+/**
+ * New entries go into a window that gets about 1% of the maximum. Entries pushed out of the window move to the
+ * probation part of the main space, and entries used again while on probation are promoted to the protected part,
+ * which gets up to 80% of the main space. Whatever overflows the protected part is demoted back to probation.
+ * <p>
+ * When something has to go, the newest entry on probation (the candidate) is compared against the oldest one (the
+ * victim) by estimated frequency, and the less popular of the two is evicted. That's the admission filter: a new
+ * entry only gets to stay by being used more often than what it would replace.
+ */
+final class WindowTinyLfuPolicy<K, V> extends Policy<K, V> {
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> protectedSpace = new AccessOrderDeque<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private long windowMaximum;
+    private long protectedMaximum;
+    private long windowWeight = 0;
+    private long protectedWeight = 0;
+
+    @Override
+    void setMaximum(long maximum) {
+        windowMaximum = Math.max(1, maximum / 100);
+        protectedMaximum = (maximum - Math.min(maximum, windowMaximum)) / 5 * 4;
+    }
+
+    @Override
+    void link(Node<K, V> node) {
+        if (count() > sketch.capacity()) sketch.ensureCapacity(count() * 2L);
+        sketch.increment(node.key);
+
+        node.queue = WINDOW;
+        window.linkLast(node);
+        windowWeight += node.policyWeight;
+    }
+
+    @Override
+    void access(Node<K, V> node) {
+        sketch.increment(node.key);
+
+        switch (node.queue) {
+            case WINDOW -> window.moveToBack(node);
+            case PROBATION -> {
+                probation.unlink(node);
+                node.queue = PROTECTED;
+                protectedSpace.linkLast(node);
+                protectedWeight += node.policyWeight;
+                demote();
+            }
+            case PROTECTED -> {
+                protectedSpace.moveToBack(node);
+                demote();
+            }
+        }
+    }
+
+    @Override
+    void reweigh(Node<K, V> node, int delta) {
+        switch (node.queue) {
+            case WINDOW -> windowWeight += delta;
+            case PROTECTED -> protectedWeight += delta;
+        }
+    }
+
+    @Override
+    void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> {
+                window.unlink(node);
+                windowWeight -= node.policyWeight;
+            }
+            case PROBATION -> probation.unlink(node);
+            case PROTECTED -> {
+                protectedSpace.unlink(node);
+                protectedWeight -= node.policyWeight;
+            }
+        }
+    }
+
+    @Override
+    Node<K, V> victim() {
+        // whatever overflowed the window is up for admission into the main space
+        while (windowWeight > windowMaximum && !window.isEmpty()) {
+            final var node = window.peekFirst();
+            window.unlink(node);
+            windowWeight -= node.policyWeight;
+            node.queue = PROBATION;
+            probation.linkLast(node);
+        }
+
+        final var victim = probation.peekFirst();
+        final var candidate = probation.peekLast();
+        if (victim == null) {
+            final var oldestProtected = protectedSpace.peekFirst();
+            return oldestProtected != null ? oldestProtected : window.peekFirst();
+        }
+        if (victim == candidate) return victim;
+
+        return sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+    }
+
+    /**
+     * Moves the least recently used protected entries to probation until the protected space fits again.
+     */
+    private void demote() {
+        while (protectedWeight > protectedMaximum && !protectedSpace.isEmpty()) {
+            final var node = protectedSpace.peekFirst();
+            protectedSpace.unlink(node);
+            protectedWeight -= node.policyWeight;
+            node.queue = PROBATION;
+            probation.linkLast(node);
+        }
+    }
+}
@@ -59,6 +59,39 @@ public class NullSafeMap<K, V> implements Map<K, V> {
         return base.put(key, value);
     }
 
+    /**
+     * Atomic if the base map's putIfAbsent is.
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        if (key == null) {
+            synchronized (this) {
+                if (hasNull && nullValue != null) return nullValue;
+                nullValue = value;
+                hasNull = true;
+                return null;
+            }
+        }
+
+        return base.putIfAbsent(key, value);
+    }
+
+    /**
+     * Atomic if the base map's replace is.
+     */
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null) {
+            synchronized (this) {
+                if (!hasNull || !Objects.equals(nullValue, oldValue)) return false;
+                nullValue = newValue;
+                return true;
+            }
+        }
+
+        return base.replace(key, oldValue, newValue);
+    }
+
     @Override
     public V get(Object key) {
         if (key == null) return nullValue;
@@ -132,11 +165,13 @@ public class NullSafeMap<K, V> implements Map<K, V> {
     @Override
     public boolean remove(Object key, Object value) {
         if (key == null) {
-            if (hasNull && Objects.equals(nullValue, value)) {
-                hasNull = false;
-                nullValue = null;
-                return true;
-            } else return false;
+            synchronized (this) {
+                if (hasNull && Objects.equals(nullValue, value)) {
+                    hasNull = false;
+                    nullValue = null;
+                    return true;
+                } else return false;
+            }
         }
         return base.remove(key, value);
     }
@@ -0,0 +1,252 @@
+package collections.decorators;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Like {@link ReadWriteLockedMap}, but get, containsKey, size and isEmpty don't take the read lock unless they have
+ * to. They read the map optimistically and then check that no write happened in the meantime, so readers never write
+ * to shared memory and don't fight over the lock's reader count. If a write did get in the way they try again under
+ * the read lock.
+ * <p>
+ * An optimistic read can run into the map halfway through a write. Whatever it sees is thrown away if the stamp
+ * doesn't validate, and so is any runtime exception it throws, but the wrapped map's lookups still have to finish
+ * when that happens, so the optimistic path is only safe for maps whose lookups always terminate on torn state. A
+ * tree can be caught mid-rotation with its links forming a cycle, so sorted maps (TreeMap and the like) always get
+ * the read lock. HashMap lookups walk bin lists that can't form a cycle, unless a bin has been turned into a tree,
+ * which happens once enough keys in it share a hash. Keys with poor hashCodes belong in a
+ * {@link ReadWriteLockedMap}.
+ * <p>
+ * The lock isn't reentrant, so the keys and values mustn't use this map from their equals or hashCode.
+ */
+public class StampedLockedMap<K, V> implements Map<K, V> {
+    private final Map<K, V> entries;
+    private final StampedLock lock = new StampedLock();
+    /**
+     * Whether reads try without the lock first. Otherwise they start with a stamp of 0, same as when a writer holds
+     * the lock, and go straight to the read lock.
+     */
+    private final boolean optimistic;
+
+    public StampedLockedMap(Map<K, V> original) {
+        entries = original;
+        optimistic = !(original instanceof SortedMap);
+    }
+
+    // ====== reads ======
+
+    @Override
+    public int size() {
+        final var stamp = optimistic ? lock.tryOptimisticRead() : 0;
+        if (stamp != 0) {
+            final var size = entries.size();
+            if (lock.validate(stamp)) return size;
+        }
+
+        final var readStamp = lock.readLock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final var stamp = optimistic ? lock.tryOptimisticRead() : 0;
+        if (stamp != 0) {
+            try {
+                final var contains = entries.containsKey(key);
+                if (lock.validate(stamp)) return contains;
+            } catch (RuntimeException e) {
+                // saw the map mid-write, unless the stamp still validates
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+
+        final var readStamp = lock.readLock();
+        try {
+            return entries.containsKey(key);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        final var stamp = optimistic ? lock.tryOptimisticRead() : 0;
+        if (stamp != 0) {
+            try {
+                final var value = entries.get(key);
+                if (lock.validate(stamp)) return value;
+            } catch (RuntimeException e) {
+                // saw the map mid-write, unless the stamp still validates
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+
+        final var readStamp = lock.readLock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Always takes the read lock, since it goes through the whole map and a write would likely get in the way.
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        final var stamp = lock.readLock();
+        try {
+            return entries.containsValue(value);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return A copy of the entries, taken under the read lock.
+     */
+    List<Entry<K, V>> copyEntries() {
+        final var stamp = lock.readLock();
+        try {
+            final var copy = new ArrayList<Entry<K, V>>(entries.size());
+            for (final var entry : entries.entrySet()) copy.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            return copy;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ====== writes ======
+
+    @Override
+    public V put(K key, V value) {
+        final var stamp = lock.writeLock();
+        try {
+            return entries.put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Atomic.
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        final var stamp = lock.writeLock();
+        try {
+            return entries.putIfAbsent(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Atomic.
+     */
+    @Override
+    public V replace(K key, V value) {
+        final var stamp = lock.writeLock();
+        try {
+            return entries.replace(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Atomic.
+     */
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        final var stamp = lock.writeLock();
+        try {
+            return entries.replace(key, oldValue, newValue);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        final var stamp = lock.writeLock();
+        try {
+            return entries.remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Atomic.
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        final var stamp = lock.writeLock();
+        try {
+            return entries.remove(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+        final var stamp = lock.writeLock();
+        try {
+            entries.putAll(m);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        final var stamp = lock.writeLock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ====== views ======
+
+    /**
+     * The views aren't locked, same as {@link ReadWriteLockedMap}'s.
+     */
+    @NotNull
+    @Override
+    public Set<K> keySet() {
+        return entries.keySet();
+    }
+
+    @NotNull
+    @Override
+    public Collection<V> values() {
+        return entries.values();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return entries.entrySet();
+    }
+}
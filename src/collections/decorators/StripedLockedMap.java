@@ -0,0 +1,175 @@
+package collections.decorators;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Splits the keys between a number of {@link StampedLockedMap}s by hash, so writes to different stripes don't block
+ * each other, or the readers of other stripes.
+ * <p>
+ * size, isEmpty and containsValue go through every stripe one at a time, so they aren't atomic. The entry set's
+ * iterator copies one stripe at a time as it gets to it, and won't throw ConcurrentModificationException.
+ */
+public class StripedLockedMap<K, V> extends AbstractMap<K, V> {
+    private final StampedLockedMap<K, V>[] stripes;
+    private final int mask;
+
+    /**
+     * Backed by HashMaps, with a stripe for every core.
+     */
+    public StripedLockedMap() {
+        this(Runtime.getRuntime().availableProcessors(), HashMap::new);
+    }
+
+    /**
+     * @param stripeCount Rounded up to a power of 2.
+     * @param mapFactory  Builds the map for each stripe.
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLockedMap(int stripeCount, @NotNull Supplier<Map<K, V>> mapFactory) {
+        if (stripeCount < 1 || stripeCount > 1 << 16) throw new IllegalArgumentException("stripeCount out of range");
+        Objects.requireNonNull(mapFactory);
+
+        var size = 1;
+        while (size < stripeCount) size <<= 1;
+        stripes = (StampedLockedMap<K, V>[]) new StampedLockedMap<?, ?>[size];
+        for (int i = 0; i < size; i++) stripes[i] = new StampedLockedMap<>(mapFactory.get());
+        mask = size - 1;
+    }
+
+    private StampedLockedMap<K, V> stripeFor(Object key) {
+        final var hash = Objects.hashCode(key);
+        // the low bits pick the bucket inside each stripe's map, so pick the stripe with the high ones
+        return stripes[(hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 16 & mask];
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    // ====== reads ======
+
+    @Override
+    public V get(Object key) {
+        return stripeFor(key).get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return stripeFor(key).containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (final var stripe : stripes) {
+            if (stripe.containsValue(value)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        var size = 0;
+        for (final var stripe : stripes) size += stripe.size();
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (final var stripe : stripes) {
+            if (!stripe.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    // ====== writes ======
+
+    @Override
+    public V put(K key, V value) {
+        return stripeFor(key).put(key, value);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return stripeFor(key).putIfAbsent(key, value);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return stripeFor(key).replace(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return stripeFor(key).replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return stripeFor(key).remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return stripeFor(key).remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+        for (final var stripe : stripes) stripe.clear();
+    }
+
+    // ====== views ======
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return StripedLockedMap.this.size();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int nextStripe = 0;
+                    private Iterator<Entry<K, V>> entries = Collections.emptyIterator();
+                    private Entry<K, V> current = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!entries.hasNext() && nextStripe < stripes.length) {
+                            entries = stripes[nextStripe++].copyEntries().iterator();
+                        }
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return current = entries.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) throw new IllegalStateException();
+                        StripedLockedMap.this.remove(current.getKey(), current.getValue());
+                        current = null;
+                    }
+                };
+            }
+        };
+    }
+}
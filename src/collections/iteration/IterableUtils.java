@@ -16,7 +16,9 @@ public class IterableUtils {
         T prev = iterator.next();
 
         while (iterator.hasNext()) {
-            if (comparator.compare(prev, iterator.next()) > 0) return false;
+            final var current = iterator.next();
+            if (comparator.compare(prev, current) > 0) return false;
+            prev = current;
         }
 
         return true;
@@ -0,0 +1,17 @@
+package collections.iteration.enumerator;
+
+/**
+ * Enumerator of doubles that doesn't box them.
+ */
+public interface DoubleEnumerator extends Enumerator<Double> {
+    /**
+     * @return The current element.
+     * @throws java.util.NoSuchElementException;
+     */
+    double currentDouble();
+
+    @Override
+    default Double current() {
+        return currentDouble();
+    }
+}
@@ -0,0 +1,17 @@
+package collections.iteration.enumerator;
+
+/**
+ * Enumerator of ints that doesn't box them.
+ */
+public interface IntEnumerator extends Enumerator<Integer> {
+    /**
+     * @return The current element.
+     * @throws java.util.NoSuchElementException;
+     */
+    int currentInt();
+
+    @Override
+    default Integer current() {
+        return currentInt();
+    }
+}
@@ -0,0 +1,17 @@
+package collections.iteration.enumerator;
+
+/**
+ * Enumerator of longs that doesn't box them.
+ */
+public interface LongEnumerator extends Enumerator<Long> {
+    /**
+     * @return The current element.
+     * @throws java.util.NoSuchElementException;
+     */
+    long currentLong();
+
+    @Override
+    default Long current() {
+        return currentLong();
+    }
+}
@@ -0,0 +1,499 @@
+package collections.persistent;
+
+import collections.iteration.enumerator.BiDirectionalEnumerator;
+import org.jetbrains.annotations.NotNull;
+import reference.pointers.Pointer;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Compressed hash-array mapped prefix-tree (CHAMP), the structure behind {@link PersistentSet}.
+ * <p>
+ * Each node covers 5 bits of the hash. Items are stored inline in the node whose bits first tell them apart from
+ * everything else; sub-nodes are only made where items share a prefix. Two bitmaps say which of the 32 positions of
+ * a node hold items and which hold sub-nodes, so the node's array only has to be as long as what it actually holds.
+ * Items whose hashes are completely equal end up together in a collision node.
+ * <p>
+ * Removal keeps the trie in its canonical form: sub-nodes with only one item left are inlined into their parent.
+ * <p>
+ * Changes made as part of an {@link Edit} write into the nodes that same edit already made instead of copying them
+ * again.
+ * <p>
+ * Based on "Optimizing Hash-Array Mapped Tries for Fast and Lean Immutable JVM Collections" by Steindorfer and Vinju.
+ */
+final class ChampTrie {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    /**
+     * Returned by {@link #get} when the item isn't in the trie. Needed because null is a valid item.
+     */
+    static final Object ABSENT = new Object();
+
+    static final Node EMPTY = new BitmapNode(0, 0, EMPTY_ARRAY);
+
+    private ChampTrie() {
+    }
+
+    static int hash(Object item) {
+        return Objects.hashCode(item);
+    }
+
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private static int bit(int mask) {
+        return 1 << mask;
+    }
+
+    // ============================ nodes ===================================
+    interface Node extends java.io.Serializable {
+        int itemCount();
+
+        Object item(int index);
+
+        int nodeCount();
+
+        Node node(int index);
+    }
+
+    private static class BitmapNode implements Node {
+        final int itemMap;
+        final int nodeMap;
+        /**
+         * Items from the front, sub-nodes from the back in reverse order.
+         */
+        @NotNull
+        final Object[] content;
+
+        BitmapNode(int itemMap, int nodeMap, @NotNull Object[] content) {
+            assert (itemMap & nodeMap) == 0;
+            assert content.length == Integer.bitCount(itemMap) + Integer.bitCount(nodeMap);
+            this.itemMap = itemMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @Override
+        public int itemCount() {
+            return Integer.bitCount(itemMap);
+        }
+
+        @Override
+        public Object item(int index) {
+            return content[index];
+        }
+
+        @Override
+        public int nodeCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        public Node node(int index) {
+            return (Node) content[content.length - 1 - index];
+        }
+
+        int itemIndex(int bit) {
+            return Integer.bitCount(itemMap & (bit - 1));
+        }
+
+        int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        BitmapNode withItemReplaced(int bit, Object item, Edit edit) {
+            if (owned(edit, this)) {
+                content[itemIndex(bit)] = item;
+                return this;
+            }
+
+            final var newContent = content.clone();
+            newContent[itemIndex(bit)] = item;
+            return bitmapNode(edit, itemMap, nodeMap, newContent);
+        }
+
+        BitmapNode withItemInserted(int bit, Object item, Edit edit) {
+            final var index = itemIndex(bit);
+            final var newContent = new Object[content.length + 1];
+            System.arraycopy(content, 0, newContent, 0, index);
+            newContent[index] = item;
+            System.arraycopy(content, index, newContent, index + 1, content.length - index);
+            return bitmapNode(edit, itemMap | bit, nodeMap, newContent);
+        }
+
+        BitmapNode withItemRemoved(int bit, Edit edit) {
+            final var index = itemIndex(bit);
+            final var newContent = new Object[content.length - 1];
+            System.arraycopy(content, 0, newContent, 0, index);
+            System.arraycopy(content, index + 1, newContent, index, content.length - index - 1);
+            return bitmapNode(edit, itemMap ^ bit, nodeMap, newContent);
+        }
+
+        BitmapNode withNodeReplaced(int bit, Node node, Edit edit) {
+            if (owned(edit, this)) {
+                content[content.length - 1 - nodeIndex(bit)] = node;
+                return this;
+            }
+
+            final var newContent = content.clone();
+            newContent[content.length - 1 - nodeIndex(bit)] = node;
+            return bitmapNode(edit, itemMap, nodeMap, newContent);
+        }
+
+        /**
+         * Replaces the item at the bit with a node.
+         */
+        BitmapNode withItemPushedDown(int bit, Node node, Edit edit) {
+            final var oldIndex = itemIndex(bit);
+            // the content array after the item is removed, where the node goes
+            final var newIndex = content.length - 1 - nodeIndex(bit);
+
+            final var newContent = new Object[content.length];
+            System.arraycopy(content, 0, newContent, 0, oldIndex);
+            System.arraycopy(content, oldIndex + 1, newContent, oldIndex, newIndex - oldIndex);
+            newContent[newIndex] = node;
+            System.arraycopy(content, newIndex + 1, newContent, newIndex + 1, content.length - newIndex - 1);
+            return bitmapNode(edit, itemMap ^ bit, nodeMap | bit, newContent);
+        }
+
+        /**
+         * Replaces the node at the bit with an item.
+         */
+        BitmapNode withNodePulledUp(int bit, Object item, Edit edit) {
+            final var oldIndex = content.length - 1 - nodeIndex(bit);
+            final var newIndex = itemIndex(bit);
+
+            final var newContent = new Object[content.length];
+            System.arraycopy(content, 0, newContent, 0, newIndex);
+            newContent[newIndex] = item;
+            System.arraycopy(content, newIndex, newContent, newIndex + 1, oldIndex - newIndex);
+            System.arraycopy(content, oldIndex + 1, newContent, oldIndex + 1, content.length - oldIndex - 1);
+            return bitmapNode(edit, itemMap | bit, nodeMap ^ bit, newContent);
+        }
+    }
+
+    /**
+     * Bitmap node made by an edit, which that edit can write into.
+     */
+    private static final class OwnedBitmapNode extends BitmapNode {
+        /**
+         * Not kept through serialization, which is fine since the edit doesn't exist on the other side anyway.
+         */
+        final transient Edit edit;
+
+        OwnedBitmapNode(int itemMap, int nodeMap, @NotNull Object[] content, @NotNull Edit edit) {
+            super(itemMap, nodeMap, content);
+            this.edit = edit;
+        }
+    }
+
+    private static BitmapNode bitmapNode(Edit edit, int itemMap, int nodeMap, Object[] content) {
+        if (edit == null) return new BitmapNode(itemMap, nodeMap, content);
+        return new OwnedBitmapNode(itemMap, nodeMap, content, edit);
+    }
+
+    private static boolean owned(Edit edit, Node node) {
+        return edit != null && node instanceof OwnedBitmapNode owned && owned.edit == edit;
+    }
+
+    private static final class CollisionNode implements Node {
+        final int hash;
+        @NotNull
+        final Object[] items;
+
+        CollisionNode(int hash, @NotNull Object[] items) {
+            assert items.length >= 2;
+            this.hash = hash;
+            this.items = items;
+        }
+
+        @Override
+        public int itemCount() {
+            return items.length;
+        }
+
+        @Override
+        public Object item(int index) {
+            return items[index];
+        }
+
+        @Override
+        public int nodeCount() {
+            return 0;
+        }
+
+        @Override
+        public Node node(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    // ============================ operations ===================================
+
+    /**
+     * @return The item in the trie equal to the given item or {@link #ABSENT} if there isn't one.
+     */
+    static Object get(Node node, Object item, int hash) {
+        int shift = 0;
+        while (node instanceof BitmapNode bitmapNode) {
+            final var bit = bit(mask(hash, shift));
+            if ((bitmapNode.itemMap & bit) != 0) {
+                final var existing = bitmapNode.content[bitmapNode.itemIndex(bit)];
+                return Objects.equals(existing, item) ? existing : ABSENT;
+            } else if ((bitmapNode.nodeMap & bit) != 0) {
+                node = bitmapNode.node(bitmapNode.nodeIndex(bit));
+                shift += BITS;
+            } else return ABSENT;
+        }
+
+        final var collisionNode = (CollisionNode) node;
+        if (collisionNode.hash != hash) return ABSENT;
+        for (final var existing : collisionNode.items) {
+            if (Objects.equals(existing, item)) return existing;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * @param out_added Set to whether the item was added, as opposed to replacing an equal item.
+     * @return A copy of the trie with the item in it. Items equal to it are replaced. If the same instance is already
+     * in the trie, the trie itself is returned.
+     */
+    static Node with(Node node, Object item, int hash, int shift, Pointer<Boolean> out_added) {
+        return with(node, item, hash, shift, out_added, null);
+    }
+
+    /**
+     * @param edit Null outside of an edit. Inside of one, the result can be the given node changed in place.
+     */
+    static Node with(Node node, Object item, int hash, int shift, Pointer<Boolean> out_added, Edit edit) {
+        if (node instanceof BitmapNode bitmapNode) {
+            final var bit = bit(mask(hash, shift));
+
+            if ((bitmapNode.itemMap & bit) != 0) {
+                final var existing = bitmapNode.content[bitmapNode.itemIndex(bit)];
+                if (Objects.equals(existing, item)) {
+                    out_added.current = false;
+                    if (existing == item) return node;
+                    return bitmapNode.withItemReplaced(bit, item, edit);
+                } else {
+                    out_added.current = true;
+                    return bitmapNode.withItemPushedDown(
+                            bit,
+                            merged(existing, hash(existing), item, hash, shift + BITS, edit),
+                            edit);
+                }
+            } else if ((bitmapNode.nodeMap & bit) != 0) {
+                final var child = bitmapNode.node(bitmapNode.nodeIndex(bit));
+                final var newChild = with(child, item, hash, shift + BITS, out_added, edit);
+                if (newChild == child) return node;
+                return bitmapNode.withNodeReplaced(bit, newChild, edit);
+            } else {
+                out_added.current = true;
+                return bitmapNode.withItemInserted(bit, item, edit);
+            }
+        } else {
+            final var collisionNode = (CollisionNode) node;
+            assert collisionNode.hash == hash;
+            final var items = collisionNode.items;
+
+            for (int i = 0; i < items.length; i++) {
+                if (Objects.equals(items[i], item)) {
+                    out_added.current = false;
+                    if (items[i] == item) return node;
+
+                    final var newItems = items.clone();
+                    newItems[i] = item;
+                    return new CollisionNode(hash, newItems);
+                }
+            }
+
+            out_added.current = true;
+            final var newItems = new Object[items.length + 1];
+            System.arraycopy(items, 0, newItems, 0, items.length);
+            newItems[items.length] = item;
+            return new CollisionNode(hash, newItems);
+        }
+    }
+
+    /**
+     * @return A node containing both items, which are not equal.
+     */
+    private static Node merged(Object a, int aHash, Object b, int bHash, int shift, Edit edit) {
+        if (shift >= Integer.SIZE) {
+            assert aHash == bHash;
+            return new CollisionNode(aHash, new Object[]{a, b});
+        }
+
+        final var aMask = mask(aHash, shift);
+        final var bMask = mask(bHash, shift);
+
+        if (aMask != bMask) {
+            return bitmapNode(
+                    edit,
+                    bit(aMask) | bit(bMask),
+                    0,
+                    aMask < bMask ? new Object[]{a, b} : new Object[]{b, a});
+        } else {
+            return bitmapNode(
+                    edit,
+                    0,
+                    bit(aMask),
+                    new Object[]{merged(a, aHash, b, bHash, shift + BITS, edit)});
+        }
+    }
+
+    /**
+     * @return A copy of the trie without the item, or the trie itself if the item isn't in it.
+     */
+    static Node without(Node node, Object item, int hash, int shift) {
+        return without(node, item, hash, shift, null);
+    }
+
+    /**
+     * @param edit Null outside of an edit. Inside of one, the result can be the given node changed in place, so
+     *             whether the item was there has to be checked beforehand.
+     */
+    static Node without(Node node, Object item, int hash, int shift, Edit edit) {
+        if (node instanceof BitmapNode bitmapNode) {
+            final var bit = bit(mask(hash, shift));
+
+            if ((bitmapNode.itemMap & bit) != 0) {
+                final var index = bitmapNode.itemIndex(bit);
+                if (!Objects.equals(bitmapNode.content[index], item)) return node;
+
+                if (shift > 0 && bitmapNode.content.length == 2 && bitmapNode.nodeMap == 0) {
+                    // The one item left will be inlined by the parent.
+                    // It's still given the right bit for the root level, in case it gets passed all the way up.
+                    final var remaining = bitmapNode.content[1 - index];
+                    return bitmapNode(edit, bit(mask(hash(remaining), 0)), 0, new Object[]{remaining});
+                }
+                return bitmapNode.withItemRemoved(bit, edit);
+            } else if ((bitmapNode.nodeMap & bit) != 0) {
+                final var child = bitmapNode.node(bitmapNode.nodeIndex(bit));
+                final var newChild = without(child, item, hash, shift + BITS, edit);
+                if (newChild == child) return node;
+
+                if (newChild.nodeCount() == 0 && newChild.itemCount() == 1) {
+                    if (bitmapNode.content.length == 1) {
+                        // this node only held the child, so pass the item up
+                        return newChild;
+                    } else {
+                        return bitmapNode.withNodePulledUp(bit, newChild.item(0), edit);
+                    }
+                }
+                return bitmapNode.withNodeReplaced(bit, newChild, edit);
+            } else return node;
+        } else {
+            final var collisionNode = (CollisionNode) node;
+            final var items = collisionNode.items;
+
+            for (int i = 0; i < items.length; i++) {
+                if (Objects.equals(items[i], item)) {
+                    if (items.length == 2) {
+                        final var remaining = items[1 - i];
+                        return bitmapNode(edit, bit(mask(hash, 0)), 0, new Object[]{remaining});
+                    }
+                    final var newItems = new Object[items.length - 1];
+                    System.arraycopy(items, 0, newItems, 0, i);
+                    System.arraycopy(items, i + 1, newItems, i, items.length - i - 1);
+                    return new CollisionNode(hash, newItems);
+                }
+            }
+            return node;
+        }
+    }
+
+    // ============================ edits ===================================
+
+    /**
+     * A batch of changes. Bitmap nodes made during the batch remember it, and later changes in the same batch write
+     * into them instead of copying them again. Nothing outside of the batch can see those nodes until it's done, and
+     * nodes from before the batch are copied as usual, so this is safe as long as the batch isn't used after its trie
+     * has been handed out.
+     * <p>
+     * Only the nodes made by a batch carry the extra field, so other tries don't get any bigger.
+     */
+    static final class Edit {
+    }
+
+    // ============================ iteration ===================================
+
+    /**
+     * Walks the items of a trie: the items of each node, then the items of its sub-nodes.
+     */
+    static final class ItemEnumerator implements BiDirectionalEnumerator<Object> {
+        // 7 bitmap levels for 32 bits of hash plus a collision node
+        private static final int MAX_DEPTH = (Integer.SIZE + BITS - 1) / BITS + 1;
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        /**
+         * Position within each node on the path. Items come first, then sub-nodes.
+         */
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth = 0;
+
+        ItemEnumerator(@NotNull Node root, boolean startAtEnd) {
+            nodes[0] = root;
+            positions[0] = startAtEnd ? slotCount(root) : -1;
+        }
+
+        private static int slotCount(Node node) {
+            return node.itemCount() + node.nodeCount();
+        }
+
+        @Override
+        public boolean moveNext() {
+            while (true) {
+                final var node = nodes[depth];
+                final var position = ++positions[depth];
+
+                if (position < node.itemCount()) {
+                    return true;
+                } else if (position < slotCount(node)) {
+                    depth++;
+                    nodes[depth] = node.node(position - node.itemCount());
+                    positions[depth] = -1;
+                } else if (depth > 0) {
+                    nodes[depth--] = null;
+                } else {
+                    positions[0] = slotCount(node);
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public boolean movePrevious() {
+            while (true) {
+                final var node = nodes[depth];
+                final var position = --positions[depth];
+
+                if (position >= node.itemCount()) {
+                    depth++;
+                    nodes[depth] = node.node(position - node.itemCount());
+                    positions[depth] = slotCount(nodes[depth]);
+                } else if (position >= 0) {
+                    return true;
+                } else if (depth > 0) {
+                    nodes[depth--] = null;
+                } else {
+                    positions[0] = -1;
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public Object current() {
+            final var node = nodes[depth];
+            final var position = positions[depth];
+            if (position < 0 || position >= node.itemCount()) throw new NoSuchElementException();
+            return node.item(position);
+        }
+    }
+}
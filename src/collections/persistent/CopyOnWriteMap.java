@@ -0,0 +1,221 @@
+package collections.persistent;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent map for data that's read far more often than it's written, like configuration or routing tables. It
+ * holds a {@link PersistentMap} and swaps in a new version on every write, so reads are a volatile load and a lookup
+ * in whatever version is current, without any locking. {@link #snapshot()} hands that version out in O(1).
+ * <p>
+ * Writes retry until they win the swap, so they get slower the more of them happen at once. Use {@link #update} to
+ * make a lot of changes in one go.
+ * <p>
+ * Null keys and values aren't allowed.
+ */
+public class CopyOnWriteMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    private final AtomicReference<PersistentMap<K, V>> current;
+
+    public CopyOnWriteMap() {
+        this(new PersistentMap<>());
+    }
+
+    /**
+     * @param initial Can't have null keys or values.
+     */
+    public CopyOnWriteMap(@NotNull PersistentMap<K, V> initial) {
+        current = new AtomicReference<>(Objects.requireNonNull(initial));
+    }
+
+    /**
+     * @return The map as it is right now. Later writes don't change it.
+     */
+    public PersistentMap<K, V> snapshot() {
+        return current.get();
+    }
+
+    // ====== reads ======
+
+    @Override
+    public V get(Object key) {
+        return current.get().get(Objects.requireNonNull(key));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return current.get().containsKey(Objects.requireNonNull(key));
+    }
+
+    @Override
+    public int size() {
+        return current.get().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return current.get().isEmpty();
+    }
+
+    // ====== writes ======
+
+    @Override
+    public V put(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        while (true) {
+            final var version = current.get();
+            if (current.compareAndSet(version, version.with(key, value))) return version.get(key);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        while (true) {
+            final var version = current.get();
+            final var existing = version.get(key);
+            if (existing != null) return existing;
+            if (current.compareAndSet(version, version.with(key, value))) return null;
+        }
+    }
+
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        while (true) {
+            final var version = current.get();
+            final var existing = version.get(key);
+            if (existing == null) return null;
+            if (current.compareAndSet(version, version.with(key, value))) return existing;
+        }
+    }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        while (true) {
+            final var version = current.get();
+            if (!oldValue.equals(version.get(key))) return false;
+            if (current.compareAndSet(version, version.with(key, newValue))) return true;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Objects.requireNonNull(key);
+        while (true) {
+            final var version = current.get();
+            final var existing = version.get(key);
+            if (existing == null) return null;
+            if (current.compareAndSet(version, version.without((K) key))) return existing;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(@NotNull Object key, Object value) {
+        Objects.requireNonNull(key);
+        if (value == null) return false;
+        while (true) {
+            final var version = current.get();
+            if (!value.equals(version.get(key))) return false;
+            if (current.compareAndSet(version, version.without((K) key))) return true;
+        }
+    }
+
+    /**
+     * All at once, as one new version.
+     */
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+        for (final var entry : m.entrySet()) {
+            Objects.requireNonNull(entry.getKey());
+            Objects.requireNonNull(entry.getValue());
+        }
+
+        update(batch -> {
+            for (final var entry : m.entrySet()) batch.with(entry.getKey(), entry.getValue());
+        });
+    }
+
+    @Override
+    public void clear() {
+        current.set(new PersistentMap<>());
+    }
+
+    /**
+     * Makes a batch of changes to the map as one new version. The changes go through a
+     * {@link PersistentMap.Transient}, so nodes aren't copied again for every change that passes through them.
+     * <p>
+     * If another write gets in first the batch is thrown away and run again on the newer version, so it shouldn't
+     * have side effects. It mustn't put null keys or values in the map.
+     *
+     * @return The new version.
+     */
+    public PersistentMap<K, V> update(@NotNull Consumer<? super PersistentMap.Transient<K, V>> batch) {
+        Objects.requireNonNull(batch);
+        while (true) {
+            final var version = current.get();
+            final var changes = version.asTransient();
+            batch.accept(changes);
+            final var next = changes.persistent();
+            if (current.compareAndSet(version, next)) return next;
+        }
+    }
+
+    // ====== views ======
+
+    /**
+     * Iterates over the version that was current when the iterator was made.
+     */
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return CopyOnWriteMap.this.size();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                final var entries = current.get().entrySet().iterator();
+                return new Iterator<>() {
+                    private Entry<K, V> last = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        return last = entries.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        CopyOnWriteMap.this.remove(last.getKey(), last.getValue());
+                        last = null;
+                    }
+                };
+            }
+        };
+    }
+}
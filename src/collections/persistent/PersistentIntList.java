@@ -0,0 +1,580 @@
+package collections.persistent;
+
+import collections.ArrayUtils;
+import collections.iteration.enumerator.IntEnumerator;
+import collections.iteration.enumerator.IndexedBiDirectionalEnumerator;
+import collections.persistent.RrbTree.Branch;
+import collections.persistent.RrbTree.Leaf;
+import collections.persistent.RrbTree.Node;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable list of ints that supports efficient copying with modification.
+ * Works like {@link PersistentList}, but the items are kept unboxed in int[] leaves.
+ */
+public class PersistentIntList implements Iterable<Integer>, java.io.Serializable {
+    @NotNull
+    private static final int[] EMPTY_ARRAY = new int[0];
+    @NotNull
+    private static final Leaf EMPTY_LEAF = new Leaf(EMPTY_ARRAY);
+    private static final int PARTITION_SIZE = RrbTree.BRANCHING;
+
+    @NotNull
+    private final Node root;
+
+    private PersistentIntList(@NotNull Node root) {
+        this.root = root;
+    }
+
+    public PersistentIntList() {
+        root = EMPTY_LEAF;
+    }
+
+    public PersistentIntList(int[] items) {
+        root = new Builder().addAll(items).buildNode();
+    }
+
+    public PersistentIntList(IntStream itemStream) {
+        root = new Builder().addAll(itemStream).buildNode();
+    }
+
+    // factories
+    public static PersistentIntList of(int... items) {
+        return new PersistentIntList(items);
+    }
+
+    public static PersistentIntList generate(IntUnaryOperator itemGenerator, int length) {
+        final var builder = new Builder();
+        for (int i = 0; i < length; i++) {
+            builder.add(itemGenerator.applyAsInt(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return A new, empty builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return A new builder that starts with the items in this list.
+     */
+    public Builder asTransient() {
+        return new Builder(root);
+    }
+
+    // interface compliance
+    public int size() {
+        return root.itemCount();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return new ItemSpliterator(root);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    public IntStream stream(boolean parallel) {
+        return StreamSupport.intStream(spliterator(), parallel);
+    }
+
+    public IntStream stream() {
+        return stream(false);
+    }
+
+    public SelfEnumerator enumerator() {
+        return enumerator(-1);
+    }
+
+    public SelfEnumerator enumerator(boolean startAtEnd) {
+        return enumerator(startAtEnd ? size() : -1);
+    }
+
+    /**
+     * @param index Where to start. The first call to moveNext moves to the item after this index.
+     */
+    public SelfEnumerator enumerator(int index) {
+        ArrayUtils.requireIndexInBounds(-1, index, size() + 1);
+        return new SelfEnumerator(root, index);
+    }
+
+    /**
+     * @return A new array with the items in the list.
+     */
+    public int[] toArray() {
+        final var result = new int[size()];
+        copyInto(root, result, 0);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PersistentIntList other)) return false;
+        if (size() != other.size()) return false;
+
+        final var enu = enumerator();
+        final var otherEnu = other.enumerator();
+        while (enu.moveNext() && otherEnu.moveNext()) {
+            if (Integer.compare(enu.currentInt(), otherEnu.currentInt()) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The same hash code a {@link List} of the boxed items would have.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        final var enu = enumerator();
+        while (enu.moveNext()) {
+            hash = 31 * hash + Integer.hashCode(enu.currentInt());
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final var builder = new StringBuilder("[");
+        final var enu = enumerator();
+        if (enu.moveNext()) builder.append(enu.currentInt());
+        while (enu.moveNext()) {
+            builder.append(", ");
+            builder.append(enu.currentInt());
+        }
+        return builder.append("]").toString();
+    }
+
+    // =================== list operations, single item =======================
+    // extract
+
+    /**
+     * Gets the item at the index.
+     *
+     * @param index The index of the item to get.
+     * @return The item at the index.
+     */
+    public int get(int index) {
+        ArrayUtils.requireIndexInBounds(index, size());
+        Node node = root;
+        while (node instanceof Branch branch) {
+            final var slot = branch.slotOf(index);
+            index -= branch.offsetOf(slot);
+            node = branch.children[slot];
+        }
+        return ((int[]) ((Leaf) node).items)[index];
+    }
+
+    // replace
+
+    /**
+     * Replaces the item at the index with the given item.
+     *
+     * @param index The index of the item to replace.
+     * @param item  The new item with which to replace the old one.
+     * @return A new list with the item replaced.
+     */
+    public PersistentIntList swap(int index, int item) {
+        ArrayUtils.requireIndexInBounds(index, size());
+        return new PersistentIntList(RrbTree.updated(root, index, (items, i) -> {
+            final var newItems = ((int[]) items).clone();
+            newItems[i] = item;
+            return newItems;
+        }));
+    }
+
+    // insert
+
+    /**
+     * Inserts the item at the index.
+     *
+     * @param index Where to insert the item.
+     * @param item  the item to insert.
+     * @return A new list with the item inserted.
+     */
+    public PersistentIntList insertSingle(int index, int item) {
+        ArrayUtils.requireIndexInBounds(index, size() + 1);
+        return new PersistentIntList(insert(index, new Leaf(new int[]{item}), root));
+    }
+
+    // remove
+
+    /**
+     * Removes the item at the index from the list.
+     *
+     * @param index The index of the item to remove.
+     * @return A new list without the item at the index.
+     */
+    public PersistentIntList without(int index) {
+        ArrayUtils.requireIndexInBounds(index, size());
+        return new PersistentIntList(remove(index, index + 1, root));
+    }
+
+    // ================= list operations, multi item ==========================
+    // extract
+
+    /**
+     * Gets a range of items from the list.
+     *
+     * @param start  The index of the first item to get.
+     * @param length How many items to get.
+     * @return A new list containing the range of items.
+     */
+    public PersistentIntList get(int start, int length) {
+        ArrayUtils.requireRangeInBounds(start, length, size());
+        return new PersistentIntList(slice(root, start, start + length));
+    }
+
+    // insert
+
+    /**
+     * Inserts a collection of items into the list.
+     *
+     * @param index Where to insert the items.
+     * @param items The items to insert.
+     * @return A new list with the inserted items.
+     */
+    public PersistentIntList insert(int index, int[] items) {
+        ArrayUtils.requireIndexInBounds(index, size() + 1);
+        if (items.length == 0) return this;
+        return new PersistentIntList(insert(index, new Builder().addAll(items).buildNode(), root));
+    }
+
+    /**
+     * Inserts a collection of items into the list.
+     *
+     * @param index Where to insert the items.
+     * @param items The items to insert.
+     * @return A new list with the inserted items.
+     */
+    public PersistentIntList insert(int index, PersistentIntList items) {
+        ArrayUtils.requireIndexInBounds(index, size() + 1);
+        if (items.size() == 0) return this;
+        return new PersistentIntList(insert(index, items.root, root));
+    }
+
+    // remove
+
+    /**
+     * Removes a range of items from the list.
+     *
+     * @param start  The index of the first item to remove.
+     * @param length How many items to remove in sequence.
+     * @return A new list with the range removed.
+     */
+    public PersistentIntList without(int start, int length) {
+        ArrayUtils.requireRangeInBounds(start, length, size());
+        return new PersistentIntList(remove(start, start + length, root));
+    }
+
+    // ======================== misc list operations, single and multi item =================================
+
+    /**
+     * Put item onto end of list.
+     *
+     * @return A new list with the item added onto the end.
+     */
+    public PersistentIntList put(int item) {
+        return insertSingle(size(), item);
+    }
+
+    /**
+     * Removes the last item.
+     *
+     * @return A new list without the last item.
+     */
+    public PersistentIntList pop() {
+        if (size() == 0) return this;
+        return without(size() - 1);
+    }
+
+    /**
+     * Adds the items to the end of the list.
+     *
+     * @param items The items to add.
+     * @return A new list with the items added to the end.
+     */
+    public PersistentIntList concat(int[] items) {
+        return insert(size(), items);
+    }
+
+    /**
+     * Adds the items to the end of the list.
+     *
+     * @param items The items to add.
+     * @return A new list with the items added to the end.
+     */
+    public PersistentIntList concat(PersistentIntList items) {
+        if (items.size() == 0) return this;
+        if (size() == 0) return items;
+        return new PersistentIntList(concat(root, items.root));
+    }
+
+    /**
+     * Repeats the list a number of times. The copies share structure, so this takes O(log(times)) concatenations.
+     *
+     * @param times How many times to repeat the list. If negative, the list is reversed and then repeated.
+     * @return A new list with the items of this list repeated.
+     */
+    public PersistentIntList repeat(int times) {
+        if (times < 0) return reverse().repeat(-times);
+        if (times == 0 || size() == 0) return new PersistentIntList();
+        // throws if the result would be too big
+        Math.multiplyExact(size(), times);
+
+        Node result = EMPTY_LEAF;
+        Node doubled = root;
+        while (true) {
+            if ((times & 1) != 0) result = concat(result, doubled);
+            times >>>= 1;
+            if (times == 0) break;
+            doubled = concat(doubled, doubled);
+        }
+        return new PersistentIntList(result);
+    }
+
+    /**
+     * Reverses the list.
+     *
+     * @return A new list with the items in this list in reverse order.
+     */
+    public PersistentIntList reverse() {
+        final var builder = new Builder();
+        final var enu = enumerator(true);
+        while (enu.movePrevious()) {
+            builder.add(enu.currentInt());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sorts the list in ascending order.
+     *
+     * @return A new list that has been sorted.
+     */
+    public PersistentIntList sorted() {
+        final var items = toArray();
+        Arrays.parallelSort(items);
+        return new PersistentIntList(items);
+    }
+
+    // ============================== private utilities =================================
+    private static Node slice(Node node, int start, int end) {
+        if (start == end) return EMPTY_LEAF;
+        return RrbTree.slice(node, start, end);
+    }
+
+    private static Node concat(Node a, Node b) {
+        final var result = RrbTree.concat(a, b);
+        return result.itemCount() == 0 ? EMPTY_LEAF : result;
+    }
+
+    private static Node insert(int index, Node items, Node root) {
+        return concat(
+                concat(slice(root, 0, index), items),
+                slice(root, index, root.itemCount()));
+    }
+
+    private static Node remove(int start, int end, Node root) {
+        return concat(slice(root, 0, start), slice(root, end, root.itemCount()));
+    }
+
+    private static int copyInto(Node node, int[] destination, int offset) {
+        if (node instanceof Branch branch) {
+            for (final var child : branch.children) {
+                offset = copyInto(child, destination, offset);
+            }
+            return offset;
+        } else {
+            final var leaf = (Leaf) node;
+            System.arraycopy(leaf.items, 0, destination, offset, leaf.itemCount);
+            return offset + leaf.itemCount;
+        }
+    }
+
+    // ========================= builder ====================================
+
+    /**
+     * Mutable builder for {@link PersistentIntList}. Appending is amortized constant time.
+     * <strong>Not thread-safe.</strong>
+     */
+    public static class Builder {
+        @NotNull
+        private final Node prefix;
+        @NotNull
+        private final ArrayList<int[]> partitions = new ArrayList<>();
+        @NotNull
+        private int[] tail = new int[PARTITION_SIZE];
+        private int tailSize = 0;
+
+        private Builder(@NotNull Node prefix) {
+            this.prefix = prefix;
+        }
+
+        private Builder() {
+            this(EMPTY_LEAF);
+        }
+
+        /**
+         * @return How many items are in the list being built.
+         */
+        public int size() {
+            return prefix.itemCount() + partitions.size() * PARTITION_SIZE + tailSize;
+        }
+
+        /**
+         * Appends the item to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder add(int item) {
+            tail[tailSize++] = item;
+            if (tailSize == PARTITION_SIZE) {
+                partitions.add(tail);
+                tail = new int[PARTITION_SIZE];
+                tailSize = 0;
+            }
+            return this;
+        }
+
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder addAll(int[] items) {
+            for (final var item : items) add(item);
+            return this;
+        }
+
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder addAll(PrimitiveIterator.OfInt items) {
+            while (items.hasNext()) add(items.nextInt());
+            return this;
+        }
+
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder addAll(IntStream items) {
+            return addAll(items.iterator());
+        }
+
+        /**
+         * Seals the items added so far into a persistent list. The builder can still be used afterwards;
+         * later additions do not affect lists that have already been built.
+         *
+         * @return A new list with the items added to this builder.
+         */
+        public PersistentIntList build() {
+            return new PersistentIntList(buildNode());
+        }
+
+        private Node buildNode() {
+            final List<int[]> sealed;
+            if (tailSize == 0) {
+                sealed = partitions;
+            } else {
+                sealed = new ArrayList<>(partitions.size() + 1);
+                sealed.addAll(partitions);
+                // the tail is still owned by this builder, so the list gets a copy
+                sealed.add(Arrays.copyOf(tail, tailSize));
+            }
+
+            if (sealed.isEmpty()) return prefix;
+            return concat(prefix, RrbTree.fromLeaves(sealed));
+        }
+    }
+
+    // ========================= inner classes ====================================
+    public static class SelfEnumerator implements IndexedBiDirectionalEnumerator<Integer>, IntEnumerator {
+        private final RrbTree.Cursor cursor;
+
+        private SelfEnumerator(Node root, int index) {
+            cursor = new RrbTree.Cursor(root, index);
+        }
+
+        @Override
+        public boolean moveNext() {
+            return cursor.moveNext();
+        }
+
+        @Override
+        public boolean movePrevious() {
+            return cursor.movePrevious();
+        }
+
+        @Override
+        public int currentInt() {
+            if (!cursor.inBounds()) throw new NoSuchElementException();
+            return ((int[]) cursor.items())[cursor.indexInLeaf()];
+        }
+
+        @Override
+        public Integer current() {
+            return currentInt();
+        }
+
+        @Override
+        public int currentIndex() {
+            return cursor.index();
+        }
+    }
+
+    private static class ItemSpliterator extends RrbTree.LeafSpliterator<ItemSpliterator> implements Spliterator.OfInt {
+        public ItemSpliterator(Node root) {
+            super(root);
+        }
+
+        private ItemSpliterator(Object items, int index, int end, ArrayDeque<Node> pending, long remaining) {
+            super(items, index, end, pending, remaining);
+        }
+
+        @Override
+        protected ItemSpliterator split(Object items, int index, int end, ArrayDeque<Node> pending, long remaining) {
+            return new ItemSpliterator(items, index, end, pending, remaining);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            Objects.requireNonNull(action);
+            if (!claimNext()) return false;
+            action.accept(((int[]) items)[index++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            forEachRemainingLeaf((items, start, end) -> {
+                final var array = (int[]) items;
+                for (int i = start; i < end; i++) {
+                    action.accept(array[i]);
+                }
+            });
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package collections.persistent;
 
-import collections.ArrayStack;
 import collections.ArrayUtils;
 import collections.adapters.ArrayAsList;
 import collections.iteration.IterableUtils;
@@ -9,10 +8,11 @@ import collections.iteration.adapters.ArrayIterator;
 import collections.iteration.adapters.EnumeratorIterator;
 import collections.iteration.adapters.ListEnumeratorIterator;
 import collections.iteration.adapters.ReversedEnumeratorIterator;
-import collections.iteration.enumerable.Enumerable;
 import collections.iteration.enumerable.IndexedBiDirectionalEnumerable;
-import collections.iteration.enumerator.Enumerator;
 import collections.iteration.enumerator.IndexedBiDirectionalEnumerator;
+import collections.persistent.RrbTree.Branch;
+import collections.persistent.RrbTree.Leaf;
+import collections.persistent.RrbTree.Node;
 import collections.records.ListRecord;
 import errors.ImpossibleStateException;
 import memoization.pure.function.SoftMemoizedFunction;
@@ -23,16 +23,16 @@ import reference.pointers.Pointer;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
-// Honestly not the best implementation of a persistent list, but very flexible and my first try.
-
 /**
  * Immutable list that supports efficient copying with modification.
  * Basic operations have logarithmic complexity in time and space.
+ * Backed by a relaxed radix balanced tree, so indexing, slicing and concatenation are all O(log<sub>32</sub> n).
  *
  * @param <T>
  */
@@ -77,7 +77,10 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
     }
 
     public PersistentList(T[] items) {
-        root = fromPartitions(new ArrayAsList<>(ArrayUtils.partition(items, PARTITION_SIZE)));
+        // partition hands back a short array as is, so copy it into an Object[] first: the caller might change it
+        // later, or it might be a String[] passed in as a T[] that would reject anything else put into the leaf
+        final Object[] array = items.length <= PARTITION_SIZE ? Arrays.copyOf(items, items.length, Object[].class) : items;
+        root = fromPartitions(new ArrayAsList<>(ArrayUtils.partition(array, PARTITION_SIZE)));
     }
 
     // factories
@@ -90,11 +93,26 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
         return new PersistentList<>(fromGenerator(itemGenerator, length));
     }
 
+    /**
+     * @return A new, empty builder.
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return A new builder that starts with the items in this list.
+     */
+    public Builder<T> asTransient() {
+        return new Builder<>(root);
+    }
+
     // interface compliance
-    // TODO write custom forking spliterator
     @Override
+    @SuppressWarnings("unchecked")
     public Spliterator<T> spliterator() {
-        return Spliterators.spliterator(this, Spliterator.IMMUTABLE);
+        // the items are all Ts, the spliterator just doesn't know it
+        return (Spliterator<T>) new ItemSpliterator(root);
     }
 
     @Override
@@ -668,10 +686,19 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
      * @return A new list with the items of this list repeated.
      */
     public PersistentList<T> repeat(int times) {
-        return memoRepeat.apply(times);
+        var memo = memoRepeat;
+        if (memo == null) {
+            // made on first use, since most lists are never repeated and every change makes a new list. Two threads
+            // racing here only means one of the memos gets thrown away.
+            memo = new SoftMemoizedFunction<>(this::repeatUncached);
+            memoRepeat = memo;
+        }
+        return memo.apply(times);
     }
 
-    private final Function<Integer, PersistentList<T>> memoRepeat = new SoftMemoizedFunction<>((Integer times) -> {
+    private transient volatile Function<Integer, PersistentList<T>> memoRepeat = null;
+
+    private PersistentList<T> repeatUncached(Integer times) {
         // Cannot be less than 2 or it'll cause infinite recursion and a stack overflow.
         final int breakingDenominator = Math.max(2, size() < PARTITION_SIZE ? PARTITION_SIZE / size() : PARTITION_SIZE);
 
@@ -695,226 +722,72 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
         final var repeatedByRemainder = this.repeat(remainder);
 
         return repeatedByQuotient.repeat(breakingDenominator).concat(repeatedByRemainder);
-    });
+    }
 
     // ============================== private utilities =================================
+    private static Object[] itemsOf(Leaf leaf) {
+        return (Object[]) leaf.items;
+    }
+
     private static Object get(int index, Node root) {
-        if (root instanceof Branch branch) {
-            if (index < branch.left.itemCount()) {
-                return get(index, branch.left);
-            } else {
-                return get(index - branch.left.itemCount(), branch.right);
-            }
-        } else if (root instanceof Leaf leaf) {
-            return leaf.items[index];
-        } else throw new ImpossibleStateException();
+        Node node = root;
+        while (node instanceof Branch branch) {
+            final var slot = branch.slotOf(index);
+            index -= branch.offsetOf(slot);
+            node = branch.children[slot];
+        }
+        return itemsOf((Leaf) node)[index];
     }
 
     private static Node get(int start, int end, Node node) {
-        if (node instanceof Branch branch) {
-            final var left = branch.left;
-            final var right = branch.right;
-
-            if (start < left.itemCount()) {
-                if (end <= left.itemCount()) {
-                    return cleaned(get(start, end, left));
-                } else {
-                    return cleaned(new Branch(
-                            get(start, left.itemCount(), left),
-                            get(0, end - left.itemCount(), right)));
-                }
-            } else {
-                return cleaned(get(
-                        start - left.itemCount(),
-                        end - left.itemCount(), right));
-            }
-        } else if (node instanceof Leaf leaf) {
-            return new Leaf(ArrayUtils.get(leaf.items, start, end - start));
-        } else throw new ImpossibleStateException();
+        if (start == end) return EMPTY_LEAF;
+        return RrbTree.slice(node, start, end);
     }
 
     private static Node set(int index, Object item, Node root) {
-        if (root instanceof Branch branch) {
-            if (index < branch.left.itemCount()) {
-                return cleaned(new Branch(
-                        set(index, item, branch.left),
-                        branch.right));
-            } else {
-                return cleaned(new Branch(
-                        branch.left,
-                        set(index - branch.left.itemCount(), item, branch.right)));
-            }
-        } else if (root instanceof Leaf leaf) {
-            return new Leaf(ArrayUtils.set(leaf.items, index, item));
-        } else throw new ImpossibleStateException();
+        return RrbTree.updated(root, index, (items, i) -> ArrayUtils.set((Object[]) items, i, item));
     }
 
     private static Node replace(int index, Iterator<?> itemIterator, Node root) {
-        if (!itemIterator.hasNext()) return root;
+        final var replacement = new Builder<>();
+        int end = index;
+        while (end < root.itemCount() && itemIterator.hasNext()) {
+            replacement.add(itemIterator.next());
+            end++;
+        }
+        if (end == index) return root;
 
-        if (root instanceof Branch branch) {
-            if (index < branch.left.itemCount()) {
-                return cleaned(new Branch(
-                        replace(index, itemIterator, branch.left),
-                        replace(0, itemIterator, branch.right)));
-            } else {
-                return cleaned(new Branch(
-                        branch.left,
-                        replace(index - branch.left.itemCount(), itemIterator, branch.right)));
-            }
-        } else if (root instanceof Leaf leaf) {
-            final var newItems = Arrays.copyOf(leaf.items, leaf.items.length);
-            int i = index;
-            while (i < newItems.length && itemIterator.hasNext()) {
-                newItems[i++] = itemIterator.next();
-            }
-            return new Leaf(newItems);
-        } else throw new ImpossibleStateException();
+        return concat(
+                concat(get(0, index, root), replacement.buildNode()),
+                get(end, root.itemCount(), root));
     }
 
     private static Node insert(int index, Node items, Node root) {
-        if (root instanceof Branch branch) {
-            if (index < branch.left.itemCount()) {
-                return cleaned(new Branch(
-                        insert(index, items, branch.left),
-                        branch.right));
-            } else {
-                return cleaned(new Branch(
-                        branch.left,
-                        insert(index - branch.left.itemCount(), items, branch.right)));
-            }
-        } else if (root instanceof Leaf leaf) {
-            final var withProceeding = index < leaf.items.length
-                    ? insert(items.itemCount(), new ArrayIterator<>(leaf.items, index), items)
-                    : items;
-
-            return index > 0
-                    ? insert(0, new ArrayIterator<>(leaf.items, 0, index), withProceeding)
-                    : withProceeding;
-        } else throw new ImpossibleStateException();
+        return concat(
+                concat(get(0, index, root), items),
+                get(index, root.itemCount(), root));
     }
 
     private static Node insert(int index, Iterator<?> itemIterator, Node root) {
-        if (root instanceof Branch branch) {
-            if (index < branch.left.itemCount()) {
-                return cleaned(new Branch(
-                        insert(index, itemIterator, branch.left),
-                        branch.right));
-            } else {
-                return cleaned(new Branch(
-                        branch.left,
-                        insert(index - branch.left.itemCount(), itemIterator, branch.right)));
-            }
-        } else if (root instanceof Leaf leaf) {
-            final var partitions = new ArrayList<Object[]>();
-            Object[] newPartition = new Object[PARTITION_SIZE];
-            int p = 0;
-
-            // copy preceding items into partitions
-            for (int i = 0; i < index; i++) {
-                newPartition[p++] = leaf.items[i];
-                if (p >= PARTITION_SIZE) {
-                    partitions.add(newPartition);
-                    newPartition = new Object[PARTITION_SIZE];
-                    p = 0;
-                }
-            }
-
-            // copy items from iterator
-            while (itemIterator.hasNext()) {
-                newPartition[p++] = itemIterator.next();
-                if (p >= PARTITION_SIZE) {
-                    partitions.add(newPartition);
-                    newPartition = new Object[PARTITION_SIZE];
-                    p = 0;
-                }
-            }
-
-            // copy proceeding items
-            for (int i = index; i < leaf.items.length; i++) {
-                newPartition[p++] = leaf.items[i];
-                if (p >= PARTITION_SIZE) {
-                    partitions.add(newPartition);
-                    p = 0;
-                    if (i < leaf.items.length - 1) {
-                        newPartition = new Object[PARTITION_SIZE];
-                    }
-                }
-            }
-
-            // trim final partition
-            if (p != 0) {
-                partitions.add(ArrayUtils.resize(newPartition, p));
-            }
-
-            return fromPartitions(partitions);
-        } else throw new ImpossibleStateException();
+        return insert(index, fromIterator(itemIterator), root);
     }
 
     private static Node add(int index, Object item, Node root) {
-        if (root instanceof Branch branch) {
-            if (index < branch.left.itemCount()) {
-                return cleaned(new Branch(
-                        add(index, item, branch.left),
-                        branch.right));
-            } else {
-                return cleaned(new Branch(
-                        branch.left,
-                        add(index - branch.left.itemCount(), item, branch.right)));
-            }
-        } else if (root instanceof Leaf leaf) {
-            final var newItems = ArrayUtils.add(leaf.items, index, item);
-            return fromPartitions(new ArrayAsList<>(ArrayUtils.partition(
-                    newItems,
-                    PARTITION_SIZE)));
-        } else throw new ImpossibleStateException();
+        return insert(index, new Leaf(new Object[]{item}), root);
     }
 
     private static Node remove(int start, int end, Node root) {
-        if (root instanceof Branch branch) {
-            final var left = branch.left;
-            final var right = branch.right;
-
-            if (start < left.itemCount()) {
-                if (end <= left.itemCount()) {
-                    return cleaned(new Branch(
-                            remove(start, end, left),
-                            right));
-                } else {
-                    return cleaned(new Branch(
-                            remove(start, left.itemCount(), left),
-                            remove(0, end - left.itemCount(), right)));
-                }
-            } else {
-                return cleaned(new Branch(
-                        left,
-                        remove(
-                                start - left.itemCount(),
-                                end - left.itemCount(),
-                                right)));
-            }
-        } else if (root instanceof Leaf leaf) {
-            final var length = end - start;
-            return new Leaf(ArrayUtils.remove(leaf.items, start, length));
-        } else throw new ImpossibleStateException();
+        return concat(get(0, start, root), get(end, root.itemCount(), root));
+    }
+
+    private static Node concat(Node a, Node b) {
+        final var result = RrbTree.concat(a, b);
+        return result.itemCount() == 0 ? EMPTY_LEAF : result;
     }
 
     private static Node fromPartitions(List<Object[]> partitions) {
-        return fromPartitions(partitions, 0, partitions.size());
-    }
-
-    private static Node fromPartitions(List<Object[]> partitions, int start, int length) {
-        if (length > 1) {
-            final var rightPortion = length / 2;
-            final var leftPortion = length - rightPortion;
-            return new Branch(
-                    fromPartitions(partitions, start, leftPortion),
-                    fromPartitions(partitions, start + leftPortion, rightPortion));
-        } else if (length == 1) {
-            return new Leaf(partitions.get(start));
-        } else {
-            return EMPTY_LEAF;
-        }
+        if (partitions.isEmpty()) return EMPTY_LEAF;
+        return RrbTree.fromLeaves(partitions);
     }
 
     private static Node fromIterable(Iterable<?> iterable) {
@@ -922,125 +795,37 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
     }
 
     private static Node fromIterator(Iterator<?> itemIterator) {
-        if (!itemIterator.hasNext()) return EMPTY_LEAF;
-        final var partitions = new ArrayList<Object[]>();
-        Object[] newPartition = new Object[PARTITION_SIZE];
-        int p = 0;
-
-        while (itemIterator.hasNext()) {
-            newPartition[p++] = itemIterator.next();
-            if (p >= PARTITION_SIZE) {
-                partitions.add(newPartition);
-                newPartition = new Object[PARTITION_SIZE];
-                p = 0;
-            }
-        }
-
-        if (p != 0) {
-            partitions.add(ArrayUtils.resize(newPartition, p));
-        }
-
-        return fromPartitions(partitions);
+        return new Builder<>().addAll(itemIterator).buildNode();
     }
 
     private static Node fromGenerator(Function<Integer, ?> itemGenerator, int length) {
-        if (length == 0) return EMPTY_LEAF;
-        final var partitions = new ArrayList<Object[]>();
-        Object[] newPartition = new Object[PARTITION_SIZE];
-        int p = 0;
-
+        final var builder = new Builder<>();
         for (int i = 0; i < length; i++) {
-            newPartition[p++] = itemGenerator.apply(i);
-            if (p >= PARTITION_SIZE) {
-                partitions.add(newPartition);
-                newPartition = new Object[PARTITION_SIZE];
-                p = 0;
-            }
+            builder.add(itemGenerator.apply(i));
         }
-
-        if (p > 0) {
-            partitions.add(ArrayUtils.resize(newPartition, p));
-        }
-
-        return fromPartitions(partitions);
+        return builder.buildNode();
     }
 
     // sorting
     private static Iterator<Object> sortedIterator(Node root, Comparator<Object> comparator) {
         if (root instanceof Branch branch) {
-            return IterableUtils.merge(
-                    sortedIterator(branch.left, comparator),
-                    sortedIterator(branch.right, comparator),
-                    comparator);
+            return sortedIterator(branch.children, 0, branch.children.length, comparator);
         } else if (root instanceof Leaf leaf) {
-            final var sorted = Arrays.copyOf(leaf.items, leaf.items.length);
+            final var sorted = Arrays.copyOf(itemsOf(leaf), leaf.itemCount());
             Arrays.sort(sorted, comparator);
             return new ArrayIterator<>(sorted);
         } else throw new ImpossibleStateException();
     }
 
-    // ========= maintenance ============
-    private static Node cleaned(Node node) {
-        if (node instanceof Branch branch) {
-            final var pruned = pruned(branch);
-            if (!(pruned instanceof Branch prunedBranch)) return pruned;
-            return balanced(prunedBranch);
-        } else return node;
+    private static Iterator<Object> sortedIterator(Node[] nodes, int start, int end, Comparator<Object> comparator) {
+        if (end - start == 1) return sortedIterator(nodes[start], comparator);
+        final var middle = (start + end) >>> 1;
+        return IterableUtils.merge(
+                sortedIterator(nodes, start, middle, comparator),
+                sortedIterator(nodes, middle, end, comparator),
+                comparator);
     }
 
-    private static Node pruned(Branch branch) {
-        if (branch.left.itemCount() == 0) return branch.right;
-        if (branch.right.itemCount() == 0) return branch.left;
-        return branch;
-    }
-
-    private static Branch balanced(Branch branch) {
-        Branch result = branch;
-
-        for (int loopCount = 0; loopCount < branch.depth(); ++loopCount) {
-            if (result.balanceFactor() < -1) {
-                final var rotatedRight = rotatedRight(branch);
-                if (rotatedRight.absoluteBalanceFactor() < result.absoluteBalanceFactor()) {
-                    result = rotatedRight;
-                    continue;
-                }
-            } else if (result.balanceFactor() > 1) {
-                final var rotatedLeft = rotatedLeft(branch);
-                if (rotatedLeft.absoluteBalanceFactor() < result.absoluteBalanceFactor()) {
-                    result = rotatedLeft;
-                    continue;
-                }
-            }
-            break;
-        }
-        return result;
-    }
-
-    private static Branch rotatedLeft(Branch branch) {
-        if (branch.right instanceof Branch right) {
-            return new Branch(
-                    new Branch(
-                            branch.left,
-                            right.left),
-                    right.right);
-        } else {
-            return branch;
-        }
-    }
-
-    private static Branch rotatedRight(Branch branch) {
-        if (branch.left instanceof Branch left) {
-            return new Branch(
-                    left.left,
-                    new Branch(
-                            left.right,
-                            branch.right));
-        } else {
-            return branch;
-        }
-    }
-
-
     private static Node filter(Node node, BiPredicate<Object, Integer> test, Pointer<Integer> removalLimit) {
         return filter(node, test, removalLimit, 0);
     }
@@ -1049,24 +834,38 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
         if (removalLimit.current == 0) return node;
 
         if (node instanceof Branch branch) {
-            final var leftResult = filter(branch.left, test, removalLimit, indexOffset);
-            final var rightResult = filter(branch.right, test, removalLimit, indexOffset + branch.left.itemCount());
+            // only copied once a child actually changes
+            Node[] newChildren = null;
+            int newChildCount = 0;
 
-            if (leftResult == branch.left && rightResult == branch.right)
-                return branch;
-            else
-                return cleaned(new Branch(leftResult, rightResult));
+            for (int i = 0; i < branch.children.length; i++) {
+                final var child = branch.children[i];
+                final var result = filter(child, test, removalLimit, indexOffset + branch.offsetOf(i));
+
+                if (newChildren == null && result != child) {
+                    newChildren = Arrays.copyOf(branch.children, branch.children.length);
+                    newChildCount = i;
+                }
+                if (newChildren != null && result.itemCount() > 0) {
+                    newChildren[newChildCount++] = result;
+                }
+            }
+
+            if (newChildren == null) return branch;
+            if (newChildCount == 0) return EMPTY_LEAF;
+            return new Branch(Arrays.copyOf(newChildren, newChildCount));
         } else if (node instanceof Leaf leaf) {
+            final var items = itemsOf(leaf);
             final var result = ArrayUtils.filter(
-                    leaf.items,
+                    items,
                     (item, i) -> test.test(item, i + indexOffset),
                     removalLimit.current);
 
-            if (result == leaf.items || result.length == leaf.items.length)
+            if (result == items || result.length == items.length)
                 return leaf;
 
             if (removalLimit.current >= 0)
-                removalLimit.current -= (leaf.items.length - result.length);
+                removalLimit.current -= (items.length - result.length);
 
             return new Leaf(result);
         } else throw new ImpossibleStateException();
@@ -1080,22 +879,32 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
         if (modificationLimit.current == 0) return node;
 
         if (node instanceof Branch branch) {
-            final var leftResult = map(branch.left, mapping, modificationLimit, indexOffset);
-            final var rightResult = map(branch.right, mapping, modificationLimit, indexOffset + branch.left.itemCount());
-            if (leftResult == branch.left && rightResult == branch.right)
+            Node[] newChildren = null;
+            for (int i = 0; i < branch.children.length; i++) {
+                final var child = branch.children[i];
+                final var result = map(child, mapping, modificationLimit, indexOffset + branch.offsetOf(i));
+                if (result != child) {
+                    if (newChildren == null) newChildren = branch.children.clone();
+                    newChildren[i] = result;
+                }
+            }
+
+            if (newChildren == null)
                 return branch;
             else
-                return new Branch(leftResult, rightResult);
+                // mapping doesn't change the number of items, so the sizes can be shared
+                return new Branch(newChildren, branch.sizes);
 
         } else if (node instanceof Leaf leaf) {
+            final var items = itemsOf(leaf);
             final var modificationCount = new Pointer<>(0);
             final var result = ArrayUtils.map(
-                    leaf.items,
+                    items,
                     (item, i) -> mapping.apply(item, i + indexOffset),
                     modificationLimit.current,
                     modificationCount);
 
-            if (result == leaf.items || modificationCount.current == 0) {
+            if (result == items || modificationCount.current == 0) {
                 return leaf;
             } else {
                 modificationLimit.current -= modificationCount.current;
@@ -1109,17 +918,20 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
      */
     private static Node replaceFirstOccurrence(Node node, Object item, Object replacement) {
         if (node instanceof Branch branch) {
-            final var leftResult = replaceFirstOccurrence(branch.left, item, replacement);
-            if (leftResult != null) return cleaned(new Branch(leftResult, branch.right));
-
-            final var rightResult = replaceFirstOccurrence(branch.right, item, replacement);
-            if (rightResult != null) return cleaned(new Branch(branch.left, rightResult));
-
+            for (int i = 0; i < branch.children.length; i++) {
+                final var result = replaceFirstOccurrence(branch.children[i], item, replacement);
+                if (result != null) {
+                    final var newChildren = branch.children.clone();
+                    newChildren[i] = result;
+                    return new Branch(newChildren, branch.sizes);
+                }
+            }
             return null;
         } else if (node instanceof Leaf leaf) {
-            for (int i = 0; i < leaf.items.length; i++) {
-                if (Objects.equals(item, leaf.items[i])) {
-                    return new Leaf(ArrayUtils.set(leaf.items, i, replacement));
+            final var items = itemsOf(leaf);
+            for (int i = 0; i < items.length; i++) {
+                if (Objects.equals(item, items[i])) {
+                    return new Leaf(ArrayUtils.set(items, i, replacement));
                 }
             }
             return null;
@@ -1130,231 +942,184 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
         return size() - 1 + index;
     }
 
-    // ========================= inner classes ====================================
-    private interface Node extends Enumerable<Object>, java.io.Serializable {
-        int itemCount();
+    // ========================= builder ====================================
 
-        int leafCount();
-
-        int depth();
-
-        int balanceFactor();
-
-        default int absoluteBalanceFactor() {
-            return Math.abs(balanceFactor());
-        }
-
-        @Override
-        default Enumerator<Object> enumerator() {
-            return new ItemEnumerator(this);
-        }
-    }
-
-    private static class Branch implements Node {
+    /**
+     * Mutable builder for {@link PersistentList}. Appending is amortized constant time: items are written in place into
+     * a leaf owned by the builder and full leaves are set aside untouched until the list is built.
+     * <strong>Not thread-safe.</strong>
+     *
+     * @param <T>
+     */
+    public static class Builder<T> {
         @NotNull
-        final Node left;
+        private final Node prefix;
         @NotNull
-        final Node right;
-        final int itemCount;
-        final int leafCount;
-        final int depth;
-        final int balanceFactor;
-
-        public Branch(@NotNull Node left, @NotNull Node right) {
-            this.left = left;
-            this.right = right;
-            itemCount = left.itemCount() + right.itemCount();
-            leafCount = left.leafCount() + right.leafCount();
-            depth = Math.max(left.depth(), right.depth()) + 1;
-            balanceFactor = right.depth() - left.depth();
-        }
+        private final ArrayList<Object[]> partitions = new ArrayList<>();
+        @NotNull
+        private Object[] tail = new Object[PARTITION_SIZE];
+        private int tailSize = 0;
 
-        @Override
-        public int itemCount() {
-            return itemCount;
+        private Builder(@NotNull Node prefix) {
+            this.prefix = prefix;
         }
 
-        @Override
-        public int leafCount() {
-            return leafCount;
+        private Builder() {
+            this(EMPTY_LEAF);
         }
 
-        @Override
-        public int depth() {
-            return depth;
+        /**
+         * @return How many items are in the list being built.
+         */
+        public int size() {
+            return prefix.itemCount() + partitions.size() * PARTITION_SIZE + tailSize;
         }
 
-        @Override
-        public int balanceFactor() {
-            return balanceFactor;
+        /**
+         * Appends the item to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder<T> add(T item) {
+            tail[tailSize++] = item;
+            if (tailSize == PARTITION_SIZE) {
+                partitions.add(tail);
+                tail = new Object[PARTITION_SIZE];
+                tailSize = 0;
+            }
+            return this;
         }
-    }
-
-    private static class Leaf implements Node {
-        public final Object[] items;
 
-        public Leaf(Object[] items) {
-            this.items = items;
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder<T> addAll(Iterator<? extends T> items) {
+            while (items.hasNext()) add(items.next());
+            return this;
         }
 
-        @Override
-        public int itemCount() {
-            return items.length;
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder<T> addAll(Iterable<? extends T> items) {
+            return addAll(items.iterator());
         }
 
-        @Override
-        public int leafCount() {
-            return 1;
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder<T> addAll(Stream<? extends T> items) {
+            return addAll(items.iterator());
         }
 
-        @Override
-        public int depth() {
-            return 1;
+        /**
+         * Appends the items to the list being built.
+         *
+         * @return This builder.
+         */
+        public Builder<T> addAll(T[] items) {
+            for (final var item : items) add(item);
+            return this;
         }
 
-        @Override
-        public int balanceFactor() {
-            return 0;
+        /**
+         * Seals the items added so far into a persistent list. The builder can still be used afterwards;
+         * later additions do not affect lists that have already been built.
+         *
+         * @return A new list with the items added to this builder.
+         */
+        public PersistentList<T> build() {
+            return new PersistentList<>(buildNode());
         }
 
-        @Override
-        public int absoluteBalanceFactor() {
-            return 0;
+        private Node buildNode() {
+            final List<Object[]> sealed;
+            if (tailSize == 0) {
+                sealed = partitions;
+            } else {
+                sealed = new ArrayList<>(partitions.size() + 1);
+                sealed.addAll(partitions);
+                // the tail is still owned by this builder, so the list gets a copy
+                sealed.add(Arrays.copyOf(tail, tailSize));
+            }
+
+            return concat(prefix, fromPartitions(sealed));
         }
     }
 
+
     // iterators
     private static class ItemEnumerator implements IndexedBiDirectionalEnumerator<Object> {
-        private final LeafEnumerator leafEnumerator;
-        private final Node root;
-        private int index;
-        private int indexInLeaf;
+        private final RrbTree.Cursor cursor;
 
         public ItemEnumerator(Node root, int index) {
             ArrayUtils.requireIndexInBounds(-1, index, root.itemCount() + 1);
-            this.root = Objects.requireNonNull(root);
-            leafEnumerator = initialize(index);
+            cursor = new RrbTree.Cursor(Objects.requireNonNull(root), index);
         }
 
         public ItemEnumerator(Node root) {
             this(root, -1);
         }
 
-        private LeafEnumerator initialize(int initialIndex) {
-            if (initialIndex <= -1) {
-                this.index = -1;
-                return new LeafEnumerator(root, false);
-            }
-            if (initialIndex >= root.itemCount()) {
-                this.index = root.itemCount();
-                return new LeafEnumerator(root, true);
-            }
-
-            final var location = new ArrayStack<Node>();
-            int locationIndex = 0;
-            int indexInCurrentNode = initialIndex;
-
-            Node currentNode = root;
-            location.push(currentNode);
-
-
-            while (currentNode instanceof Branch currentBranch) {
-                if (indexInCurrentNode < currentBranch.left.itemCount()) {
-                    currentNode = currentBranch.left;
-                    location.push(currentNode);
-                } else {
-                    locationIndex += currentBranch.left.leafCount();
-                    indexInCurrentNode -= currentBranch.left.itemCount();
+        @Override
+        public boolean movePrevious() {
+            return cursor.movePrevious();
+        }
 
-                    currentNode = currentBranch.right;
-                    location.push(currentNode);
-                }
-            }
+        @Override
+        public boolean moveNext() {
+            return cursor.moveNext();
+        }
 
-            index = initialIndex;
-            indexInLeaf = indexInCurrentNode;
-            return new LeafEnumerator(location, locationIndex, root);
+        @Override
+        public Object current() {
+            if (!cursor.inBounds()) return null;
+            return ((Object[]) cursor.items())[cursor.indexInLeaf()];
         }
 
-        private boolean advanceLeafNext() {
-            if (!leafEnumerator.moveNext()) return false;
-            final var current = leafEnumerator.current();
-            if (current == null) return false;
-            if (current.items.length == 0) return advanceLeafNext();
-            return true;
+        @Override
+        public int currentIndex() {
+            return cursor.index();
         }
+    }
 
-        private boolean advanceLeafPrevious() {
-            if (!leafEnumerator.movePrevious()) return false;
-            final var current = leafEnumerator.current();
-            if (current == null) return false;
-            if (current.items.length == 0) return advanceLeafPrevious();
-            return true;
+    private static class ItemSpliterator extends RrbTree.LeafSpliterator<ItemSpliterator> implements Spliterator<Object> {
+        public ItemSpliterator(Node root) {
+            super(root);
         }
 
-        @Override
-        public boolean movePrevious() {
-            if (index == root.itemCount()) {
-                index = root.itemCount() - 1;
-                if (advanceLeafPrevious()) {
-                    indexInLeaf = leafEnumerator.current().itemCount() - 1;
-                    return true;
-                } else return false;
-            }
-            final var currentLeaf = leafEnumerator.current();
-            if (currentLeaf == null) return false;
-
-            if (indexInLeaf > 0) {
-                indexInLeaf--;
-                index--;
-                return true;
-            } else if (advanceLeafPrevious()) {
-                indexInLeaf = leafEnumerator.current().itemCount() - 1;
-                index--;
-                return true;
-            } else {
-                index--;
-                return false;
-            }
+        private ItemSpliterator(Object items, int index, int end, ArrayDeque<Node> pending, long remaining) {
+            super(items, index, end, pending, remaining);
         }
 
         @Override
-        public boolean moveNext() {
-            if (index == -1) {
-                index = 0;
-                if (advanceLeafNext()) {
-                    indexInLeaf = 0;
-                    return true;
-                } else return false;
-            }
-            final var currentLeaf = leafEnumerator.current();
-            if (currentLeaf == null) return false;
-
-            if (indexInLeaf < currentLeaf.itemCount() - 1) {
-                indexInLeaf++;
-                index++;
-                return true;
-            } else if (advanceLeafNext()) {
-                indexInLeaf = 0;
-                index++;
-                return true;
-            } else {
-                index++;
-                return false;
-            }
+        protected ItemSpliterator split(Object items, int index, int end, ArrayDeque<Node> pending, long remaining) {
+            return new ItemSpliterator(items, index, end, pending, remaining);
         }
 
         @Override
-        public Object current() {
-            final var currentLeaf = leafEnumerator.current();
-            if (currentLeaf != null && currentLeaf.items.length > 0) {
-                return currentLeaf.items[indexInLeaf];
-            } else return null;
+        public boolean tryAdvance(Consumer<? super Object> action) {
+            Objects.requireNonNull(action);
+            if (!claimNext()) return false;
+            action.accept(((Object[]) items)[index++]);
+            return true;
         }
 
         @Override
-        public int currentIndex() {
-            return index;
+        public void forEachRemaining(Consumer<? super Object> action) {
+            Objects.requireNonNull(action);
+            forEachRemainingLeaf((items, start, end) -> {
+                final var array = (Object[]) items;
+                for (int i = start; i < end; i++) {
+                    action.accept(array[i]);
+                }
+            });
         }
     }
 
@@ -1379,147 +1144,44 @@ public class PersistentList<T> extends AbstractList<T> implements IndexedBiDirec
 
     private Node optosort(Comparator<T> c, Node n) {
         if (n instanceof Branch b) {
-            if (IterableUtils.isSorted((Iterator<T>) b.iterator(), c))
+            if (IterableUtils.isSorted((Iterator<T>) iterateNode(b), c))
                 return b;
 
-            final var leftSorted = optosort(c, b.left);
-            final var rightSorted = optosort(c, b.right);
-            if (c.compare(
-                    // last item in left
-                    (T) get(leftSorted.itemCount() - 1, leftSorted),
-                    // first item in right
-                    (T) get(0, rightSorted)) <= 0) {
-                return new Branch(leftSorted, rightSorted);
-            } else {
-                return fromIterator(new MergingIterator<>(
-                        (Iterator<T>) leftSorted.iterator(),
-                        (Iterator<T>) rightSorted.iterator(),
-                        c));
+            final var sortedChildren = new Node[b.children.length];
+            for (int i = 0; i < sortedChildren.length; i++) {
+                sortedChildren[i] = optosort(c, b.children[i]);
             }
+            return optosort(c, sortedChildren, 0, sortedChildren.length);
         } else if (n instanceof Leaf l) {
-            if (ArrayUtils.isSorted((T[]) l.items, c))
+            final var items = itemsOf(l);
+            if (items.length <= 1 || ArrayUtils.isSorted((T[]) items, c))
                 return l;
 
-            final var sortedItems = ((Stream<T>) StreamSupport.stream(Spliterators.spliterator(l.items, 0), true)).sorted(c).toArray();
+            final var sortedItems = ((Stream<T>) StreamSupport.stream(Spliterators.spliterator(items, 0), true)).sorted(c).toArray();
             return new Leaf(sortedItems);
         } else throw new ImpossibleStateException();
     }
 
-    private static class LeafEnumerator implements IndexedBiDirectionalEnumerator<Leaf> {
-        private final ArrayStack<Node> location;
-        private int locationIndex;
-        private final Node root;
-
-        public LeafEnumerator(Node root, boolean startAndEnd) {
-            this.root = Objects.requireNonNull(root);
-            locationIndex = startAndEnd ? root.leafCount() : -1;
-            location = new ArrayStack<>(root.depth());
-        }
-
-        public LeafEnumerator(ArrayStack<Node> location, int locationIndex, Node root) {
-            this.location = Objects.requireNonNull(location);
-            this.locationIndex = locationIndex;
-            this.root = Objects.requireNonNull(root);
-        }
-
-        private void drillDownLeft() {
-            drillDown(false);
-        }
-
-        private void drillDownRight() {
-            drillDown(true);
-        }
-
-        private void drillDown(boolean right) {
-            Node current = location.peek();
-            while (current instanceof Branch branch) {
-                if (right) {
-                    current = branch.right;
-                    location.push(current);
-                } else {
-                    current = branch.left;
-                    location.push(current);
-                }
-            }
-        }
-
-        private void moveLeft() {
-            if (locationIndex <= 0) {
-                location.clear();
-                locationIndex = -1;
-                return;
-            }
-            if (locationIndex > (root.leafCount() - 1)) {
-                location.push(root);
-                drillDownRight();
-                locationIndex = root.leafCount() - 1;
-                return;
-            }
-
-            Node child;
-            Branch parent;
-            do {
-                child = location.pop();
-                parent = (Branch) location.peek();
-            } while (child == parent.left);
-            location.push(parent.left);
-
-            drillDownRight();
-            locationIndex--;
-        }
-
-        private void moveRight() {
-            if (locationIndex >= (root.leafCount() - 1)) {
-                location.clear();
-                locationIndex = root.leafCount();
-                return;
-            }
-            if (locationIndex < 0) {
-                location.push(root);
-                drillDownLeft();
-                locationIndex = 0;
-                return;
-            }
-
-            Node child;
-            Branch parent;
-            do {
-                child = location.pop();
-                parent = (Branch) location.peek();
-            } while (child == parent.right);
-            location.push(parent.right);
-
-            drillDownLeft();
-            locationIndex++;
-        }
-
-        @Override
-        public boolean moveNext() {
-            if (locationIndex < (root.leafCount() - 1)) {
-                moveRight();
-                return true;
-            } else return false;
-        }
-
-        @Override
-        public boolean movePrevious() {
-            if (locationIndex > 0) {
-                moveLeft();
-                return true;
-            } else return false;
-        }
-
-        @Override
-        public Leaf current() {
-            if (location.isEmpty()) {
-                return null;
-            } else {
-                return (Leaf) location.peek();
-            }
-        }
-
-        public int currentIndex() {
-            return locationIndex;
+    /**
+     * Combines sorted nodes, merging halves only when they overlap.
+     */
+    private Node optosort(Comparator<T> c, Node[] sorted, int start, int end) {
+        if (end - start == 1) return sorted[start];
+
+        final var middle = (start + end) >>> 1;
+        final var left = optosort(c, sorted, start, middle);
+        final var right = optosort(c, sorted, middle, end);
+        if (c.compare(
+                // last item in left
+                (T) get(left.itemCount() - 1, left),
+                // first item in right
+                (T) get(0, right)) <= 0) {
+            return concat(left, right);
+        } else {
+            return fromIterator(new MergingIterator<>(
+                    (Iterator<T>) iterateNode(left),
+                    (Iterator<T>) iterateNode(right),
+                    c));
         }
     }
 }
@@ -84,6 +84,57 @@ public class PersistentMap<K, V> extends AbstractMap<K, V> implements Serializab
         return entries.stream(parallel).map(e -> new SimpleImmutableEntry<>(e.key, e.value));
     }
 
+    public Transient<K, V> asTransient() {
+        return new Transient<>(entries.asTransient());
+    }
+
+    /**
+     * Mutable copy of a map, for making a lot of changes at once without copying the map for each one. See
+     * {@link PersistentSet.Transient}.
+     */
+    public static final class Transient<K, V> {
+        private final PersistentSet.Transient<SpecialEntry<K, V>> entries;
+
+        private Transient(PersistentSet.Transient<SpecialEntry<K, V>> entries) {
+            this.entries = entries;
+        }
+
+        public Transient<K, V> with(K key, V value) {
+            entries.with(new SpecialEntry<>(key, value));
+            return this;
+        }
+
+        public Transient<K, V> without(K key) {
+            entries.without(new SpecialEntry<>(key, null));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            try {
+                final var entry = entries.get(new SpecialEntry<>((K) key, null));
+                return entry != null ? entry.value : null;
+            } catch (ClassCastException cce) {
+                return null;
+            }
+        }
+
+        public boolean containsKey(Object key) {
+            return entries.contains(new SpecialEntry<>(key, null));
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        /**
+         * Ends the batch.
+         */
+        public PersistentMap<K, V> persistent() {
+            return new PersistentMap<>(entries.persistent());
+        }
+    }
+
     public MapRecord<K, V> asRecord() {
         return new MapRecord<>(this);
     }
@@ -7,6 +7,7 @@ import collections.iteration.enumerable.Enumerable;
 import collections.iteration.enumerator.BiDirectionalEnumerator;
 import collections.records.SetRecord;
 import org.jetbrains.annotations.NotNull;
+import reference.pointers.Pointer;
 
 import java.util.*;
 import java.util.stream.Stream;
@@ -14,11 +15,12 @@ import java.util.stream.StreamSupport;
 
 /**
  * Immutable set that allows copy with modification.
+ * Backed by a hash array mapped trie, so lookup and modification are near constant time.
  * @param <T>
  */
 public class PersistentSet<T> extends AbstractSet<T> implements Enumerable<T>, java.io.Serializable {
     @NotNull
-    private final PersistentTreeSet<Group<T>> entries;
+    private final ChampTrie.Node root;
     private final int size;
 
     @SafeVarargs
@@ -26,15 +28,15 @@ public class PersistentSet<T> extends AbstractSet<T> implements Enumerable<T>, j
         return new PersistentSet<T>().withMany(items);
     }
 
-    private PersistentSet(@NotNull PersistentTreeSet<Group<T>> entries, int size) {
-        this.entries = entries;
+    private PersistentSet(@NotNull ChampTrie.Node root, int size) {
+        this.root = root;
         this.size = size;
-        assert entries != null;
+        assert root != null;
         assert Assertions.correctSize(this);
     }
 
     public PersistentSet() {
-        this(new PersistentTreeSet<>(), 0);
+        this(ChampTrie.EMPTY, 0);
     }
 
     public int size() {
@@ -66,8 +68,7 @@ public class PersistentSet<T> extends AbstractSet<T> implements Enumerable<T>, j
 
     @Override
     public boolean contains(Object o) {
-        final var entry = getGroup(Objects.hashCode(o));
-        return entry != null && entry.values.contains(o);
+        return ChampTrie.get(root, o, ChampTrie.hash(o)) != ChampTrie.ABSENT;
     }
 
     @Override
@@ -94,46 +95,35 @@ public class PersistentSet<T> extends AbstractSet<T> implements Enumerable<T>, j
     }
 
     public BiDirectionalEnumerator<T> enumerator(boolean startAtEnd) {
-        return new SelfEnumerator<>(entries, startAtEnd);
+        return new SelfEnumerator<>(root, startAtEnd);
     }
 
     public SetRecord<T> asRecord() {
         return new SetRecord<>(this);
     }
 
-    private Group<T> getGroup(int hash) {
-        return entries.get(new Group<>(hash, null));
-    }
-
+    @SuppressWarnings("unchecked")
     public T get(T value) {
-        final var entry = getGroup(Objects.hashCode(value));
-        if (entry != null) {
-            return entry.values.getFirstOccurrence(value);
+        final var result = ChampTrie.get(root, value, ChampTrie.hash(value));
+        if (result != ChampTrie.ABSENT) {
+            return (T) result;
         } else return null;
     }
 
     public PersistentSet<T> with(T value) {
-        final var hash = Objects.hashCode(value);
-        final var existingEntry = getGroup(hash);
-
-        if (existingEntry != null) {
-            final var newEntry = existingEntry.with(value);
-            final var newSize = size + (newEntry.values.size() - existingEntry.values.size());
-
-            return new PersistentSet<>(entries.with(newEntry), newSize);
-        } else {
-            return new PersistentSet<>(
-                    entries.with(new Group<>(hash, PersistentList.of(value))),
-                    size + 1);
-        }
+        final var added = new Pointer<>(false);
+        final var newRoot = ChampTrie.with(root, value, ChampTrie.hash(value), 0, added);
+
+        if (newRoot == root) return this;
+        return new PersistentSet<>(newRoot, added.current ? size + 1 : size);
     }
 
     public PersistentSet<T> withMany(Iterator<T> valueIterator) {
-        var result = this;
+        final var result = asTransient();
         while (valueIterator.hasNext()) {
-            result = result.with(valueIterator.next());
+            result.with(valueIterator.next());
         }
-        return result;
+        return result.persistent();
     }
 
     public PersistentSet<T> withMany(Stream<T> valueStream) {
@@ -149,29 +139,19 @@ public class PersistentSet<T> extends AbstractSet<T> implements Enumerable<T>, j
     }
 
     public PersistentSet<T> without(T value) {
-        final var hash = Objects.hashCode(value);
-        final var existingEntry = getGroup(hash);
-
-        if (existingEntry != null) {
-            final var newEntry = existingEntry.without(value);
-            final var newSize = size + (newEntry.values.size() - existingEntry.values.size());
+        final var newRoot = ChampTrie.without(root, value, ChampTrie.hash(value), 0);
 
-            if (newEntry.values.isEmpty()) {
-                return new PersistentSet<>(entries.without(existingEntry), newSize);
-            } else {
-                return new PersistentSet<>(entries.with(newEntry), newSize);
-            }
-
-        } else return this;
+        if (newRoot == root) return this;
+        return new PersistentSet<>(newRoot, size - 1);
     }
 
     public PersistentSet<T> withoutMany(Iterator<T> valueIterator) {
-        var result = this;
+        final var result = asTransient();
         while (valueIterator.hasNext()) {
-            result = result.without(valueIterator.next());
+            result.without(valueIterator.next());
         }
 
-        return result;
+        return result.persistent();
     }
 
     public PersistentSet<T> withoutMany(Stream<T> valueStream) {
@@ -186,95 +166,123 @@ public class PersistentSet<T> extends AbstractSet<T> implements Enumerable<T>, j
         return withoutMany(new ArrayIterator<>(values));
     }
 
-    private static class Group<T> implements Comparable<Group<T>>, java.io.Serializable {
-        final int key;
-        final PersistentList<T> values;
-
-        public Group(int key, PersistentList<T> values) {
-            this.key = key;
-            this.values = values;
+    public Transient<T> asTransient() {
+        return new Transient<>(this);
+    }
+
+    /**
+     * Mutable copy of a set, for making a lot of changes at once. Nodes made by one change are written to in place by
+     * the next instead of being copied again, so a batch costs about as many copies as the distinct parts of the set
+     * it touches, not one path per change. The set it came from isn't affected.
+     * <p>
+     * Not thread safe, and can't be used after {@link #persistent()}.
+     */
+    public static final class Transient<T> {
+        private final PersistentSet<T> original;
+        private final ChampTrie.Edit edit = new ChampTrie.Edit();
+        private final Pointer<Boolean> added = new Pointer<>(false);
+        private ChampTrie.Node root;
+        private int size;
+        private boolean done = false;
+
+        private Transient(PersistentSet<T> original) {
+            this.original = original;
+            root = original.root;
+            size = original.size;
         }
 
-        Group<T> with(T value) {
-            return new Group<>(key, values.with(value));
+        /**
+         * Adds the value, replacing any equal value.
+         */
+        public Transient<T> with(T value) {
+            ensureNotDone();
+            root = ChampTrie.with(root, value, ChampTrie.hash(value), 0, added, edit);
+            if (added.current) size++;
+            return this;
         }
 
-        Group<T> without(T value) {
-            return new Group<>(key, values.withoutFirstOccurrence(value));
+        public Transient<T> without(T value) {
+            ensureNotDone();
+            final var hash = ChampTrie.hash(value);
+            // the edit can change nodes in place, so the root staying the same doesn't mean nothing was removed
+            if (ChampTrie.get(root, value, hash) == ChampTrie.ABSENT) return this;
+
+            root = ChampTrie.without(root, value, hash, 0, edit);
+            size--;
+            return this;
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o instanceof Group<?> other) {
-                return Objects.equals(key, other.key);
-            } else return false;
+        @SuppressWarnings("unchecked")
+        public T get(T value) {
+            ensureNotDone();
+            final var result = ChampTrie.get(root, value, ChampTrie.hash(value));
+            if (result != ChampTrie.ABSENT) {
+                return (T) result;
+            } else return null;
         }
 
-        @Override
-        public int compareTo(Group<T> o) {
-            return Integer.compare(
-                    Objects.hashCode(key),
-                    Objects.hashCode(o.key));
+        public boolean contains(Object value) {
+            ensureNotDone();
+            return ChampTrie.get(root, value, ChampTrie.hash(value)) != ChampTrie.ABSENT;
         }
-    }
 
-    public static class SelfEnumerator<T> implements BiDirectionalEnumerator<T> {
-        private final BiDirectionalEnumerator<Group<T>> entries;
-        private BiDirectionalEnumerator<T> localEnumerator = null;
+        public int size() {
+            return size;
+        }
 
-        private SelfEnumerator(PersistentTreeSet<Group<T>> entries, boolean startAtEnd) {
-            this.entries = entries.enumerator(startAtEnd);
+        /**
+         * Ends the batch.
+         *
+         * @return The set with all of the changes, or the original set if nothing changed.
+         */
+        public PersistentSet<T> persistent() {
+            ensureNotDone();
+            done = true;
+            // nodes from before the batch are never changed in place, so the same root means nothing changed
+            if (root == original.root) return original;
+            return new PersistentSet<>(root, size);
         }
 
-        private boolean advanceNextNode() {
-            do {
-                if (entries.moveNext()) {
-                    localEnumerator = entries.current().values.enumerator();
-                } else return false;
-            } while (!localEnumerator.moveNext());
-            return true;
+        private void ensureNotDone() {
+            if (done) throw new IllegalStateException("persistent() has already been called on this transient");
         }
+    }
+
+    public static class SelfEnumerator<T> implements BiDirectionalEnumerator<T> {
+        private final ChampTrie.ItemEnumerator items;
 
-        private boolean advancePreviousNode() {
-            do {
-                if (entries.movePrevious()) {
-                    localEnumerator = entries.current().values.enumerator(true);
-                } else return false;
-            } while (!localEnumerator.movePrevious());
-            return true;
+        private SelfEnumerator(ChampTrie.Node root, boolean startAtEnd) {
+            items = new ChampTrie.ItemEnumerator(root, startAtEnd);
         }
 
         @Override
         public boolean moveNext() {
-            if (localEnumerator == null || !localEnumerator.moveNext()) return advanceNextNode();
-            return true;
+            return items.moveNext();
         }
 
         @Override
         public boolean movePrevious() {
-            if (localEnumerator == null || !localEnumerator.movePrevious()) return advancePreviousNode();
-            return true;
+            return items.movePrevious();
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public T current() {
-            if (localEnumerator == null) throw new NoSuchElementException();
-            return localEnumerator.current();
+            return (T) items.current();
         }
     }
 
     static class Assertions {
-        static <T> int actualSize(PersistentTreeSet<Group<T>> entries) {
-            int totalSize = 0;
-            for (final var entry : entries) {
-                totalSize += entry.values.size();
+        static int actualSize(ChampTrie.Node node) {
+            int totalSize = node.itemCount();
+            for (int i = 0; i < node.nodeCount(); i++) {
+                totalSize += actualSize(node.node(i));
             }
             return totalSize;
         }
 
         static <T> boolean correctSize(PersistentSet<T> set) {
-            return set.size() == actualSize(set.entries);
+            return set.size() == actualSize(set.root);
         }
     }
 
@@ -11,6 +11,7 @@ import org.jetbrains.annotations.NotNull;
 import reference.pointers.Pointer;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -94,7 +95,7 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
     }
 
     public PersistentTreeSet<T> withMany(Iterator<T> values) {
-        var result = new PersistentTreeSet<T>();
+        var result = this;
 
         while (values.hasNext()) {
             result = result.with(values.next());
@@ -104,6 +105,7 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
     }
 
     public PersistentTreeSet<T> withMany(Iterable<T> values) {
+        if (values instanceof PersistentTreeSet<T> set) return union(set);
         return withMany(values.iterator());
     }
 
@@ -163,7 +165,7 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
     }
 
     public PersistentTreeSet<T> withoutMany(Iterator<T> valueIterator) {
-        var result = new PersistentTreeSet<T>();
+        var result = this;
 
         while (valueIterator.hasNext()) {
             result = result.without(valueIterator.next());
@@ -177,6 +179,7 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
     }
 
     public PersistentTreeSet<T> withoutMany(Iterable<T> values) {
+        if (values instanceof PersistentTreeSet<T> set) return difference(set);
         return withoutMany(values.iterator());
     }
 
@@ -231,20 +234,20 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
             return n.left;
         } else {
             // === two children ===
-            // replace the value at this node with the largest value relative to its left child
+            // replace the value at this node with the smallest value relative to its right child
             // by moving that value to this node.
-            final var relativeLargest_ref = new Pointer<Node<T>>();
-            final var newRight = extractLargestRelativeTo(n.right, relativeLargest_ref);
-            return new Node<>(n.left, newRight, relativeLargest_ref.current.entry).balanced();
+            final var relativeSmallest_ref = new Pointer<Node<T>>();
+            final var newRight = extractSmallestRelativeTo(n.right, relativeSmallest_ref);
+            return new Node<>(n.left, newRight, relativeSmallest_ref.current.entry).balanced();
         }
     }
 
     private static <T extends Comparable<T>> Node<T> extractSmallestRelativeTo(Node<T> n, Pointer<Node<T>> extracted) {
         if (n.left != null) {
             return new Node<>(
-                    extractLargestRelativeTo(n.left, extracted),
+                    extractSmallestRelativeTo(n.left, extracted),
                     n.right,
-                    n.entry);
+                    n.entry).balanced();
         } else {
             extracted.current = n;
             return n.right;
@@ -256,7 +259,7 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
             return new Node<>(
                     n.left,
                     extractLargestRelativeTo(n.right, extracted),
-                    n.entry);
+                    n.entry).balanced();
         } else {
             extracted.current = n;
             return n.left;
@@ -307,13 +310,393 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
         if (n != null && n.left != null) {
             return new Node<>(
                     n.left.left,
-                    new Node<>(n.right,
-                            n.left.right,
+                    new Node<>(n.left.right,
+                            n.right,
                             n.entry),
                     n.left.entry);
         } else return n;
     }
 
+    // ======================== set operations ==========================
+    // Join based, from "Just Join for Parallel Ordered Sets" by Blelloch, Ferizovic and Sun.
+    // Each runs in O(m log(n/m + 1)) where m is the size of the smaller set, and subtrees the two sets share are
+    // reused as they are.
+
+    // Below this many entries, the two halves of an operation aren't worth forking.
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    /**
+     * @return A set with the entries in either set. Where both sets have equal entries, the ones from the other set
+     * are kept, as if they were added with {@link #with}.
+     */
+    public PersistentTreeSet<T> union(@NotNull PersistentTreeSet<T> other) {
+        return union(other, false);
+    }
+
+    /**
+     * @param parallel Whether to fork the recursion onto the common fork-join pool for large sets.
+     * @return A set with the entries in either set. Where both sets have equal entries, the ones from the other set
+     * are kept, as if they were added with {@link #with}.
+     */
+    public PersistentTreeSet<T> union(@NotNull PersistentTreeSet<T> other, boolean parallel) {
+        return combine(Operation.UNION, other, parallel);
+    }
+
+    /**
+     * @return A set with the entries in both sets. The entries are the ones from this set.
+     */
+    public PersistentTreeSet<T> intersection(@NotNull PersistentTreeSet<T> other) {
+        return intersection(other, false);
+    }
+
+    /**
+     * @param parallel Whether to fork the recursion onto the common fork-join pool for large sets.
+     * @return A set with the entries in both sets. The entries are the ones from this set.
+     */
+    public PersistentTreeSet<T> intersection(@NotNull PersistentTreeSet<T> other, boolean parallel) {
+        return combine(Operation.INTERSECTION, other, parallel);
+    }
+
+    /**
+     * @return A set with the entries in this set that aren't in the other set.
+     */
+    public PersistentTreeSet<T> difference(@NotNull PersistentTreeSet<T> other) {
+        return difference(other, false);
+    }
+
+    /**
+     * @param parallel Whether to fork the recursion onto the common fork-join pool for large sets.
+     * @return A set with the entries in this set that aren't in the other set.
+     */
+    public PersistentTreeSet<T> difference(@NotNull PersistentTreeSet<T> other, boolean parallel) {
+        return combine(Operation.DIFFERENCE, other, parallel);
+    }
+
+    /**
+     * @return A set with the entries that are in one set but not the other.
+     */
+    public PersistentTreeSet<T> symmetricDifference(@NotNull PersistentTreeSet<T> other) {
+        return symmetricDifference(other, false);
+    }
+
+    /**
+     * @param parallel Whether to fork the recursion onto the common fork-join pool for large sets.
+     * @return A set with the entries that are in one set but not the other.
+     */
+    public PersistentTreeSet<T> symmetricDifference(@NotNull PersistentTreeSet<T> other, boolean parallel) {
+        return combine(Operation.SYMMETRIC_DIFFERENCE, other, parallel);
+    }
+
+    private PersistentTreeSet<T> combine(Operation operation, PersistentTreeSet<T> other, boolean parallel) {
+        Objects.requireNonNull(other);
+        final var result = combine(operation, root, other.root, parallel);
+        if (result == root) return this;
+        if (result == other.root) return other;
+        return Assertions.assert_CorrectSize(new PersistentTreeSet<>(result, sizeOf(result)));
+    }
+
+    private enum Operation {UNION, INTERSECTION, DIFFERENCE, SYMMETRIC_DIFFERENCE}
+
+    private static <T extends Comparable<T>> Node<T> combine(Operation operation, Node<T> a, Node<T> b, boolean parallel) {
+        // base cases
+        if (a == b) {
+            return switch (operation) {
+                case UNION, INTERSECTION -> a;
+                case DIFFERENCE, SYMMETRIC_DIFFERENCE -> null;
+            };
+        }
+        if (a == null) {
+            return switch (operation) {
+                case UNION, SYMMETRIC_DIFFERENCE -> b;
+                case INTERSECTION, DIFFERENCE -> null;
+            };
+        }
+        if (b == null) {
+            return switch (operation) {
+                case UNION, DIFFERENCE, SYMMETRIC_DIFFERENCE -> a;
+                case INTERSECTION -> null;
+            };
+        }
+
+        // Split one set around the root of the other. Which one gets split decides whose entries are kept.
+        final Node<T> pivot;
+        final Split<T> split;
+        if (operation == Operation.UNION || operation == Operation.DIFFERENCE) {
+            pivot = b;
+            split = split(a, b.entry);
+        } else {
+            pivot = a;
+            split = split(b, a.entry);
+        }
+
+        // recursive case
+        final Node<T> left;
+        final Node<T> right;
+        if (parallel && sizeOf(a) + sizeOf(b) >= PARALLEL_THRESHOLD) {
+            final var leftTask = ForkJoinTask.adapt(() -> pivot == b
+                    ? combine(operation, split.left, b.left, true)
+                    : combine(operation, a.left, split.left, true)).fork();
+            right = pivot == b
+                    ? combine(operation, split.right, b.right, true)
+                    : combine(operation, a.right, split.right, true);
+            left = leftTask.join();
+        } else {
+            left = pivot == b
+                    ? combine(operation, split.left, b.left, false)
+                    : combine(operation, a.left, split.left, false);
+            right = pivot == b
+                    ? combine(operation, split.right, b.right, false)
+                    : combine(operation, a.right, split.right, false);
+        }
+
+        final boolean keepPivot = switch (operation) {
+            case UNION -> true;
+            case INTERSECTION -> split.found != null;
+            case DIFFERENCE -> false;
+            case SYMMETRIC_DIFFERENCE -> split.found == null;
+        };
+
+        if (keepPivot) {
+            if (left == pivot.left && right == pivot.right) return pivot;
+            return join(left, pivot.entry, right);
+        } else {
+            return join(left, right);
+        }
+    }
+
+    /**
+     * The entries of a tree less than and greater than some value, and the entry equal to it if there was one.
+     */
+    private record Split<T extends Comparable<T>>(Node<T> left, T found, Node<T> right) {
+    }
+
+    private static <T extends Comparable<T>> Split<T> split(Node<T> n, T value) {
+        if (n == null) return new Split<>(null, null, null);
+
+        final var comparison = value.compareTo(n.entry);
+        if (comparison < 0) {
+            final var leftSplit = split(n.left, value);
+            return new Split<>(leftSplit.left, leftSplit.found, join(leftSplit.right, n.entry, n.right));
+        } else if (comparison > 0) {
+            final var rightSplit = split(n.right, value);
+            return new Split<>(join(n.left, n.entry, rightSplit.left), rightSplit.found, rightSplit.right);
+        } else {
+            return new Split<>(n.left, n.entry, n.right);
+        }
+    }
+
+    /**
+     * @return A tree with the entries of the left tree, the entry, and the entries of the right tree.
+     * Everything in left must be less than the entry and everything in right greater.
+     */
+    private static <T extends Comparable<T>> Node<T> join(Node<T> left, T entry, Node<T> right) {
+        if (depthOf(left) > depthOf(right) + 1) {
+            return joinRight(left, entry, right);
+        } else if (depthOf(right) > depthOf(left) + 1) {
+            return joinLeft(left, entry, right);
+        } else {
+            return new Node<>(left, right, entry);
+        }
+    }
+
+    /**
+     * Goes down the right spine of the left tree until finding a subtree about as deep as the right tree.
+     */
+    private static <T extends Comparable<T>> Node<T> joinRight(Node<T> left, T entry, Node<T> right) {
+        if (depthOf(left) <= depthOf(right) + 1) return new Node<>(left, right, entry);
+        return new Node<>(left.left, joinRight(left.right, entry, right), left.entry).balanced();
+    }
+
+    /**
+     * Goes down the left spine of the right tree until finding a subtree about as deep as the left tree.
+     */
+    private static <T extends Comparable<T>> Node<T> joinLeft(Node<T> left, T entry, Node<T> right) {
+        if (depthOf(right) <= depthOf(left) + 1) return new Node<>(left, right, entry);
+        return new Node<>(joinLeft(left, entry, right.left), right.right, right.entry).balanced();
+    }
+
+    /**
+     * Joins the trees around the entry, or just the trees if the entry is null.
+     */
+    private static <T extends Comparable<T>> Node<T> joinIfPresent(Node<T> left, T entry, Node<T> right) {
+        return entry == null ? join(left, right) : join(left, entry, right);
+    }
+
+    /**
+     * @return A tree with the entries of both trees. Everything in left must be less than everything in right.
+     */
+    private static <T extends Comparable<T>> Node<T> join(Node<T> left, Node<T> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        final var largest = new Pointer<Node<T>>();
+        final var rest = extractLargestRelativeTo(left, largest);
+        return join(rest, largest.current.entry, right);
+    }
+
+    // ======================== order statistics and ranges ==========================
+
+    /**
+     * @return How many entries are less than the value.
+     */
+    public int rank(@NotNull T value) {
+        Objects.requireNonNull(value);
+        int rank = 0;
+        var n = root;
+        while (n != null) {
+            final var comparison = value.compareTo(n.entry);
+            if (comparison < 0) {
+                n = n.left;
+            } else if (comparison > 0) {
+                rank += sizeOf(n.left) + 1;
+                n = n.right;
+            } else {
+                return rank + sizeOf(n.left);
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return The entry at the index in sorted order, so that rank(select(i)) == i.
+     * @throws IndexOutOfBoundsException If the index is negative or not less than the size of the set.
+     */
+    public T select(int index) {
+        Objects.checkIndex(index, size());
+        var n = root;
+        while (true) {
+            final var leftSize = sizeOf(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                n = n.right;
+            } else {
+                return n.entry;
+            }
+        }
+    }
+
+    /**
+     * @return How many entries are at least lo and less than hi.
+     * @throws IllegalArgumentException If lo is greater than hi.
+     */
+    public int countInRange(@NotNull T lo, @NotNull T hi) {
+        requireOrdered(lo, hi);
+        return rank(hi) - rank(lo);
+    }
+
+    /**
+     * @return The entries less than the value. Shares structure with this set.
+     */
+    public PersistentTreeSet<T> headSet(@NotNull T to) {
+        return headSet(to, false);
+    }
+
+    /**
+     * @return The entries less than (or equal to, if inclusive) the value. Shares structure with this set.
+     */
+    public PersistentTreeSet<T> headSet(@NotNull T to, boolean inclusive) {
+        Objects.requireNonNull(to);
+        final var split = split(root, to);
+        return fromSplitPart(split.left, inclusive ? split.found : null, null);
+    }
+
+    /**
+     * @return The entries greater than or equal to the value. Shares structure with this set.
+     */
+    public PersistentTreeSet<T> tailSet(@NotNull T from) {
+        return tailSet(from, true);
+    }
+
+    /**
+     * @return The entries greater than (or equal to, if inclusive) the value. Shares structure with this set.
+     */
+    public PersistentTreeSet<T> tailSet(@NotNull T from, boolean inclusive) {
+        Objects.requireNonNull(from);
+        final var split = split(root, from);
+        return fromSplitPart(null, inclusive ? split.found : null, split.right);
+    }
+
+    /**
+     * @return The entries at least from and less than to. Shares structure with this set.
+     * @throws IllegalArgumentException If from is greater than to.
+     */
+    public PersistentTreeSet<T> subSet(@NotNull T from, @NotNull T to) {
+        return subSet(from, true, to, false);
+    }
+
+    /**
+     * @return The entries between from and to. Shares structure with this set.
+     * @throws IllegalArgumentException If from is greater than to.
+     */
+    public PersistentTreeSet<T> subSet(@NotNull T from, boolean fromInclusive, @NotNull T to, boolean toInclusive) {
+        requireOrdered(from, to);
+        final var afterFrom = split(root, from);
+        final var tail = joinIfPresent(null, fromInclusive ? afterFrom.found : null, afterFrom.right);
+        final var beforeTo = split(tail, to);
+        return fromSplitPart(beforeTo.left, toInclusive ? beforeTo.found : null, null);
+    }
+
+    /**
+     * @return The greatest entry less than or equal to the value, or null if there isn't one.
+     */
+    public T floor(@NotNull T value) {
+        return closest(value, true, true);
+    }
+
+    /**
+     * @return The least entry greater than or equal to the value, or null if there isn't one.
+     */
+    public T ceiling(@NotNull T value) {
+        return closest(value, false, true);
+    }
+
+    /**
+     * @return The least entry strictly greater than the value, or null if there isn't one.
+     */
+    public T higher(@NotNull T value) {
+        return closest(value, false, false);
+    }
+
+    /**
+     * @return The greatest entry strictly less than the value, or null if there isn't one.
+     */
+    public T lower(@NotNull T value) {
+        return closest(value, true, false);
+    }
+
+    private T closest(T value, boolean below, boolean inclusive) {
+        Objects.requireNonNull(value);
+        T best = null;
+        var n = root;
+        while (n != null) {
+            final var comparison = value.compareTo(n.entry);
+            if (comparison == 0 && inclusive) {
+                return n.entry;
+            } else if (below ? comparison > 0 : comparison >= 0) {
+                if (below) best = n.entry;
+                n = n.right;
+            } else {
+                if (!below) best = n.entry;
+                n = n.left;
+            }
+        }
+        return best;
+    }
+
+    private static <T extends Comparable<T>> void requireOrdered(T lo, T hi) {
+        Objects.requireNonNull(lo);
+        Objects.requireNonNull(hi);
+        if (lo.compareTo(hi) > 0) throw new IllegalArgumentException("lo is greater than hi");
+    }
+
+    private PersistentTreeSet<T> fromSplitPart(Node<T> left, T entry, Node<T> right) {
+        final var result = joinIfPresent(left, entry, right);
+        if (result == root) return this;
+        return Assertions.assert_CorrectSize(new PersistentTreeSet<>(result, sizeOf(result)));
+    }
+
     static byte depthOf(Node<?> n) {
         if (n == null) {
             return 0;
@@ -322,6 +705,14 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
         }
     }
 
+    static int sizeOf(Node<?> n) {
+        if (n == null) {
+            return 0;
+        } else {
+            return n.size;
+        }
+    }
+
     static int balanceFactorOf(Node<?> n) {
         if (n == null) {
             return 0;
@@ -339,6 +730,8 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
         final byte balanceFactor;
         // depth can't be greater than log_2(2^31) = 31
         final byte depth;
+        // number of entries in this subtree
+        final int size;
 
         Node(Node<T> left, Node<T> right, @NotNull T entry) {
             assert entry != null;
@@ -347,6 +740,7 @@ public class PersistentTreeSet<T extends Comparable<T>> extends AbstractSet<T> i
             this.entry = entry;
             depth = (byte) (Math.max(depthOf(left), depthOf(right)) + 1);
             balanceFactor = (byte) (depthOf(right) - depthOf(left));
+            size = sizeOf(left) + sizeOf(right) + 1;
         }
 
         Node<T> balanced() {
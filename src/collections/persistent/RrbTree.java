@@ -0,0 +1,679 @@
+package collections.persistent;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Relaxed radix balanced tree (RRB-tree), the structure behind the persistent lists.
+ * <p>
+ * Branches have up to 32 children and keep a table of the cumulative sizes of their children, so they don't need to be
+ * completely full. This keeps lookup, update, slicing and concatenation at O(log<sub>32</sub> n).
+ * All leaves are at the same depth.
+ * <p>
+ * Leaves hold arrays of items. The tree only ever copies them with {@link System#arraycopy}, so it doesn't care about
+ * their component type beyond keeping primitive arrays primitive; that's up to the list using the tree.
+ * <p>
+ * Based on "RRB-Trees: Efficient Immutable Vectors" by Bagwell and Rompf, and "Improving RRB-Tree Performance through
+ * Transience" by L'orange.
+ */
+final class RrbTree {
+    static final int BITS = 5;
+    static final int BRANCHING = 1 << BITS;
+    /**
+     * How many more nodes than optimal are tolerated in a level after concatenation before it is redistributed.
+     */
+    private static final int EXTRAS = 2;
+
+    private RrbTree() {
+    }
+
+    // ============================ nodes ===================================
+    interface Node extends java.io.Serializable {
+        int itemCount();
+
+        /**
+         * @return How far this node is above the leaves. Leaves have a height of 0.
+         */
+        int height();
+    }
+
+    static final class Leaf implements Node {
+        /**
+         * An array of items.
+         */
+        @NotNull
+        final Object items;
+        final int itemCount;
+
+        Leaf(@NotNull Object items) {
+            this.items = items;
+            this.itemCount = Array.getLength(items);
+        }
+
+        @Override
+        public int itemCount() {
+            return itemCount;
+        }
+
+        @Override
+        public int height() {
+            return 0;
+        }
+    }
+
+    static final class Branch implements Node {
+        @NotNull
+        final Node[] children;
+        /**
+         * sizes[i] is the number of items in children 0 through i.
+         */
+        @NotNull
+        final int[] sizes;
+        final int height;
+        private final int shift;
+
+        Branch(@NotNull Node[] children, @NotNull int[] sizes) {
+            assert children.length > 0 && children.length <= BRANCHING;
+            assert children.length == sizes.length;
+            this.children = children;
+            this.sizes = sizes;
+            height = children[0].height() + 1;
+            shift = BITS * (height);
+        }
+
+        Branch(@NotNull Node[] children) {
+            this(children, sizesOf(children));
+        }
+
+        private static int[] sizesOf(Node[] children) {
+            final var sizes = new int[children.length];
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                total += children[i].itemCount();
+                sizes[i] = total;
+            }
+            return sizes;
+        }
+
+        @Override
+        public int itemCount() {
+            return sizes[sizes.length - 1];
+        }
+
+        @Override
+        public int height() {
+            return height;
+        }
+
+        /**
+         * @return The index of the child containing the item at the index.
+         */
+        int slotOf(int index) {
+            // No child can hold more than 32^height items, so the item can't come before the slot it would be in if
+            // every child were full. Guess that slot and scan right.
+            int slot = shift < Integer.SIZE - 1 ? index >>> shift : 0;
+            while (sizes[slot] <= index) slot++;
+            return slot;
+        }
+
+        /**
+         * @return The index of the first item in the child at the slot.
+         */
+        int offsetOf(int slot) {
+            return slot == 0 ? 0 : sizes[slot - 1];
+        }
+    }
+
+    /**
+     * Replaces the items of a leaf.
+     */
+    interface LeafUpdate {
+        /**
+         * @param items The array of the leaf containing the index.
+         * @param index The index within that leaf.
+         * @return The new array for the leaf.
+         */
+        Object apply(Object items, int index);
+    }
+
+    // ============================ operations ===================================
+
+    /**
+     * Builds a tree out of full leaves, except for the last, which may be short.
+     *
+     * @param leaves The arrays of items for each leaf. Must not be empty.
+     */
+    static Node fromLeaves(List<?> leaves) {
+        assert !leaves.isEmpty();
+
+        var level = new Node[leaves.size()];
+        for (int i = 0; i < level.length; i++) {
+            level[i] = new Leaf(leaves.get(i));
+        }
+
+        while (level.length > 1) {
+            final var parents = new Node[(level.length + BRANCHING - 1) / BRANCHING];
+            for (int i = 0; i < parents.length; i++) {
+                final var start = i * BRANCHING;
+                parents[i] = new Branch(Arrays.copyOfRange(level, start, Math.min(level.length, start + BRANCHING)));
+            }
+            level = parents;
+        }
+        return level[0];
+    }
+
+    /**
+     * @return The leaf containing the item at the index.
+     */
+    static Leaf leafAt(Node node, int index) {
+        while (node instanceof Branch branch) {
+            final var slot = branch.slotOf(index);
+            index -= branch.offsetOf(slot);
+            node = branch.children[slot];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * @return The index of the first item in the leaf containing the item at the index.
+     */
+    static int leafStart(Node node, int index) {
+        int start = 0;
+        while (node instanceof Branch branch) {
+            final var slot = branch.slotOf(index - start);
+            start += branch.offsetOf(slot);
+            node = branch.children[slot];
+        }
+        return start;
+    }
+
+    /**
+     * @return A copy of the tree with the leaf containing the index replaced.
+     */
+    static Node updated(Node node, int index, LeafUpdate update) {
+        if (node instanceof Branch branch) {
+            final var slot = branch.slotOf(index);
+            final var children = branch.children.clone();
+            children[slot] = updated(children[slot], index - branch.offsetOf(slot), update);
+            // the number of items doesn't change, so neither do the sizes
+            return new Branch(children, branch.sizes);
+        } else {
+            final var leaf = (Leaf) node;
+            final var items = update.apply(leaf.items, index);
+            assert Array.getLength(items) == leaf.itemCount;
+            return new Leaf(items);
+        }
+    }
+
+    /**
+     * @return A tree containing the items from start (inclusive) to end (exclusive). Shares as much as it can with the
+     * original. If the range is empty, the result is an empty leaf.
+     */
+    static Node slice(Node node, int start, int end) {
+        assert 0 <= start && start <= end && end <= node.itemCount();
+        if (start == end) {
+            final var leaf = leafAt(node, Math.min(start, node.itemCount() - 1));
+            return new Leaf(copyOfRange(leaf.items, 0, 0));
+        }
+
+        var result = sliceKeepingHeight(node, start, end);
+        while (result instanceof Branch branch && branch.children.length == 1) {
+            result = branch.children[0];
+        }
+        return result;
+    }
+
+    private static Node sliceKeepingHeight(Node node, int start, int end) {
+        if (start == 0 && end == node.itemCount()) return node;
+
+        if (node instanceof Branch branch) {
+            final var first = branch.slotOf(start);
+            final var last = branch.slotOf(end - 1);
+            final var children = Arrays.copyOfRange(branch.children, first, last + 1);
+
+            final var firstOffset = branch.offsetOf(first);
+            children[0] = sliceKeepingHeight(
+                    children[0],
+                    start - firstOffset,
+                    Math.min(end, branch.sizes[first]) - firstOffset);
+
+            if (last != first) {
+                final var lastOffset = branch.offsetOf(last);
+                children[children.length - 1] = sliceKeepingHeight(
+                        children[children.length - 1],
+                        0,
+                        end - lastOffset);
+            }
+
+            return new Branch(children);
+        } else {
+            return new Leaf(copyOfRange(((Leaf) node).items, start, end));
+        }
+    }
+
+    /**
+     * @return A tree containing the items of a followed by the items of b.
+     */
+    static Node concat(Node a, Node b) {
+        if (a.itemCount() == 0) return b;
+        if (b.itemCount() == 0) return a;
+
+        if (b instanceof Leaf leaf) {
+            final var appended = appendedToLastLeaf(a, leaf);
+            if (appended != null) return appended;
+        }
+
+        Node result = concatSubTrees(a, b);
+        while (result instanceof Branch branch && branch.children.length == 1) {
+            result = branch.children[0];
+        }
+        return result;
+    }
+
+    /**
+     * Appending a few items is common enough to be worth skipping the general concatenation algorithm for.
+     *
+     * @return A copy of the tree with the items of the leaf added to its last leaf, or null if they don't fit.
+     */
+    private static Node appendedToLastLeaf(Node node, Leaf items) {
+        if (node instanceof Branch branch) {
+            final var last = branch.children.length - 1;
+            final var newLast = appendedToLastLeaf(branch.children[last], items);
+            if (newLast == null) return null;
+
+            final var children = branch.children.clone();
+            children[last] = newLast;
+            final var sizes = branch.sizes.clone();
+            sizes[last] += items.itemCount;
+            return new Branch(children, sizes);
+        } else {
+            final var leaf = (Leaf) node;
+            if (leaf.itemCount + items.itemCount > BRANCHING) return null;
+
+            final var newItems = newArrayLike(leaf.items, leaf.itemCount + items.itemCount);
+            System.arraycopy(leaf.items, 0, newItems, 0, leaf.itemCount);
+            System.arraycopy(items.items, 0, newItems, leaf.itemCount, items.itemCount);
+            return new Leaf(newItems);
+        }
+    }
+
+    /**
+     * @return A branch one level above the higher of the two nodes, with one or two children.
+     */
+    private static Branch concatSubTrees(Node left, Node right) {
+        if (left.height() > right.height()) {
+            final var leftBranch = (Branch) left;
+            final var middle = concatSubTrees(leftBranch.children[leftBranch.children.length - 1], right);
+            return rebalanced(leftBranch, middle, null);
+        } else if (left.height() < right.height()) {
+            final var rightBranch = (Branch) right;
+            final var middle = concatSubTrees(left, rightBranch.children[0]);
+            return rebalanced(null, middle, rightBranch);
+        } else if (left instanceof Leaf leftLeaf && right instanceof Leaf rightLeaf) {
+            if (leftLeaf.itemCount + rightLeaf.itemCount <= BRANCHING) {
+                final var items = newArrayLike(leftLeaf.items, leftLeaf.itemCount + rightLeaf.itemCount);
+                System.arraycopy(leftLeaf.items, 0, items, 0, leftLeaf.itemCount);
+                System.arraycopy(rightLeaf.items, 0, items, leftLeaf.itemCount, rightLeaf.itemCount);
+                return new Branch(new Node[]{new Leaf(items)});
+            } else {
+                return new Branch(new Node[]{leftLeaf, rightLeaf});
+            }
+        } else {
+            final var leftBranch = (Branch) left;
+            final var rightBranch = (Branch) right;
+            final var middle = concatSubTrees(
+                    leftBranch.children[leftBranch.children.length - 1],
+                    rightBranch.children[0]);
+            return rebalanced(leftBranch, middle, rightBranch);
+        }
+    }
+
+    /**
+     * Merges the children of left (but its last), middle, and right (but its first) and redistributes them so that
+     * there aren't too many nodes that are too small.
+     *
+     * @return A branch two levels above the merged children, with one or two children.
+     */
+    private static Branch rebalanced(Branch left, Branch middle, Branch right) {
+        final var leftCount = left == null ? 0 : left.children.length - 1;
+        final var rightCount = right == null ? 0 : right.children.length - 1;
+        final var all = new Node[leftCount + middle.children.length + rightCount];
+        if (left != null) System.arraycopy(left.children, 0, all, 0, leftCount);
+        System.arraycopy(middle.children, 0, all, leftCount, middle.children.length);
+        if (right != null) System.arraycopy(right.children, 1, all, leftCount + middle.children.length, rightCount);
+
+        final var redistributed = redistributed(all);
+
+        if (redistributed.length <= BRANCHING) {
+            return new Branch(new Node[]{new Branch(redistributed)});
+        } else {
+            return new Branch(new Node[]{
+                    new Branch(Arrays.copyOfRange(redistributed, 0, BRANCHING)),
+                    new Branch(Arrays.copyOfRange(redistributed, BRANCHING, redistributed.length))});
+        }
+    }
+
+    private static int slotCount(Node node) {
+        return node instanceof Branch branch ? branch.children.length : node.itemCount();
+    }
+
+    /**
+     * Moves the contents of the nodes left until there are no more than {@link #EXTRAS} more nodes than the minimum
+     * needed to hold everything. Nodes that don't need to change are reused.
+     *
+     * @param nodes Siblings, all at the same height.
+     */
+    private static Node[] redistributed(Node[] nodes) {
+        var count = nodes.length;
+        final var slotCounts = new int[count];
+        int totalSlots = 0;
+        for (int i = 0; i < count; i++) {
+            slotCounts[i] = slotCount(nodes[i]);
+            totalSlots += slotCounts[i];
+        }
+        final var optimalCount = (totalSlots - 1) / BRANCHING + 1;
+
+        if (count <= optimalCount + EXTRAS) return nodes;
+
+        // plan
+        while (count > optimalCount + EXTRAS) {
+            // find the first node that isn't full
+            int i = 0;
+            while (slotCounts[i] >= BRANCHING) i++;
+
+            // spread its slots over the nodes after it
+            int remaining = slotCounts[i];
+            do {
+                final var newCount = Math.min(remaining + slotCounts[i + 1], BRANCHING);
+                remaining = remaining + slotCounts[i + 1] - newCount;
+                slotCounts[i] = newCount;
+                i++;
+            } while (remaining > 0);
+
+            // the node at i has been emptied into its neighbors
+            System.arraycopy(slotCounts, i + 1, slotCounts, i, count - i - 1);
+            count--;
+        }
+
+        // execute the plan
+        final var result = new Node[count];
+        int source = 0;
+        int sourceOffset = 0;
+        for (int i = 0; i < count; i++) {
+            final var wanted = slotCounts[i];
+
+            if (sourceOffset == 0 && slotCount(nodes[source]) == wanted) {
+                result[i] = nodes[source++];
+                continue;
+            }
+
+            if (nodes[source] instanceof Leaf firstLeaf) {
+                final var items = newArrayLike(firstLeaf.items, wanted);
+                int filled = 0;
+                while (filled < wanted) {
+                    final var leaf = (Leaf) nodes[source];
+                    final var taken = Math.min(wanted - filled, leaf.itemCount - sourceOffset);
+                    System.arraycopy(leaf.items, sourceOffset, items, filled, taken);
+                    filled += taken;
+                    sourceOffset += taken;
+                    if (sourceOffset == leaf.itemCount) {
+                        source++;
+                        sourceOffset = 0;
+                    }
+                }
+                result[i] = new Leaf(items);
+            } else {
+                final var children = new Node[wanted];
+                int filled = 0;
+                while (filled < wanted) {
+                    final var branch = (Branch) nodes[source];
+                    final var taken = Math.min(wanted - filled, branch.children.length - sourceOffset);
+                    System.arraycopy(branch.children, sourceOffset, children, filled, taken);
+                    filled += taken;
+                    sourceOffset += taken;
+                    if (sourceOffset == branch.children.length) {
+                        source++;
+                        sourceOffset = 0;
+                    }
+                }
+                result[i] = new Branch(children);
+            }
+        }
+        assert source == nodes.length;
+        return result;
+    }
+
+    // ============================ walking ===================================
+
+    /**
+     * Position in a tree that remembers which leaf it's in, so that moving to a neighboring item doesn't start over
+     * from the root. The index goes from -1, before the first item, to the item count, after the last.
+     */
+    static final class Cursor {
+        @NotNull
+        private final Node root;
+        private int index;
+        // the leaf containing the current index and the range of indexes it holds
+        private Object items = null;
+        private int leafStart = 0;
+        private int leafEnd = 0;
+
+        Cursor(@NotNull Node root, int index) {
+            assert -1 <= index && index <= root.itemCount();
+            this.root = root;
+            this.index = index;
+        }
+
+        boolean moveNext() {
+            if (index >= root.itemCount()) return false;
+            index++;
+            return index < root.itemCount();
+        }
+
+        boolean movePrevious() {
+            if (index <= -1) return false;
+            index--;
+            return index > -1;
+        }
+
+        int index() {
+            return index;
+        }
+
+        boolean inBounds() {
+            return index > -1 && index < root.itemCount();
+        }
+
+        /**
+         * @return The array of the leaf containing the current item, which must be in bounds.
+         */
+        Object items() {
+            if (index < leafStart || index >= leafEnd) {
+                Node node = root;
+                int start = 0;
+                while (node instanceof Branch branch) {
+                    final var slot = branch.slotOf(index - start);
+                    start += branch.offsetOf(slot);
+                    node = branch.children[slot];
+                }
+                final var leaf = (Leaf) node;
+                items = leaf.items;
+                leafStart = start;
+                leafEnd = start + leaf.itemCount;
+            }
+            return items;
+        }
+
+        /**
+         * @return Where the current item is in the array returned by {@link #items()}.
+         */
+        int indexInLeaf() {
+            return index - leafStart;
+        }
+    }
+
+    /**
+     * Does something with a range of a leaf's array.
+     */
+    interface LeafAction {
+        void accept(Object items, int start, int end);
+    }
+
+    /**
+     * Base for spliterators that split along the branches of the tree instead of by index, and walk the arrays of the
+     * leaves directly instead of looking up every item from the root.
+     *
+     * @param <S> The type of the spliterator extending this.
+     */
+    abstract static class LeafSpliterator<S extends LeafSpliterator<S>> {
+        // Nodes yet to be walked, in order. Any items left in the current leaf come before all of them.
+        private final ArrayDeque<Node> pending;
+        /**
+         * The array of the current leaf. Items from {@link #index} up to {@link #end} have yet to be walked.
+         */
+        protected Object items;
+        protected int index;
+        protected int end;
+        private long remaining;
+
+        protected LeafSpliterator(@NotNull Node root) {
+            this(null, 0, 0, new ArrayDeque<>(), root.itemCount());
+            pending.addFirst(root);
+        }
+
+        protected LeafSpliterator(Object items, int index, int end, ArrayDeque<Node> pending, long remaining) {
+            this.items = items;
+            this.index = index;
+            this.end = end;
+            this.pending = pending;
+            this.remaining = remaining;
+        }
+
+        protected abstract S split(Object items, int index, int end, ArrayDeque<Node> pending, long remaining);
+
+        public S trySplit() {
+            if (pending.isEmpty()) return null;
+
+            if (pending.size() == 1 && index >= end) {
+                // only one node left, split its children down the middle
+                if (!(pending.peekFirst() instanceof Branch branch)) return null;
+                pending.pollFirst();
+
+                if (branch.children.length == 1) {
+                    pending.addFirst(branch.children[0]);
+                    return trySplit();
+                }
+
+                final var half = branch.children.length / 2;
+                final var prefix = new ArrayDeque<Node>(half);
+                for (int i = 0; i < half; i++) prefix.addLast(branch.children[i]);
+                for (int i = branch.children.length - 1; i >= half; i--) pending.addFirst(branch.children[i]);
+
+                final var prefixSize = branch.offsetOf(half);
+                remaining -= prefixSize;
+                return split(null, 0, 0, prefix, prefixSize);
+            }
+
+            // Give away the rest of the current leaf and every pending node except for the last.
+            // The last pending node is the right sibling of the highest branch on the path to the current leaf,
+            // which makes it the largest and a reasonable halfway point.
+            final var prefix = new ArrayDeque<Node>();
+            long prefixSize = end - index;
+            while (pending.size() > 1) {
+                final var node = pending.pollFirst();
+                prefixSize += node.itemCount();
+                prefix.addLast(node);
+            }
+
+            final var split = split(items, index, end, prefix, prefixSize);
+            items = null;
+            index = 0;
+            end = 0;
+            remaining -= prefixSize;
+            return split;
+        }
+
+        /**
+         * Moves on to the next leaf if the current one is used up, and counts the item at {@link #index} as walked.
+         * The caller is expected to read that item and increment the index.
+         *
+         * @return Whether there was an item left.
+         */
+        protected final boolean claimNext() {
+            while (index >= end) {
+                if (pending.isEmpty()) return false;
+                Node node = pending.pollFirst();
+                while (node instanceof Branch branch) {
+                    for (int i = branch.children.length - 1; i > 0; i--) {
+                        pending.addFirst(branch.children[i]);
+                    }
+                    node = branch.children[0];
+                }
+                final var leaf = (Leaf) node;
+                items = leaf.items;
+                index = 0;
+                end = leaf.itemCount;
+            }
+            remaining--;
+            return true;
+        }
+
+        /**
+         * Walks everything that's left, a leaf at a time.
+         */
+        protected final void forEachRemainingLeaf(LeafAction action) {
+            if (index < end) action.accept(items, index, end);
+            items = null;
+            index = 0;
+            end = 0;
+
+            Node node;
+            while ((node = pending.pollFirst()) != null) {
+                forEachLeaf(node, action);
+            }
+            remaining = 0;
+        }
+
+        private static void forEachLeaf(Node node, LeafAction action) {
+            if (node instanceof Branch branch) {
+                for (final var child : branch.children) {
+                    forEachLeaf(child, action);
+                }
+            } else {
+                final var leaf = (Leaf) node;
+                action.accept(leaf.items, 0, leaf.itemCount);
+            }
+        }
+
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.IMMUTABLE;
+        }
+    }
+
+    // ============================ arrays ===================================
+
+    /**
+     * @return A new array with the same primitive component type as the given one, or an Object[] for any array of
+     * references. A leaf might have been adopted from a String[] passed in as an Object[], and copying that type
+     * along would make storing anything else in the copy throw ArrayStoreException.
+     */
+    static Object newArrayLike(Object array, int length) {
+        final var componentType = array.getClass().getComponentType();
+        return componentType.isPrimitive() ? Array.newInstance(componentType, length) : new Object[length];
+    }
+
+    static Object copyOfRange(Object array, int start, int end) {
+        final var copy = newArrayLike(array, end - start);
+        System.arraycopy(array, start, copy, 0, end - start);
+        return copy;
+    }
+}
@@ -0,0 +1,18 @@
+package collections.reference;
+
+/**
+ * When a reference map gets rid of the entries whose keys have been collected.
+ */
+public enum CleanupMode {
+    /**
+     * Every call drains the map's reference queue first, on the caller's thread. Collected entries never linger, but
+     * lookups pay for whatever the garbage collector just cleared.
+     */
+    INLINE,
+    /**
+     * A shared daemon thread drains the queue after each garbage collection, and writes take a small batch off of it
+     * as they go. Lookups are pure reads. Collected entries can stick around until the next collection, but they never
+     * match anything. Only for the concurrent maps, since the cleaner thread writes to them.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,60 @@
+package collections.reference;
+
+import java.lang.ref.Reference;
+import java.util.Objects;
+
+/**
+ * Stands in for a key when looking it up, so lookups don't have to allocate a reference just to throw it away. It
+ * equals any reference to an equal key, which is all the backing maps need since they call equals on the key they're
+ * given rather than the one they're holding.
+ * <p>
+ * There's one per thread. It only holds on to the key while a lookup is running.
+ */
+final class LookupKey {
+    private static final ThreadLocal<LookupKey> PER_THREAD = ThreadLocal.withInitial(LookupKey::new);
+
+    private Object key;
+    private int hashCode;
+    private boolean identity;
+    private boolean inUse;
+
+    private LookupKey() {
+    }
+
+    /**
+     * @param identity Whether keys are compared with == and {@link System#identityHashCode} rather than equals and
+     *                 hashCode.
+     * @return A lookup key that has to be {@link #release() released} once the lookup is done.
+     */
+    static LookupKey of(Object key, boolean identity) {
+        var lookup = PER_THREAD.get();
+        // a key's equals or hashCode can look something up in another reference map
+        if (lookup.inUse) lookup = new LookupKey();
+
+        lookup.key = key;
+        lookup.identity = identity;
+        lookup.hashCode = identity ? System.identityHashCode(key) : Objects.hashCode(key);
+        lookup.inUse = true;
+        return lookup;
+    }
+
+    void release() {
+        key = null;
+        inUse = false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Reference<?> reference)) return false;
+
+        final var other = reference.get();
+        if (key == null || other == null) return false;
+
+        return identity ? key == other : key.equals(other);
+    }
+}
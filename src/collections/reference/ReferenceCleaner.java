@@ -0,0 +1,88 @@
+package collections.reference;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Daemon thread that drains the reference queues of the maps in {@link CleanupMode#BACKGROUND} mode. Keys are only
+ * ever cleared by the garbage collector, so instead of polling it waits on a canary: a weak reference to an otherwise
+ * unreachable object, which the next collection clears. Once it's been cleared the thread drains every map and plants
+ * a new one.
+ * <p>
+ * Maps are held weakly, and dropped from the list once they've been collected.
+ */
+final class ReferenceCleaner {
+    private static final ReferenceCleaner SHARED = new ReferenceCleaner("reference-map-cleaner");
+
+    private final ConcurrentLinkedQueue<Registration<?>> maps = new ConcurrentLinkedQueue<>();
+    private final ReferenceQueue<Object> collections = new ReferenceQueue<>();
+    /**
+     * Kept in a field so the reference itself stays reachable, otherwise it could be collected before it's enqueued.
+     */
+    private WeakReference<Object> canary;
+
+    private ReferenceCleaner(String threadName) {
+        final var worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    static ReferenceCleaner shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param prune Drains the map's queue. It's given the map each time so it doesn't have to hold on to it.
+     */
+    <M> void register(M map, Consumer<? super M> prune) {
+        maps.add(new Registration<>(map, prune));
+    }
+
+    private static final class Registration<M> extends WeakReference<M> {
+        private final Consumer<? super M> prune;
+
+        Registration(M map, Consumer<? super M> prune) {
+            super(map);
+            this.prune = prune;
+        }
+
+        /**
+         * @return False if the map has been collected.
+         */
+        boolean prune() {
+            final var map = get();
+            if (map == null) return false;
+            prune.accept(map);
+            return true;
+        }
+    }
+
+    private void run() {
+        canary = new WeakReference<>(new Object(), collections);
+        while (true) {
+            try {
+                collections.remove();
+            } catch (InterruptedException e) {
+                continue;
+            }
+
+            // plant the next one first so a collection that happens while draining isn't missed
+            canary = new WeakReference<>(new Object(), collections);
+            drainAll();
+        }
+    }
+
+    private void drainAll() {
+        final var iterator = maps.iterator();
+        while (iterator.hasNext()) {
+            try {
+                if (!iterator.next().prune()) iterator.remove();
+            } catch (Throwable e) {
+                final var thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
@@ -3,15 +3,40 @@ package collections.reference;
 import collections.adapters.AdapterSet;
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.util.AbstractMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 abstract class ReferenceMap<K, V> extends AbstractMap<K, V> {
+    /**
+     * How many collected entries a write takes out in {@link CleanupMode#BACKGROUND} mode, so a write right after a big
+     * collection doesn't end up doing all of the cleaning.
+     */
+    private static final int WRITE_BATCH = 16;
+
+    private static final VarHandle REGISTERED;
+
+    static {
+        try {
+            REGISTERED = MethodHandles.lookup().findVarHandle(ReferenceMap.class, "registered", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final Map<Reference<? extends K>, V> data;
     private final ReferenceQueue<K> possiblyCollected = new ReferenceQueue<>();
+    private final CleanupMode cleanupMode;
+    /**
+     * Whether the map has been handed to the {@link ReferenceCleaner} yet.
+     */
+    private volatile boolean registered = false;
 
     @NotNull
     protected abstract Map<Reference<? extends K>, V> buildData();
@@ -22,8 +47,35 @@ abstract class ReferenceMap<K, V> extends AbstractMap<K, V> {
     @NotNull
     protected abstract <T> Reference<T> buildKey(T k);
 
+    /**
+     * Whether keys are compared with == and {@link System#identityHashCode} instead of equals and hashCode. Has to
+     * match what the keys from buildKey do.
+     */
+    protected boolean compareByIdentity() {
+        return false;
+    }
+
     public ReferenceMap() {
+        this(CleanupMode.INLINE);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the mode is {@link CleanupMode#BACKGROUND} and the map from buildData isn't
+     *                                  a ConcurrentMap.
+     */
+    protected ReferenceMap(@NotNull CleanupMode cleanupMode) {
+        this.cleanupMode = Objects.requireNonNull(cleanupMode);
         data = buildData();
+
+        if (cleanupMode == CleanupMode.BACKGROUND) {
+            if (!(data instanceof ConcurrentMap)) {
+                throw new IllegalArgumentException("Background cleanup needs a concurrent map");
+            }
+        }
+    }
+
+    public CleanupMode getCleanupMode() {
+        return cleanupMode;
     }
 
     @Override
@@ -48,20 +100,57 @@ abstract class ReferenceMap<K, V> extends AbstractMap<K, V> {
         try {
             return data.put(buildKey(key, possiblyCollected), value);
         } finally {
-            prune();
+            afterWrite();
+        }
+    }
+
+    /**
+     * Atomic if the underlying map's putIfAbsent is, which it is for the concurrent variants.
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        try {
+            return data.putIfAbsent(buildKey(key, possiblyCollected), value);
+        } finally {
+            afterWrite();
+        }
+    }
+
+    /**
+     * Atomic if the underlying map's replace is. The key already in the map is kept.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean replace(K key, V oldValue, V newValue) {
+        afterWrite();
+        final var lookup = lookup(key);
+        try {
+            return ((Map<Object, V>) (Map<?, V>) data).replace(lookup, oldValue, newValue);
+        } finally {
+            lookup.release();
         }
     }
 
     @Override
     public V get(Object key) {
-        prune();
-        return data.get(buildKey(key));
+        beforeRead();
+        final var lookup = lookup(key);
+        try {
+            return data.get(lookup);
+        } finally {
+            lookup.release();
+        }
     }
 
     @Override
     public boolean containsKey(Object key) {
-        prune();
-        return data.containsKey(buildKey(key));
+        beforeRead();
+        final var lookup = lookup(key);
+        try {
+            return data.containsKey(lookup);
+        } finally {
+            lookup.release();
+        }
     }
 
     @Override
@@ -72,25 +161,63 @@ abstract class ReferenceMap<K, V> extends AbstractMap<K, V> {
 
     @Override
     public V remove(Object key) {
+        final var lookup = lookup(key);
         try {
-            return data.remove(buildKey(key));
+            return data.remove(lookup);
         } finally {
-            prune();
+            lookup.release();
+            afterWrite();
         }
     }
 
     @Override
     public boolean remove(Object key, Object value) {
+        final var lookup = lookup(key);
         try {
-            return data.remove(buildKey(key), value);
+            return data.remove(lookup, value);
         } finally {
+            lookup.release();
+            afterWrite();
+        }
+    }
+
+    // ====== cleanup ======
+
+    private LookupKey lookup(Object key) {
+        return LookupKey.of(key, compareByIdentity());
+    }
+
+    private void beforeRead() {
+        if (cleanupMode == CleanupMode.INLINE) prune();
+    }
+
+    private void afterWrite() {
+        if (cleanupMode == CleanupMode.INLINE) {
             prune();
+        } else {
+            if (!registered) register();
+            prune(WRITE_BATCH);
         }
     }
 
-    private void prune() {
+    /**
+     * Hands the map to the cleaner, on the first write rather than up front, since maps that never get written to
+     * have nothing to clean and are often made in large numbers.
+     */
+    private void register() {
+        if (REGISTERED.compareAndSet(this, false, true)) ReferenceCleaner.shared().register(this, ReferenceMap::prune);
+    }
+
+    /**
+     * Takes out every entry whose key has been collected.
+     */
+    void prune() {
+        prune(Integer.MAX_VALUE);
+    }
+
+    private void prune(int limit) {
         Reference<? extends K> ref;
-        while ((ref = possiblyCollected.poll()) != null) {
+        for (int i = 0; i < limit && (ref = possiblyCollected.poll()) != null; i++) {
             if (ref.get() == null) data.remove(ref);
         }
     }
@@ -8,6 +8,13 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class SoftConcurrentHashMap<K, V> extends ReferenceMap<K, V> {
+    public SoftConcurrentHashMap() {
+    }
+
+    public SoftConcurrentHashMap(@NotNull CleanupMode cleanupMode) {
+        super(cleanupMode);
+    }
+
     @NotNull
     @Override
     protected Map<Reference<? extends K>, V> buildData() {
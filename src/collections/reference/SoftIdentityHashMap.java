@@ -25,4 +25,9 @@ public class SoftIdentityHashMap<K, V> extends ReferenceMap<K, V> {
     protected <T> Reference<T> buildKey(T k, ReferenceQueue<T> queue) {
         return new SoftIdentityKey<>(k, queue);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected boolean compareByIdentity() {
+        return true;
+    }
+}
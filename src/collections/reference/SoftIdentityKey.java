@@ -2,7 +2,6 @@ package collections.reference;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Objects;
 
 class SoftIdentityKey<T> extends SoftReference<T> {
     public final T tHolder;
@@ -11,7 +10,7 @@ class SoftIdentityKey<T> extends SoftReference<T> {
     public SoftIdentityKey(T key, ReferenceQueue<T> queue) {
         super(key, queue);
         tHolder = null;
-        hashCode = Objects.hashCode(key);
+        hashCode = System.identityHashCode(key);
     }
 
     /**
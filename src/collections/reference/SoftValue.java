@@ -0,0 +1,18 @@
+package collections.reference;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+
+class SoftValue<T> extends SoftReference<T> implements ValueReference {
+    private final Object storedKey;
+
+    public SoftValue(T value, Object storedKey, ReferenceQueue<T> queue) {
+        super(value, queue);
+        this.storedKey = storedKey;
+    }
+
+    @Override
+    public Object storedKey() {
+        return storedKey;
+    }
+}
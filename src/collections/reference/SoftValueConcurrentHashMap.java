@@ -0,0 +1,30 @@
+package collections.reference;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * Holds its values softly, so they can be reclaimed when memory runs low while their keys stay strongly held. Good
+ * for small keys that map to big values.
+ */
+public class SoftValueConcurrentHashMap<K, V> extends ValueReferenceMap<K, V> {
+    public SoftValueConcurrentHashMap() {
+    }
+
+    public SoftValueConcurrentHashMap(@NotNull CleanupMode cleanupMode) {
+        super(cleanupMode);
+    }
+
+    @NotNull
+    @Override
+    protected Reference<V> buildValue(V value, Object storedKey, ReferenceQueue<V> queue) {
+        return new SoftValue<>(value, storedKey, queue);
+    }
+
+    @Override
+    protected boolean weakKeys() {
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package collections.reference;
+
+/**
+ * A reference to a value in a {@link ValueReferenceMap}, which remembers the key it's stored under so the entry can be
+ * found again once the value's been collected.
+ */
+interface ValueReference {
+    /**
+     * @return The key as it's stored in the backing map. That's the key itself, or the reference to it if keys are
+     * held by reference too.
+     */
+    Object storedKey();
+}
@@ -0,0 +1,373 @@
+package collections.reference;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent map that holds its values by soft or weak reference, and maybe its keys by weak reference too. An entry
+ * is gone as soon as its key or value has been collected, and it's taken out of the backing map once the reference
+ * shows up in a queue, the same way {@link ReferenceMap} does it for keys.
+ * <p>
+ * Null keys and values aren't allowed.
+ */
+abstract class ValueReferenceMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    /**
+     * How many collected references a write takes care of in {@link CleanupMode#BACKGROUND} mode.
+     */
+    private static final int WRITE_BATCH = 16;
+
+    private static final VarHandle REGISTERED;
+
+    static {
+        try {
+            REGISTERED = MethodHandles.lookup().findVarHandle(ValueReferenceMap.class, "registered", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Keyed by the keys themselves, or by weak references to them if {@link #weakKeys()}.
+     */
+    private final ConcurrentHashMap<Object, Reference<V>> data = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> collectedValues = new ReferenceQueue<>();
+    private final ReferenceQueue<K> collectedKeys = new ReferenceQueue<>();
+    private final CleanupMode cleanupMode;
+    /**
+     * Whether the map has been handed to the {@link ReferenceCleaner} yet.
+     */
+    private volatile boolean registered = false;
+
+    /**
+     * @return A reference to the value that also implements {@link ValueReference}, giving back the stored key.
+     */
+    @NotNull
+    protected abstract Reference<V> buildValue(V value, Object storedKey, ReferenceQueue<V> queue);
+
+    /**
+     * Whether keys are held by weak reference as well.
+     */
+    protected abstract boolean weakKeys();
+
+    public ValueReferenceMap() {
+        this(CleanupMode.INLINE);
+    }
+
+    protected ValueReferenceMap(@NotNull CleanupMode cleanupMode) {
+        this.cleanupMode = Objects.requireNonNull(cleanupMode);
+    }
+
+    public CleanupMode getCleanupMode() {
+        return cleanupMode;
+    }
+
+    // ====== reads ======
+
+    @Override
+    public V get(Object key) {
+        beforeRead();
+        final var lookup = lookup(key);
+        try {
+            return valueOf(data.get(lookup));
+        } finally {
+            release(lookup);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        prune();
+        for (final var reference : data.values()) {
+            if (value.equals(reference.get())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Can count entries that were collected since the last cleanup.
+     */
+    @Override
+    public int size() {
+        prune();
+        return data.size();
+    }
+
+    // ====== writes ======
+
+    @Override
+    public V put(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        final var storedKey = storeKey(key);
+        try {
+            return valueOf(data.put(storedKey, buildValue(value, storedKey, collectedValues)));
+        } finally {
+            afterWrite();
+        }
+    }
+
+    /**
+     * Atomic. An entry whose value has been collected counts as absent.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        final var storedKey = storeKey(key);
+        final var fresh = buildValue(value, storedKey, collectedValues);
+        final var existing = (V[]) new Object[1];
+        try {
+            data.compute(storedKey, (k, current) -> {
+                final var currentValue = valueOf(current);
+                if (currentValue == null) return fresh;
+
+                existing[0] = currentValue;
+                return current;
+            });
+            return existing[0];
+        } finally {
+            afterWrite();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        final var replaced = (V[]) new Object[1];
+        final var lookup = lookup(key);
+        try {
+            data.computeIfPresent(lookup, (k, current) -> {
+                final var currentValue = current.get();
+                if (currentValue == null) return null;
+
+                replaced[0] = currentValue;
+                return buildValue(value, storedKeyOf(current), collectedValues);
+            });
+            return replaced[0];
+        } finally {
+            release(lookup);
+            afterWrite();
+        }
+    }
+
+    /**
+     * Atomic. The key already in the map is kept.
+     */
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        final var replaced = new boolean[1];
+        final var lookup = lookup(key);
+        try {
+            data.computeIfPresent(lookup, (k, current) -> {
+                final var currentValue = current.get();
+                if (currentValue == null) return null;
+                if (!oldValue.equals(currentValue)) return current;
+
+                replaced[0] = true;
+                return buildValue(newValue, storedKeyOf(current), collectedValues);
+            });
+            return replaced[0];
+        } finally {
+            release(lookup);
+            afterWrite();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        final var lookup = lookup(key);
+        try {
+            return valueOf(data.remove(lookup));
+        } finally {
+            release(lookup);
+            afterWrite();
+        }
+    }
+
+    /**
+     * Atomic.
+     */
+    @Override
+    public boolean remove(@NotNull Object key, Object value) {
+        if (value == null) return false;
+        final var removed = new boolean[1];
+        final var lookup = lookup(key);
+        try {
+            data.computeIfPresent(lookup, (k, current) -> {
+                final var currentValue = current.get();
+                if (currentValue == null) return null;
+                if (!value.equals(currentValue)) return current;
+
+                removed[0] = true;
+                return null;
+            });
+            return removed[0];
+        } finally {
+            release(lookup);
+            afterWrite();
+        }
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+        prune();
+    }
+
+    // ====== keys and values ======
+
+    private Object storeKey(K key) {
+        Objects.requireNonNull(key);
+        return weakKeys() ? new WeakKey<>(key, collectedKeys) : key;
+    }
+
+    /**
+     * @return What to look the key up with. Has to be given to {@link #release(Object)} afterwards.
+     */
+    private Object lookup(Object key) {
+        Objects.requireNonNull(key);
+        return weakKeys() ? LookupKey.of(key, false) : key;
+    }
+
+    private static void release(Object lookup) {
+        if (lookup instanceof LookupKey lookupKey) lookupKey.release();
+    }
+
+    @SuppressWarnings("unchecked")
+    private K keyOf(Object storedKey) {
+        return weakKeys() ? ((Reference<K>) storedKey).get() : (K) storedKey;
+    }
+
+    private static Object storedKeyOf(Reference<?> value) {
+        return ((ValueReference) value).storedKey();
+    }
+
+    private static <V> V valueOf(Reference<V> reference) {
+        return reference == null ? null : reference.get();
+    }
+
+    // ====== cleanup ======
+
+    private void beforeRead() {
+        if (cleanupMode == CleanupMode.INLINE) prune();
+    }
+
+    private void afterWrite() {
+        if (cleanupMode == CleanupMode.INLINE) {
+            prune();
+        } else {
+            if (!registered) register();
+            prune(WRITE_BATCH);
+        }
+    }
+
+    /**
+     * Hands the map to the cleaner, on the first write rather than up front, since maps that never get written to
+     * have nothing to clean and are often made in large numbers.
+     */
+    private void register() {
+        if (REGISTERED.compareAndSet(this, false, true)) ReferenceCleaner.shared().register(this, ValueReferenceMap::prune);
+    }
+
+    /**
+     * Takes out every entry whose key or value has been collected.
+     */
+    void prune() {
+        prune(Integer.MAX_VALUE);
+    }
+
+    private void prune(int limit) {
+        int pruned = 0;
+
+        Reference<? extends V> value;
+        while (pruned < limit && (value = collectedValues.poll()) != null) {
+            // only if it hasn't been replaced since
+            data.remove(storedKeyOf(value), value);
+            pruned++;
+        }
+
+        Reference<? extends K> key;
+        while (pruned < limit && (key = collectedKeys.poll()) != null) {
+            data.remove(key);
+            pruned++;
+        }
+    }
+
+    // ====== views ======
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        prune();
+
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return ValueReferenceMap.this.size();
+            }
+
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                final var entries = data.entrySet().iterator();
+                return new Iterator<>() {
+                    private Entry<K, V> next = advance();
+                    private Entry<K, V> current = null;
+
+                    /**
+                     * @return The next entry whose key and value are both still around, or null if there isn't one.
+                     */
+                    private Entry<K, V> advance() {
+                        while (entries.hasNext()) {
+                            final var entry = entries.next();
+                            final var key = keyOf(entry.getKey());
+                            final var value = entry.getValue().get();
+                            if (key != null && value != null) return new SimpleImmutableEntry<>(key, value);
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (next == null) throw new NoSuchElementException();
+                        current = next;
+                        next = advance();
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) throw new IllegalStateException();
+                        ValueReferenceMap.this.remove(current.getKey(), current.getValue());
+                        current = null;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -8,6 +8,13 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class WeakConcurrentHashMap<K, V> extends ReferenceMap<K, V> {
+    public WeakConcurrentHashMap() {
+    }
+
+    public WeakConcurrentHashMap(@NotNull CleanupMode cleanupMode) {
+        super(cleanupMode);
+    }
+
     @NotNull
     @Override
     protected Map<Reference<? extends K>, V> buildData() {
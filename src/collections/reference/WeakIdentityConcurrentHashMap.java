@@ -8,6 +8,13 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class WeakIdentityConcurrentHashMap<K, V> extends ReferenceMap<K, V> {
+    public WeakIdentityConcurrentHashMap() {
+    }
+
+    public WeakIdentityConcurrentHashMap(@NotNull CleanupMode cleanupMode) {
+        super(cleanupMode);
+    }
+
     @NotNull
     @Override
     protected Map<Reference<? extends K>, V> buildData() {
@@ -25,4 +32,9 @@ public class WeakIdentityConcurrentHashMap<K, V> extends ReferenceMap<K, V> {
     protected <T> Reference<T> buildKey(T k, ReferenceQueue<T> queue) {
         return new WeakIdentityKey<>(k, queue);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected boolean compareByIdentity() {
+        return true;
+    }
+}
@@ -2,7 +2,6 @@ package collections.reference;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Objects;
 
 class WeakIdentityKey<T> extends WeakReference<T> {
     public final T tHolder;
@@ -20,7 +19,7 @@ class WeakIdentityKey<T> extends WeakReference<T> {
     public WeakIdentityKey(T key) {
         super(key);
         tHolder = key;
-        hashCode = Objects.hashCode(key);
+        hashCode = System.identityHashCode(key);
     }
 
     @Override
@@ -0,0 +1,31 @@
+package collections.reference;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * Holds its keys weakly and its values softly. A value that refers back to its own key only keeps the key around until
+ * the value is reclaimed, instead of for good like it would in a weak-keyed map with strong values, so this comes
+ * close to an ephemeron table.
+ */
+public class WeakKeySoftValueConcurrentHashMap<K, V> extends ValueReferenceMap<K, V> {
+    public WeakKeySoftValueConcurrentHashMap() {
+    }
+
+    public WeakKeySoftValueConcurrentHashMap(@NotNull CleanupMode cleanupMode) {
+        super(cleanupMode);
+    }
+
+    @NotNull
+    @Override
+    protected Reference<V> buildValue(V value, Object storedKey, ReferenceQueue<V> queue) {
+        return new SoftValue<>(value, storedKey, queue);
+    }
+
+    @Override
+    protected boolean weakKeys() {
+        return true;
+    }
+}
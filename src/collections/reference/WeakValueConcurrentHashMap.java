@@ -0,0 +1,26 @@
+package collections.reference;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+
+public class WeakValueConcurrentHashMap<K, V> extends ValueReferenceMap<K, V> {
+    public WeakValueConcurrentHashMap() {
+    }
+
+    public WeakValueConcurrentHashMap(@NotNull CleanupMode cleanupMode) {
+        super(cleanupMode);
+    }
+
+    @NotNull
+    @Override
+    protected Reference<V> buildValue(V value, Object storedKey, ReferenceQueue<V> queue) {
+        return new WeakValue<>(value, storedKey, queue);
+    }
+
+    @Override
+    protected boolean weakKeys() {
+        return false;
+    }
+}
@@ -1,5 +1,11 @@
 package concurrency;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Supplier;
 
@@ -14,15 +20,58 @@ public class Concurrency {
         }));
     }
 
+    /**
+     * Runs the job on the {@link Scheduler#shared() shared scheduler}.
+     */
     public static <T> Promise<T> threadedCall(Supplier<T> job) {
-        return new Promise<>(settle -> {
-            final var thread = new Thread(() -> {
-                try {
-                    settle.resolve(job.get());
-                } catch (RuntimeException e) {
-                    settle.reject(e);
-                }
-            });
-        });
+        return Scheduler.shared().submit(job);
+    }
+
+    public static <T> Promise<T> threadedCall(Supplier<T> job, Scheduler scheduler) {
+        return scheduler.submit(job);
+    }
+
+    public static <T> Promise<T> threadedCall(Supplier<T> job, Scheduler.Priority priority, Scheduler scheduler) {
+        return scheduler.submit(priority, job);
+    }
+
+    // ====== executors ======
+
+    private static class VirtualThreads {
+        static final ExecutorService EXECUTOR = build();
+
+        private static ExecutorService build() {
+            try {
+                // Looked up reflectively so this still runs on releases without virtual threads.
+                final var factory = MethodHandles.publicLookup().findStatic(
+                        Executors.class,
+                        "newVirtualThreadPerTaskExecutor",
+                        MethodType.methodType(ExecutorService.class));
+                return (ExecutorService) factory.invoke();
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return Executors.newCachedThreadPool(job -> {
+                    final var thread = new Thread(job, "promise-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            } catch (Throwable e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    /**
+     * @return A shared executor that starts a new virtual thread for every task, for reactions that block on io.
+     * Where virtual threads aren't available this falls back to a cached pool of daemon threads.
+     */
+    public static Executor virtualThreadExecutor() {
+        return VirtualThreads.EXECUTOR;
+    }
+
+    /**
+     * @return The ForkJoinPool common pool, for cpu heavy reactions. Its size follows the number of cores.
+     */
+    public static Executor forkJoinExecutor() {
+        return ForkJoinPool.commonPool();
     }
 }
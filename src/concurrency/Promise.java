@@ -1,14 +1,28 @@
 package concurrency;
 
+import collections.persistent.PersistentList;
+import errors.AggregateException;
 import errors.CancellationReason;
-
+import errors.ImpossibleStateException;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Objects;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -23,64 +37,84 @@ import java.util.function.Supplier;
  * Rejected implies that something broke but canceling doesn't normally break things, and we can't resolve the promise
  * without a result; null isn't an option because it might just be a possible result from the promise.
  * So I added another state.
+ *
+ * There are no locks in here. The state and the value live in a single field, outcome, that goes from null (pending)
+ * to its final value with one compare and set, so whoever wins that settles the promise. Reactions are pushed onto a
+ * lock-free stack, which is swapped out for a sentinel and run exactly once by the settling thread. Anyone who finds
+ * the sentinel there runs their reaction on the spot.
+ *
+ * Promises chained off of this one (through then, flatten, defer, the combinators...) count as its consumers. When
+ * every consumer has been canceled nobody is left to read the result, so this promise is canceled too, with the same
+ * reason, and so on up the chain. A {@link Task} at the top of the chain gets its cancel callback run, so the work
+ * behind it can stop.
  * @param <T>
  */
 public class Promise<T> {
-    private volatile State state = State.PENDING;
-    private volatile Object value = null;
+    private static final VarHandle OUTCOME;
+    private static final VarHandle REACTIONS;
+    private static final VarHandle CONSUMERS;
+    private static final VarHandle RELEASED;
+
+    static {
+        try {
+            final var lookup = MethodHandles.lookup();
+            OUTCOME = lookup.findVarHandle(Promise.class, "outcome", Object.class);
+            REACTIONS = lookup.findVarHandle(Promise.class, "reactions", Reaction.class);
+            CONSUMERS = lookup.findVarHandle(Promise.class, "consumers", int.class);
+            RELEASED = lookup.findVarHandle(Dependent.class, "released", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Null while pending. Afterwards it's the result, {@link #NULL_RESULT}, a {@link Rejection}, or a
+     * {@link Cancellation}. Neither of the last two can leak out, so a result can never be confused for them.
+     */
+    private volatile Object outcome = null;
+    /**
+     * Top of the reaction stack, or {@link #DRAINED} once the reactions have been run.
+     */
+    private volatile Reaction<T> reactions = null;
+    /**
+     * How many promises depending on this one haven't been canceled yet.
+     */
+    private volatile int consumers = 0;
+    /**
+     * The {@link Dependent} (or array of them for the combinators) that feeds this promise, to be released if this
+     * promise is canceled. Null if this promise doesn't come from another one.
+     */
+    private volatile Object upstream = null;
+    /**
+     * Where {@link #thenAsync} runs its reactions when it isn't given an executor. Null means the global default.
+     */
+    private Executor executor = null;
 
     private Promise() {
     }
 
+    private Promise(Executor executor) {
+        this.executor = executor;
+    }
+
     public Promise(Consumer<Promise<T>.Settle> initializer) {
         initializer.accept(new Settle());
     }
 
     /**
      * @return A promise which resolves to the final result of a promise chain (promise of a promise of a promise...).
+     * However deep the chain is, unwrapping it takes a constant amount of stack and a single reaction.
      */
     public Promise<Object> flatten() {
-        final var result = new Promise<>();
-        flatten((Promise<Object>) this, result.settle());
+        final var result = new Promise<>(executor);
+        new Unwrap(result, Integer.MAX_VALUE).attachTo(this);
         return result;
     }
 
-    private static void flatten(Promise<Object> current, Promise<Object>.Settle settle) {
-        current.then(result -> {
-            if (result instanceof Promise<?> p) {
-                flatten((Promise<Object>) p, settle);
-            } else {
-                settle.resolve(result);
-            }
-            return null;
-        }, error -> {
-            settle.reject(error);
-            return null;
-        }, reason -> {
-            settle.cancel(reason);
-            return null;
-        });
-    }
-
     public static <T> Promise<T> flatten(Promise<Promise<T>> chain) {
         if (chain == null) return null;
-        final var next = new Promise<T>();
-
-        chain.then(
-                (promise) -> {
-                    if (promise == null) {
-                        next.settle().resolve(null);
-                    } else {
-                        promise.then(
-                                (result) -> next.settle().resolve(result),
-                                (error) -> next.settle().reject(error),
-                                (reason) -> next.settle().cancel(reason));
-                    }
-                    return null;
-                },
-                (error) -> next.settle().reject(error),
-                (reason) -> next.settle().cancel(reason));
-
+        final var next = new Promise<T>(chain.executor);
+        new Unwrap(next, 1).attachTo(chain);
         return next;
     }
 
@@ -134,149 +168,371 @@ public class Promise<T> {
 
     public CompletableFuture<T> toCompletableFuture() {
         final var future = new CompletableFuture<T>();
-        then(
+        final var bridge = then(
                 future::complete,
                 future::completeExceptionally,
                 reason -> future.completeExceptionally(new CancellationException(reason.getMessage())));
 
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) bridge.cancel(new CancellationReason("CompletableFuture was canceled"));
+        });
+
         return future;
     }
 
+    /**
+     * Blocks until the promise settles.
+     *
+     * @return The result.
+     * @throws ExecutionException   If the promise was rejected; the cause is the error.
+     * @throws CancellationException If the promise was canceled.
+     */
     public T join() throws InterruptedException, ExecutionException, CancellationException {
-        final var lock = new Object();
+        await(true, -1);
+        return report();
+    }
 
-        onSettle(() -> {
-            lock.notifyAll();
-            return null;
-        });
+    /**
+     * Blocks until the promise settles or the timeout runs out.
+     *
+     * @return The result.
+     * @throws TimeoutException      If the promise was still pending after the timeout.
+     * @throws ExecutionException    If the promise was rejected; the cause is the error.
+     * @throws CancellationException If the promise was canceled.
+     */
+    public T join(@NotNull Duration timeout) throws InterruptedException, ExecutionException, CancellationException, TimeoutException {
+        long nanos;
+        try {
+            nanos = Math.max(0, timeout.toNanos());
+        } catch (ArithmeticException e) {
+            nanos = Long.MAX_VALUE;
+        }
+
+        if (!await(true, nanos)) throw new TimeoutException("Promise still pending after " + timeout);
+        return report();
+    }
 
-        synchronized (lock) {
-            while (isPending()) lock.wait();
+    /**
+     * Like {@link #join()} but keeps waiting when interrupted. The interrupt status is restored before returning.
+     */
+    public T joinUninterruptibly() throws ExecutionException, CancellationException {
+        try {
+            await(false, -1);
+        } catch (InterruptedException e) {
+            throw new ImpossibleStateException(e);
         }
+        return report();
+    }
 
-        return switch (state) {
+    private T report() throws ExecutionException, CancellationException {
+        return switch (getState()) {
             case RESOLVED -> getResult();
             case REJECTED -> throw new ExecutionException(getError());
             case CANCELED -> throw new CancellationException(getCancelationReason().getMessage());
-            default -> throw new IllegalStateException();
+            default -> throw new ImpossibleStateException();
         };
     }
 
+    /**
+     * How many times a joining thread checks the promise before parking, in case it's about to settle anyway.
+     * Spinning is pointless with only one core.
+     */
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 7 : 0;
+
+    /**
+     * Parks the current thread until the promise settles. Parking instead of waiting on a monitor means virtual
+     * threads unmount instead of pinning their carrier.
+     *
+     * @param timeoutNanos How long to wait, or negative to wait for as long as it takes.
+     * @return Whether the promise settled.
+     */
+    private boolean await(boolean interruptible, long timeoutNanos) throws InterruptedException {
+        for (int i = 0; i < SPINS; i++) {
+            if (isSettled()) return true;
+            Thread.onSpinWait();
+        }
+        if (isSettled()) return true;
+        if (interruptible && Thread.interrupted()) throw new InterruptedException();
+        if (timeoutNanos == 0) return false;
+
+        // Joining from inside a reaction, past MAX_NESTING. What settles this promise might be queued up on this
+        // very thread, so run that first instead of parking forever.
+        final var trampoline = TRAMPOLINE.get();
+        if (!trampoline.queue.isEmpty()) {
+            trampoline.runQueued();
+            if (isSettled()) return true;
+        }
+
+        final var waiter = new Waiter<T>(Thread.currentThread());
+        addReaction(waiter);
+
+        final var deadline = System.nanoTime() + timeoutNanos;
+        var interrupted = false;
+        try {
+            while (isPending()) {
+                if (timeoutNanos < 0) {
+                    LockSupport.park(this);
+                } else {
+                    final var remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) return false;
+                    LockSupport.parkNanos(this, remaining);
+                }
+
+                if (Thread.interrupted()) {
+                    if (interruptible) throw new InterruptedException();
+                    interrupted = true;
+                }
+            }
+            return true;
+        } finally {
+            // the waiter stays in the stack until the promise settles, make sure it doesn't unpark us later
+            waiter.thread = null;
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
     public State getState() {
-        return state;
+        final var outcome = this.outcome;
+        if (outcome == null) return State.PENDING;
+        else if (outcome instanceof Rejection) return State.REJECTED;
+        else if (outcome instanceof Cancellation) return State.CANCELED;
+        else return State.RESOLVED;
     }
 
     public boolean isRejected() {
-        return state == State.REJECTED;
+        return outcome instanceof Rejection;
     }
 
     public boolean isResolved() {
-        return state == State.RESOLVED;
+        return getState() == State.RESOLVED;
     }
 
     public boolean isCanceled() {
-        return state == State.CANCELED;
+        return outcome instanceof Cancellation;
     }
 
     public boolean isPending() {
-        return state == State.PENDING;
+        return outcome == null;
     }
 
     public boolean isSettled() {
-        return !isPending();
+        return outcome != null;
     }
 
     public T getResult() {
-        if (isResolved()) {
-            return (T) value;
-        } else return null;
+        final var outcome = this.outcome;
+        if (outcome == null || outcome instanceof Rejection || outcome instanceof Cancellation) return null;
+        return outcome == NULL_RESULT ? null : (T) outcome;
     }
 
     public Throwable getError() {
-        if (isRejected()) {
-            return (Throwable) value;
+        if (outcome instanceof Rejection r) {
+            return r.error();
         } else return null;
     }
 
     public CancellationReason getCancelationReason() {
-        if (isCanceled()) {
-            return (CancellationReason) value;
+        if (outcome instanceof Cancellation c) {
+            return c.reason();
         } else return null;
     }
 
+    // ====== outcome ======
+
+    private static final Object NULL_RESULT = new Object();
+
+    private record Rejection(Throwable error) {
+    }
+
+    private record Cancellation(CancellationReason reason) {
+    }
+
+    /**
+     * Attempts to move the promise out of pending. Only one call ever succeeds.
+     */
+    private boolean complete(Object outcome) {
+        if (!OUTCOME.compareAndSet(this, null, outcome)) return false;
+
+        if (outcome instanceof Cancellation cancellation) {
+            final var upstream = this.upstream;
+            if (upstream != null) release(upstream, cancellation);
+        }
+
+        runReactionsSoon();
+        return true;
+    }
+
+    /**
+     * How deep promises can settle inside each other's reactions before the rest get queued. Below that, settling a
+     * promise in a reaction runs its reactions right away like it always has; past it, long chains still can't
+     * overflow the stack.
+     */
+    private static final int MAX_NESTING = 32;
+
+    private void runReactionsSoon() {
+        final var trampoline = TRAMPOLINE.get();
+        if (trampoline.depth < MAX_NESTING) {
+            trampoline.run(this);
+        } else {
+            // Deep in a chain. Queue it up instead of recursing further; the outermost call runs the queue before
+            // returning.
+            trampoline.queue.add(this);
+        }
+    }
+
+    private static final ThreadLocal<Trampoline> TRAMPOLINE = ThreadLocal.withInitial(Trampoline::new);
+
+    /**
+     * Per thread queue of promises that have settled but haven't run their reactions yet, and how deep in reactions
+     * the thread currently is.
+     */
+    private static class Trampoline {
+        final ArrayDeque<Promise<?>> queue = new ArrayDeque<>();
+        int depth = 0;
+
+        void run(Promise<?> first) {
+            runReactions(first);
+            // the outermost call also runs whatever the deeper ones queued up
+            if (depth == 0) runQueued();
+        }
+
+        void runQueued() {
+            Promise<?> promise;
+            while ((promise = queue.poll()) != null) runReactions(promise);
+        }
+
+        private void runReactions(Promise<?> promise) {
+            depth++;
+            try {
+                promise.runAllReactions(promise.outcome);
+            } finally {
+                depth--;
+            }
+        }
+    }
+
     private Settle settle() {
         return new Settle();
     }
 
+    /**
+     * Cancels the promise if it's still pending. Whatever this promise was waiting on is told that this promise no
+     * longer needs it, which cancels that too if nothing else does.
+     *
+     * @return Whether the promise was canceled by this call.
+     */
+    public boolean cancel(CancellationReason reason) {
+        return complete(new Cancellation(reason));
+    }
+
+    // ====== cancellation graph ======
+
+    /**
+     * Adds a reaction that counts as a consumer of this promise.
+     */
+    private void addDependent(Dependent<T> dependent) {
+        dependent.source = this;
+        CONSUMERS.getAndAdd(this, 1);
+        addReaction(dependent);
+    }
+
+    /**
+     * Releases the dependents and cancels any promise that loses its last consumer because of it, all the way up.
+     * Done with a work list instead of recursion so long chains can be canceled from the end.
+     *
+     * @param links A {@link Dependent} or an array of them.
+     */
+    private static void release(Object links, Cancellation cancellation) {
+        final var work = new ArrayDeque<Object>();
+        work.add(links);
+
+        Object next;
+        while ((next = work.poll()) != null) {
+            if (next instanceof Dependent<?> dependent) {
+                release(dependent, cancellation, work);
+            } else for (final var dependent : (Dependent<?>[]) next) {
+                release(dependent, cancellation, work);
+            }
+        }
+    }
+
+    private static void release(Dependent<?> dependent, Cancellation cancellation, ArrayDeque<Object> work) {
+        if (dependent.source == null || !RELEASED.compareAndSet(dependent, false, true)) return;
+        // read it again after the cas, an unwrap moving to another promise sets the new source before un-releasing
+        final var source = dependent.source;
+        if ((int) CONSUMERS.getAndAdd(source, -1) != 1) return;
+        if (!OUTCOME.compareAndSet(source, null, cancellation)) return;
+
+        final var upstream = source.upstream;
+        if (upstream != null) work.add(upstream);
+        source.runReactionsSoon();
+    }
+
+    /**
+     * Runs the callback once the promise settles, whichever way. Doesn't count as a consumer.
+     */
+    void whenSettled(Runnable callback) {
+        addReaction(new Reaction<>() {
+            @Override
+            void react(Object outcome) {
+                callback.run();
+            }
+        });
+    }
+
+    /**
+     * Runs the callback if the promise gets canceled, however that happens. Doesn't count as a consumer.
+     */
+    void whenCanceled(Consumer<CancellationReason> callback) {
+        addReaction(new Reaction<>() {
+            @Override
+            void react(Object outcome) {
+                if (outcome instanceof Cancellation c) callback.accept(c.reason());
+            }
+        });
+    }
+
     public class Settle {
         private Settle() {
         }
 
         public boolean resolve(T result) {
-            if (isSettled()) return false;
-            synchronized (Promise.this) {
-                if (isSettled()) return false;
-                Promise.this.value = result;
-                Promise.this.state = State.RESOLVED;
-                settleAllReactions();
-                return true;
-            }
+            return complete(result == null ? NULL_RESULT : result);
         }
 
-
         public boolean reject(Throwable error) {
-            if (isSettled()) return false;
-            synchronized (Promise.this) {
-                if (isSettled()) return false;
-                Promise.this.value = error;
-                Promise.this.state = State.REJECTED;
-                settleAllReactions();
-                return true;
-            }
+            return complete(new Rejection(error));
         }
 
         public boolean cancel(CancellationReason reason) {
-            if (isSettled()) return false;
-            synchronized (Promise.this) {
-                if (isSettled()) return false;
-                Promise.this.value = reason;
-                Promise.this.state = State.CANCELED;
-                settleAllReactions();
-                return true;
-            }
+            return complete(new Cancellation(reason));
         }
 
+        /**
+         * The supplier is only called while the promise is pending, but it may still lose to another thread settling
+         * the promise before its result makes it in.
+         */
         public boolean resolveWith(Supplier<T> getResult) {
             if (isSettled()) return false;
-            synchronized (Promise.this) {
-                if (isSettled()) return false;
-                Promise.this.value = getResult.get();
-                Promise.this.state = State.RESOLVED;
-                settleAllReactions();
-                return true;
-            }
+            return resolve(getResult.get());
         }
 
+        /**
+         * The supplier is only called while the promise is pending, but it may still lose to another thread settling
+         * the promise before its error makes it in.
+         */
         public boolean rejectWith(Supplier<Throwable> getError) {
             if (isSettled()) return false;
-            synchronized (Promise.this) {
-                if (isSettled()) return false;
-                Promise.this.value = getError.get();
-                Promise.this.state = State.REJECTED;
-                settleAllReactions();
-                return true;
-            }
+            return reject(getError.get());
         }
 
+        /**
+         * The supplier is only called while the promise is pending, but it may still lose to another thread settling
+         * the promise before its reason makes it in.
+         */
         public boolean cancelWith(Supplier<CancellationReason> getReason) {
             if (isSettled()) return false;
-            synchronized (Promise.this) {
-                if (isSettled()) return false;
-                Promise.this.value = getReason.get();
-                Promise.this.state = State.CANCELED;
-                settleAllReactions();
-                return true;
-            }
+            return cancel(getReason.get());
         }
     }
 
@@ -299,80 +555,428 @@ public class Promise<T> {
             return new Settle();
         }
 
+        /**
+         * Settles this deferred's promise the same way as the given one. The promise becomes a consumer of the given
+         * one, so canceling it can cancel the given one too.
+         */
         public void shadow(Promise<T> promise) {
-            promise.then(settle()::resolve, settle()::reject, settle()::cancel);
+            final var forward = new Forward<T>(Promise.this);
+            upstream = forward;
+            promise.addDependent(forward);
         }
     }
 
-    // reaction //
-    private final Collection<Reaction<T, ?>> reactions = new ConcurrentLinkedDeque<>();
-    private final ReadWriteLock reactionsLock = new ReentrantReadWriteLock();
-
-    private boolean settleReaction(Reaction<T, ?> reaction) {
-        switch (state) {
-            case RESOLVED:
-                reaction.resolve((T) value);
-                break;
-            case REJECTED:
-                reaction.reject((Throwable) value);
-                break;
-            case CANCELED:
-                reaction.cancel((CancellationReason) value);
-                break;
-            default:
-                return false;
-        }
-        return true;
+    // ====== timeouts ======
+
+    /**
+     * @return A promise that settles the same way as this one, unless the timeout runs out first, in which case it's
+     * canceled. Like any other consumer, canceling it lets go of this promise.
+     */
+    public Promise<T> withTimeout(@NotNull Duration timeout) {
+        return cancelAfter(saturatedNanos(timeout), "Timed out after " + timeout);
     }
 
-    private boolean settleAllReactions() {
-        if (reactions.isEmpty()) return false;
+    /**
+     * @return A promise that settles the same way as this one, unless the deadline passes first, in which case it's
+     * canceled. Like any other consumer, canceling it lets go of this promise.
+     */
+    public Promise<T> withDeadline(@NotNull Instant deadline) {
+        return cancelAfter(saturatedNanos(Duration.between(Instant.now(), deadline)), "Deadline of " + deadline + " passed");
+    }
 
-        reactionsLock.writeLock().lock();
+    private static long saturatedNanos(Duration duration) {
         try {
-            switch (state) {
-                case RESOLVED:
-                    final var result = (T) value;
-                    for (final var reaction : reactions) reaction.resolve(result);
-                    break;
-                case REJECTED:
-                    final var error = (Throwable) value;
-                    for (final var reaction : reactions) reaction.reject(error);
-                    break;
-                case CANCELED:
-                    final var reason = (CancellationReason) value;
-                    for (final var reaction : reactions) reaction.cancel(reason);
-                    break;
-                default:
-                    return false;
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private Promise<T> cancelAfter(long nanos, String message) {
+        final var limited = new Promise<T>(executor);
+        final var forward = new Forward<T>(limited);
+        limited.upstream = forward;
+        addDependent(forward);
+        if (limited.isSettled()) return limited;
+
+        final var timeout = new Expiry(limited, message);
+        TimingWheel.shared().schedule(timeout, nanos);
+        // take the timer off of the wheel as soon as the promise settles some other way
+        limited.addReaction(new Reaction<>() {
+            @Override
+            void react(Object outcome) {
+                timeout.cancel(TimingWheel.shared());
             }
-        } finally {
-            reactionsLock.writeLock().unlock();
+        });
+        return limited;
+    }
+
+    private static class Expiry extends TimingWheel.Timeout {
+        private final Promise<?> promise;
+        private final String message;
+
+        Expiry(Promise<?> promise, String message) {
+            this.promise = promise;
+            this.message = message;
         }
 
-        reactions.clear();
-        return true;
+        @Override
+        void expire() {
+            if (promise.isPending()) promise.cancel(new CancellationReason(message));
+        }
     }
 
-    public <R> Promise<R> asyncThen(Function<T, Promise<R>> ifResolved, Function<Throwable, Promise<R>> ifRejected, Function<CancellationReason, Promise<R>> ifCanceled) {
-        return Promise.flatten(then(ifResolved, ifRejected, ifCanceled));
+    // ====== combinators ======
+
+    /**
+     * @return A promise which resolves to the results of all the promises, in the same order, once they've all
+     * resolved. If any of them is rejected or canceled first, so is the returned promise, and the rest are canceled.
+     */
+    public static <T> Promise<PersistentList<T>> all(@NotNull Collection<Promise<T>> promises) {
+        return new All<>(toArray(promises)).start();
     }
 
-    public <R> Promise<R> then(Function<T, R> ifResolved, Function<Throwable, R> ifRejected, Function<CancellationReason, R> ifCanceled) {
-        final var reaction = new Reaction<>(ifResolved, ifRejected, ifCanceled);
+    @SafeVarargs
+    @SuppressWarnings("varargs") // toArray copies the array before using it
+    public static <T> Promise<PersistentList<T>> all(@NotNull Promise<T>... promises) {
+        return new All<>(toArray(promises)).start();
+    }
 
-        if (!settleReaction(reaction)) {
-            reactionsLock.readLock().lock();
-            try {
-                if (!settleReaction(reaction)) {
-                    reactions.add(reaction);
-                }
-            } finally {
-                reactionsLock.readLock().unlock();
+    /**
+     * @return A promise which resolves to the result of the first promise to resolve. The rest are then canceled. If
+     * none of them resolve the returned promise is rejected with an {@link AggregateException} holding the errors,
+     * or canceled if they were all canceled.
+     */
+    public static <T> Promise<T> any(@NotNull Collection<Promise<T>> promises) {
+        return new Any<>(toArray(promises)).start();
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs") // toArray copies the array before using it
+    public static <T> Promise<T> any(@NotNull Promise<T>... promises) {
+        return new Any<>(toArray(promises)).start();
+    }
+
+    /**
+     * @return A promise which settles the same way as the first of the promises to settle. The rest are then
+     * canceled. Racing no promises gives a canceled promise.
+     */
+    public static <T> Promise<T> race(@NotNull Collection<Promise<T>> promises) {
+        return new Race<>(toArray(promises)).start();
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs") // toArray copies the array before using it
+    public static <T> Promise<T> race(@NotNull Promise<T>... promises) {
+        return new Race<>(toArray(promises)).start();
+    }
+
+    /**
+     * @return A promise which resolves to the given promises once they've all settled, whichever way that was.
+     */
+    public static <T> Promise<PersistentList<Promise<T>>> allSettled(@NotNull Collection<Promise<T>> promises) {
+        return new AllSettled<>(toArray(promises)).start();
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs") // toArray copies the array before using it
+    public static <T> Promise<PersistentList<Promise<T>>> allSettled(@NotNull Promise<T>... promises) {
+        return new AllSettled<>(toArray(promises)).start();
+    }
+
+    /**
+     * There's no making a Promise&lt;T&gt;[] directly, but this one only ever holds the collection's promises.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Promise<T>[] toArray(Collection<Promise<T>> promises) {
+        final var result = (Promise<T>[]) promises.toArray(Promise<?>[]::new);
+        for (final var promise : result) Objects.requireNonNull(promise);
+        return result;
+    }
+
+    /**
+     * Copies the array so the caller can't change it afterwards.
+     */
+    private static <T> Promise<T>[] toArray(Promise<T>[] promises) {
+        final var result = promises.clone();
+        for (final var promise : result) Objects.requireNonNull(promise);
+        return result;
+    }
+
+    /**
+     * Shared state of a combinator. Every input gets a single {@link Slot} reaction that reports back here, so
+     * there's no chain of intermediate promises, just one countdown and one array.
+     */
+    private abstract static class Aggregate<T, R> {
+        final Promise<R> promise = new Promise<>();
+        final Promise<T>[] inputs;
+        final Slot<T>[] slots;
+        final AtomicInteger remaining;
+        /**
+         * Set until start has attached every slot. An input that's already settled can finish the aggregate before
+         * then, and releasing skips the slots that aren't attached yet, so whichever of start and cancelLosers clears
+         * this first leaves the releasing to the other.
+         */
+        private final AtomicBoolean attaching = new AtomicBoolean(true);
+        private volatile Cancellation loss = null;
+
+        Aggregate(Promise<T>[] inputs) {
+            this.inputs = inputs;
+            // there's no making a Slot<T>[] directly
+            @SuppressWarnings("unchecked")
+            final var slots = (Slot<T>[]) new Slot<?>[inputs.length];
+            this.slots = slots;
+            remaining = new AtomicInteger(inputs.length);
+        }
+
+        Promise<R> start() {
+            if (inputs.length == 0) {
+                empty();
+            } else {
+                for (int i = 0; i < inputs.length; i++) slots[i] = new Slot<>(this, i);
+                promise.upstream = slots;
+                for (int i = 0; i < inputs.length; i++) inputs[i].addDependent(slots[i]);
+                if (!attaching.compareAndSet(true, false)) release(slots, loss);
+            }
+            return promise;
+        }
+
+        abstract void empty();
+
+        /**
+         * Called once for every input when it settles.
+         */
+        abstract void settled(int index, Object outcome);
+
+        /**
+         * Lets go of the inputs, which cancels the ones nothing else is waiting on.
+         */
+        void cancelLosers(String message) {
+            loss = new Cancellation(new CancellationReason(message));
+            // start will release them once they're all attached
+            if (attaching.compareAndSet(true, false)) return;
+            release(slots, loss);
+        }
+    }
+
+    private static class Slot<T> extends Dependent<T> {
+        private final Aggregate<T, ?> aggregate;
+        private final int index;
+
+        Slot(Aggregate<T, ?> aggregate, int index) {
+            this.aggregate = aggregate;
+            this.index = index;
+        }
+
+        @Override
+        void react(Object outcome) {
+            aggregate.settled(index, outcome);
+        }
+    }
+
+    private static class All<T> extends Aggregate<T, PersistentList<T>> {
+        private final Object[] results;
+
+        All(Promise<T>[] inputs) {
+            super(inputs);
+            results = new Object[inputs.length];
+        }
+
+        @Override
+        void empty() {
+            promise.settle().resolve(new PersistentList<>());
+        }
+
+        @Override
+        void settled(int index, Object outcome) {
+            if (outcome instanceof Rejection || outcome instanceof Cancellation) {
+                if (promise.complete(outcome)) cancelLosers("Another promise given to Promise.all failed");
+                return;
+            }
+
+            results[index] = outcome == NULL_RESULT ? null : outcome;
+            if (remaining.decrementAndGet() == 0) {
+                // every result came from a Promise<T>
+                @SuppressWarnings("unchecked")
+                final var items = (T[]) results;
+                promise.settle().resolve(new PersistentList<>(items));
+            }
+        }
+    }
+
+    private static class Any<T> extends Aggregate<T, T> {
+        private final Object[] outcomes;
+
+        Any(Promise<T>[] inputs) {
+            super(inputs);
+            outcomes = new Object[inputs.length];
+        }
+
+        @Override
+        void empty() {
+            promise.settle().reject(new AggregateException("No promises were given to Promise.any", new PersistentList<>()));
+        }
+
+        @Override
+        void settled(int index, Object outcome) {
+            if (!(outcome instanceof Rejection || outcome instanceof Cancellation)) {
+                if (promise.complete(outcome)) cancelLosers("Another promise given to Promise.any resolved first");
+                return;
+            }
+
+            outcomes[index] = outcome;
+            if (remaining.decrementAndGet() != 0) return;
+
+            final var errors = PersistentList.<Throwable>builder();
+            for (final var failure : outcomes) {
+                if (failure instanceof Rejection r) errors.add(r.error());
+            }
+            final var errorList = errors.build();
+
+            if (errorList.isEmpty()) {
+                promise.settle().cancel(new CancellationReason("Every promise given to Promise.any was canceled"));
+            } else {
+                promise.settle().reject(new AggregateException("No promise given to Promise.any resolved", errorList));
+            }
+        }
+    }
+
+    private static class Race<T> extends Aggregate<T, T> {
+        Race(Promise<T>[] inputs) {
+            super(inputs);
+        }
+
+        @Override
+        void empty() {
+            promise.settle().cancel(new CancellationReason("No promises were given to Promise.race"));
+        }
+
+        @Override
+        void settled(int index, Object outcome) {
+            if (promise.complete(outcome)) cancelLosers("Another promise given to Promise.race settled first");
+        }
+    }
+
+    private static class AllSettled<T> extends Aggregate<T, PersistentList<Promise<T>>> {
+        AllSettled(Promise<T>[] inputs) {
+            super(inputs);
+        }
+
+        @Override
+        void empty() {
+            promise.settle().resolve(new PersistentList<>());
+        }
+
+        @Override
+        void settled(int index, Object outcome) {
+            if (remaining.decrementAndGet() == 0) {
+                promise.settle().resolve(new PersistentList<>(inputs));
             }
         }
+    }
+
+    // ====== executors ======
+
+    private static volatile Executor defaultExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * @return The executor {@link #thenAsync} uses when neither the call nor the promise specifies one.
+     */
+    public static Executor getDefaultExecutor() {
+        return defaultExecutor;
+    }
 
-        return reaction.getPromise();
+    /**
+     * Sets the executor {@link #thenAsync} uses when neither the call nor the promise specifies one. The ForkJoinPool
+     * common pool is used until this is called. See {@link Concurrency#virtualThreadExecutor()} for blocking work.
+     */
+    public static void setDefaultExecutor(@NotNull Executor executor) {
+        defaultExecutor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * @return The executor {@link #thenAsync} uses for this promise.
+     */
+    public Executor getExecutor() {
+        return executor != null ? executor : defaultExecutor;
+    }
+
+    /**
+     * @return A promise that settles the same way as this one, but whose async reactions, and those of the promises
+     * chained off of it, run on the given executor by default.
+     */
+    public Promise<T> withExecutor(@NotNull Executor executor) {
+        final var mirror = new Promise<T>(Objects.requireNonNull(executor));
+        final var forward = new Forward<T>(mirror);
+        mirror.upstream = forward;
+        addDependent(forward);
+        return mirror;
+    }
+
+    // reaction //
+    private static final Reaction<?> DRAINED = new Reaction<>() {
+        @Override
+        void react(Object outcome) {
+        }
+    };
+
+    /**
+     * Runs the reaction once the promise settles, or right away if it already has.
+     */
+    private void addReaction(Reaction<T> reaction) {
+        while (true) {
+            final var top = reactions;
+            if (top == DRAINED) {
+                react(reaction, outcome);
+                return;
+            }
+
+            reaction.next = top;
+            if (REACTIONS.compareAndSet(this, top, reaction)) return;
+        }
+    }
+
+    private void runAllReactions(Object outcome) {
+        var top = (Reaction<T>) REACTIONS.getAndSet(this, DRAINED);
+
+        // the stack is newest first, run them in the order they were added
+        Reaction<T> ordered = null;
+        while (top != null) {
+            final var next = top.next;
+            top.next = ordered;
+            ordered = top;
+            top = next;
+        }
+
+        while (ordered != null) {
+            final var next = ordered.next;
+            ordered.next = null;
+            react(ordered, outcome);
+            ordered = next;
+        }
+    }
+
+    /**
+     * Runs the reaction. If it throws, that's handed to the thread's uncaught exception handler, so it can't stop
+     * the reactions after it from running or escape into whatever settled the promise.
+     */
+    private static <T> void react(Reaction<T> reaction, Object outcome) {
+        try {
+            reaction.react(outcome);
+        } catch (Throwable e) {
+            final var thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    public <R> Promise<R> asyncThen(Function<T, Promise<R>> ifResolved, Function<Throwable, Promise<R>> ifRejected, Function<CancellationReason, Promise<R>> ifCanceled) {
+        return Promise.flatten(then(ifResolved, ifRejected, ifCanceled));
+    }
+
+    public <R> Promise<R> then(Function<T, R> ifResolved, Function<Throwable, R> ifRejected, Function<CancellationReason, R> ifCanceled) {
+        final var reaction = new Transform<T, R>(ifResolved, ifRejected, ifCanceled, executor, null);
+        addDependent(reaction);
+        return reaction.promise;
     }
 
     public <R> Promise<R> then(Function<T, R> ifResolved, Function<Throwable, R> ifRejected) {
@@ -383,6 +987,28 @@ public class Promise<T> {
         return then(ifResolved, null, null);
     }
 
+    /**
+     * Like {@link #then(Function, Function, Function)} but the reaction is run on the executor instead of on the thread
+     * that settles this promise, so a slow reaction can't hold it up.
+     */
+    public <R> Promise<R> thenAsync(Function<T, R> ifResolved, Function<Throwable, R> ifRejected, Function<CancellationReason, R> ifCanceled, @NotNull Executor executor) {
+        final var reaction = new Transform<>(ifResolved, ifRejected, ifCanceled, this.executor, Objects.requireNonNull(executor));
+        addDependent(reaction);
+        return reaction.promise;
+    }
+
+    public <R> Promise<R> thenAsync(Function<T, R> ifResolved, Function<Throwable, R> ifRejected, Function<CancellationReason, R> ifCanceled) {
+        return thenAsync(ifResolved, ifRejected, ifCanceled, getExecutor());
+    }
+
+    public <R> Promise<R> thenAsync(Function<T, R> ifResolved, @NotNull Executor executor) {
+        return thenAsync(ifResolved, null, null, executor);
+    }
+
+    public <R> Promise<R> thenAsync(Function<T, R> ifResolved) {
+        return thenAsync(ifResolved, null, null, getExecutor());
+    }
+
     public <R> Promise<R> onError(Function<Throwable, R> catcher) {
         return then(null, catcher, null);
     }
@@ -398,26 +1024,168 @@ public class Promise<T> {
                 (result) -> reaction.get());
     }
 
-    private static class Reaction<T, R> {
+    /**
+     * Node in the reaction stack.
+     */
+    private abstract static class Reaction<T> {
+        Reaction<T> next;
+
+        /**
+         * @param outcome The settled outcome of the promise, never null.
+         */
+        abstract void react(Object outcome);
+    }
+
+    /**
+     * Reaction that feeds another promise, making it a consumer of the promise it's added to. The promise it feeds
+     * keeps it as its upstream link.
+     */
+    private abstract static class Dependent<T> extends Reaction<T> {
+        Promise<T> source;
+        volatile boolean released = false;
+    }
+
+    /**
+     * Settles another promise the same way.
+     */
+    private static class Forward<T> extends Dependent<T> {
+        private final Promise<T> target;
+
+        Forward(Promise<T> target) {
+            this.target = target;
+        }
+
+        @Override
+        void react(Object outcome) {
+            target.complete(outcome);
+        }
+    }
+
+    /**
+     * Follows a chain of nested promises down to a value. The same node is moved from promise to promise, and
+     * promises that have already settled are unwrapped in a loop, so each hop costs no stack and no allocation.
+     */
+    private static class Unwrap extends Dependent<Object> {
+        private final Promise<?> target;
+        private int hopsLeft;
+
+        /**
+         * @param hops How many levels of promises to unwrap.
+         */
+        Unwrap(Promise<?> target, int hops) {
+            this.target = target;
+            this.hopsLeft = hops;
+            target.upstream = this;
+        }
+
+        @Override
+        void react(Object outcome) {
+            while (hopsLeft > 0 && outcome instanceof Promise<?> inner) {
+                hopsLeft--;
+                final var innerOutcome = inner.outcome;
+                if (innerOutcome == null) {
+                    // no one wants the result anymore, don't go any further. Taking the link back first also
+                    // keeps a cancellation of the target from releasing it halfway through the move
+                    if (target.isSettled() || !RELEASED.compareAndSet(this, false, true)) return;
+                    // the outer promise has settled, so from here on the target is a consumer of the inner one
+                    moveTo(inner);
+                    // the target may have been canceled during the move, and whoever did it found the link taken
+                    if (target.outcome instanceof Cancellation cancellation) release(this, cancellation);
+                    return;
+                }
+                outcome = innerOutcome;
+            }
+            target.complete(outcome);
+        }
+
+        /**
+         * Unwrap never looks at the type of the outcome, so it can hang off a promise of anything.
+         */
+        @SuppressWarnings("unchecked")
+        void attachTo(Promise<?> promise) {
+            ((Promise<Object>) promise).addDependent(this);
+        }
+
+        /**
+         * Attaches to the next promise in the chain, while the link is taken (released is true). Ends by
+         * un-releasing it, after the new source is set, so a release from then on lets go of the right promise.
+         */
+        @SuppressWarnings("unchecked")
+        private void moveTo(Promise<?> promise) {
+            final var next = (Promise<Object>) promise;
+            source = next;
+            CONSUMERS.getAndAdd(next, 1);
+            released = false;
+            next.addReaction(this);
+        }
+    }
+
+    private static class Waiter<T> extends Reaction<T> {
+        volatile Thread thread;
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        void react(Object outcome) {
+            final var thread = this.thread;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+    }
+
+    private static class Transform<T, R> extends Dependent<T> {
         private final Function<T, R> ifResolved;
         private final Function<Throwable, R> ifRejected;
         private final Function<CancellationReason, R> ifCanceled;
-        private final Promise<R> promise = new Promise<>();
-
-        public Reaction(
+        private final Promise<R> promise;
+        /**
+         * Where to run the reaction. Null to run it on the settling thread.
+         */
+        private final Executor runOn;
+
+        /**
+         * @param inherited The executor of the source promise, handed down to the new one.
+         */
+        public Transform(
                 Function<T, R> ifResolved,
                 Function<Throwable, R> ifRejected,
-                Function<CancellationReason, R> ifCanceled) {
+                Function<CancellationReason, R> ifCanceled,
+                Executor inherited,
+                Executor runOn) {
             this.ifResolved = ifResolved;
             this.ifRejected = ifRejected;
             this.ifCanceled = ifCanceled;
+            this.runOn = runOn;
+            promise = new Promise<>(inherited);
+            promise.upstream = this;
         }
 
-        public Promise<R> getPromise() {
-            return promise;
+        @Override
+        void react(Object outcome) {
+            if (runOn == null) {
+                run(outcome);
+                return;
+            }
+
+            try {
+                runOn.execute(() -> run(outcome));
+            } catch (RejectedExecutionException e) {
+                promise.settle().reject(e);
+            }
+        }
+
+        private void run(Object outcome) {
+            if (outcome instanceof Rejection r) {
+                reject(r.error());
+            } else if (outcome instanceof Cancellation c) {
+                cancel(c.reason());
+            } else {
+                resolve(outcome == NULL_RESULT ? null : (T) outcome);
+            }
         }
 
-        public void resolve(T result) {
+        private void resolve(T result) {
             if (ifResolved != null) {
                 try {
                     promise.settle().resolveWith(() -> ifResolved.apply(result));
@@ -429,7 +1197,7 @@ public class Promise<T> {
             }
         }
 
-        public void reject(Throwable error) {
+        private void reject(Throwable error) {
             if (ifRejected != null) {
                 try {
                     promise.settle().resolveWith(() -> ifRejected.apply(error));
@@ -441,7 +1209,7 @@ public class Promise<T> {
             }
         }
 
-        public void cancel(CancellationReason reason) {
+        private void cancel(CancellationReason reason) {
             if (ifCanceled != null) {
                 try {
                     promise.settle().resolveWith(() -> ifCanceled.apply(reason));
@@ -0,0 +1,362 @@
+package concurrency;
+
+import errors.CancellationReason;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs jobs on an executor and hands back a {@link Promise} of each result, while keeping track of how busy it is.
+ *
+ * <ul>
+ *     <li>At most maxConcurrency jobs run at once. The rest wait in a queue.</li>
+ *     <li>The queue holds at most maxQueued jobs. Past that, new jobs are either rejected with a
+ *     {@link RejectedExecutionException} or handed back as canceled promises, depending on the overflow policy.</li>
+ *     <li>Queued jobs are started by priority: high before normal before low. Within a lane it's first come first
+ *     served. Low priority jobs wait as long as there's anything else to do.</li>
+ *     <li>Canceling the promise of a queued job takes it out of the queue. Canceling the promise of a running job
+ *     doesn't stop it, but its result is dropped.</li>
+ * </ul>
+ *
+ * Built with {@link #builder()}. The underlying executor is a work stealing ForkJoinPool, virtual threads, or one
+ * that's passed in.
+ */
+public class Scheduler implements AutoCloseable {
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Throw a {@link RejectedExecutionException} from submit.
+         */
+        REJECT,
+        /**
+         * Return a promise that's already canceled.
+         */
+        CANCEL
+    }
+
+    private final Executor executor;
+    /**
+     * Shut down on close. Null when the executor is shared or was passed in.
+     */
+    private final ExecutorService owned;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final OverflowPolicy overflowPolicy;
+    private final ConcurrentLinkedQueue<Job<?>>[] lanes;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    private Scheduler(Builder builder) {
+        if (builder.executor != null) {
+            executor = builder.executor;
+            owned = null;
+        } else if (builder.virtualThreads) {
+            executor = Concurrency.virtualThreadExecutor();
+            owned = null;
+        } else {
+            final var pool = new ForkJoinPool(builder.parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            executor = pool;
+            owned = pool;
+        }
+
+        maxConcurrency = builder.maxConcurrency;
+        maxQueued = builder.maxQueued;
+        overflowPolicy = builder.overflowPolicy;
+
+        // there's no making a ConcurrentLinkedQueue<Job<?>>[] directly
+        @SuppressWarnings("unchecked")
+        final var lanes = (ConcurrentLinkedQueue<Job<?>>[]) new ConcurrentLinkedQueue<?>[Priority.values().length];
+        for (int i = 0; i < lanes.length; i++) lanes[i] = new ConcurrentLinkedQueue<>();
+        this.lanes = lanes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static class Shared {
+        static final Scheduler SCHEDULER = builder().virtualThreads().build();
+    }
+
+    /**
+     * @return The scheduler used by {@link Concurrency#threadedCall(Supplier)}: virtual threads (or a cached thread
+     * pool where those aren't available), no concurrency limit and no queue limit.
+     */
+    public static Scheduler shared() {
+        return Shared.SCHEDULER;
+    }
+
+    // ====== submission ======
+
+    public <T> Promise<T> submit(@NotNull Supplier<T> job) {
+        return submit(Priority.NORMAL, job);
+    }
+
+    /**
+     * Queues the job.
+     *
+     * @return A promise of the job's result. It's rejected if the job throws.
+     * @throws RejectedExecutionException If the queue is full and the overflow policy is REJECT.
+     */
+    public <T> Promise<T> submit(@NotNull Priority priority, @NotNull Supplier<T> job) {
+        Objects.requireNonNull(job);
+        return enqueue(priority, () -> Promise.resolved(job.get()));
+    }
+
+    public <T> Promise<T> submitAsync(@NotNull Supplier<Promise<T>> job) {
+        return submitAsync(Priority.NORMAL, job);
+    }
+
+    /**
+     * Queues a job that starts some asynchronous work. The job counts against the concurrency limit until the
+     * promise it returns settles, not just until it returns.
+     *
+     * @return A promise which settles the same way as the promise returned by the job.
+     * @throws RejectedExecutionException If the queue is full and the overflow policy is REJECT.
+     */
+    public <T> Promise<T> submitAsync(@NotNull Priority priority, @NotNull Supplier<Promise<T>> job) {
+        return enqueue(priority, Objects.requireNonNull(job));
+    }
+
+    private <T> Promise<T> enqueue(Priority priority, Supplier<Promise<T>> work) {
+        Objects.requireNonNull(priority);
+
+        final var deferred = Promise.<T>deferred();
+        final var job = new Job<>(work, deferred);
+
+        // nothing waiting and a free permit, no need to queue
+        if (lanesEmpty() && tryAcquirePermit()) {
+            start(job);
+            return deferred.promise();
+        }
+
+        while (true) {
+            final var count = queued.get();
+            if (count >= maxQueued) return overflow();
+            if (queued.compareAndSet(count, count + 1)) break;
+        }
+
+        final var lane = lanes[priority.ordinal()];
+        lane.add(job);
+
+        // take canceled jobs out of the queue right away so they don't hold up the ones behind them
+        deferred.promise().whenCanceled(reason -> {
+            if (lane.remove(job)) queued.decrementAndGet();
+        });
+
+        pump();
+        return deferred.promise();
+    }
+
+    private <T> Promise<T> overflow() {
+        return switch (overflowPolicy) {
+            case REJECT -> throw new RejectedExecutionException("Scheduler queue is full (" + maxQueued + " jobs)");
+            case CANCEL -> Promise.canceled(new CancellationReason("Scheduler queue is full (" + maxQueued + " jobs)"));
+        };
+    }
+
+    // ====== running ======
+
+    /**
+     * Starts queued jobs while there are permits for them.
+     */
+    private void pump() {
+        while (tryAcquirePermit()) {
+            final var job = poll();
+            if (job != null) {
+                start(job);
+                continue;
+            }
+
+            running.decrementAndGet();
+            // a job may have been queued after the poll but before the permit was given back, and whoever queued it
+            // would have found no free permits
+            if (lanesEmpty()) return;
+        }
+    }
+
+    private boolean tryAcquirePermit() {
+        while (true) {
+            final var count = running.get();
+            if (count >= maxConcurrency) return false;
+            if (running.compareAndSet(count, count + 1)) return true;
+        }
+    }
+
+    private void start(Job<?> job) {
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            job.deferred.settle().reject(e);
+            finished();
+        }
+    }
+
+    private boolean lanesEmpty() {
+        for (final var lane : lanes) {
+            if (!lane.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private Job<?> poll() {
+        for (final var lane : lanes) {
+            final var job = lane.poll();
+            if (job != null) {
+                queued.decrementAndGet();
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void finished() {
+        running.decrementAndGet();
+        pump();
+    }
+
+    private class Job<T> implements Runnable {
+        private final Supplier<Promise<T>> work;
+        private final Promise<T>.Deferred deferred;
+
+        Job(Supplier<Promise<T>> work, Promise<T>.Deferred deferred) {
+            this.work = work;
+            this.deferred = deferred;
+        }
+
+        @Override
+        public void run() {
+            if (deferred.promise().isSettled()) {
+                finished();
+                return;
+            }
+
+            final Promise<T> result;
+            try {
+                result = work.get();
+            } catch (Throwable e) {
+                deferred.settle().reject(e);
+                finished();
+                return;
+            }
+
+            if (result == null) {
+                deferred.settle().resolve(null);
+                finished();
+                return;
+            }
+
+            deferred.shadow(result);
+            result.whenSettled(Scheduler.this::finished);
+        }
+    }
+
+    // ====== state ======
+
+    /**
+     * @return How many jobs are waiting to start.
+     */
+    public int queuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return How many jobs are running, including async jobs whose promise hasn't settled yet.
+     */
+    public int runningCount() {
+        return running.get();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * Shuts down the pool if the scheduler made its own. Jobs still queued are left pending.
+     */
+    @Override
+    public void close() {
+        if (owned != null) owned.shutdown();
+    }
+
+    // ====== builder ======
+
+    public static class Builder {
+        private Executor executor = null;
+        private boolean virtualThreads = false;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxConcurrency = Integer.MAX_VALUE;
+        private int maxQueued = Integer.MAX_VALUE;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+        private Builder() {
+        }
+
+        /**
+         * Run jobs on a new work stealing pool with the given number of threads. This is the default, with one
+         * thread per core.
+         */
+        public Builder workStealing(int parallelism) {
+            if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+            this.parallelism = parallelism;
+            executor = null;
+            virtualThreads = false;
+            return this;
+        }
+
+        /**
+         * Run every job on its own virtual thread, for jobs that block.
+         */
+        public Builder virtualThreads() {
+            executor = null;
+            virtualThreads = true;
+            return this;
+        }
+
+        /**
+         * Run jobs on the given executor. It won't be shut down by {@link Scheduler#close()}.
+         */
+        public Builder executor(@NotNull Executor executor) {
+            this.executor = Objects.requireNonNull(executor);
+            virtualThreads = false;
+            return this;
+        }
+
+        public Builder maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be positive");
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public Builder maxQueued(int maxQueued) {
+            if (maxQueued < 0) throw new IllegalArgumentException("maxQueued must not be negative");
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        public Builder overflowPolicy(@NotNull OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+            return this;
+        }
+
+        public Scheduler build() {
+            return new Scheduler(this);
+        }
+    }
+}
@@ -4,15 +4,19 @@ import errors.CancellationReason;
 
 import java.util.Objects;
 
+/**
+ * A promise with a way to stop the work behind it. The onCancel callback runs whenever the task's promise is canceled:
+ * by {@link #cancel}, by canceling the promise directly, or because every promise chained off of it was canceled and
+ * so nothing needs the result anymore.
+ */
 public class Task<T> {
     private final Promise<T>.Deferred deferred;
-    private final Runnable onCancel;
 
     public Task(Promise<T>.Deferred base, Runnable onCancel) {
         Objects.requireNonNull(base);
 
         deferred = base;
-        this.onCancel = onCancel;
+        if (onCancel != null) deferred.promise().whenCanceled(reason -> onCancel.run());
     }
 
     public Task(Promise<T>.Deferred base) {
@@ -32,7 +36,6 @@ public class Task<T> {
     }
 
     public boolean cancel(CancellationReason reason) {
-        if (onCancel != null) onCancel.run();
         return deferred.settle().cancel(reason);
     }
 }
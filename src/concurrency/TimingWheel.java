@@ -0,0 +1,210 @@
+package concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel. Time is cut into ticks and every timeout goes into the bucket for the tick it expires on,
+ * wrapping around the wheel, so scheduling and canceling are O(1) and a timeout is just its own node in a bucket's
+ * linked list. A single daemon thread walks the wheel and expires what's due; it parks for good while there's
+ * nothing scheduled.
+ *
+ * Timeouts expire on the wheel thread, up to a tick late.
+ */
+final class TimingWheel {
+    private static final TimingWheel SHARED = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(1), 512, "promise-timer");
+
+    /**
+     * Far enough in the future to mean never, while leaving room to add it to {@link System#nanoTime()}.
+     */
+    private static final long MAX_DELAY = 1L << 62;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final AtomicInteger active = new AtomicInteger();
+    private final Thread worker;
+
+    /**
+     * @param wheelSize Rounded up to a power of 2.
+     */
+    TimingWheel(long tickNanos, int wheelSize, String threadName) {
+        if (tickNanos < 1) throw new IllegalArgumentException("tickNanos must be positive");
+        if (wheelSize < 1 || wheelSize > 1 << 30) throw new IllegalArgumentException("wheelSize out of range");
+
+        this.tickNanos = tickNanos;
+        startNanos = System.nanoTime();
+
+        var size = 1;
+        while (size < wheelSize) size <<= 1;
+        buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) buckets[i] = new Bucket();
+        mask = size - 1;
+
+        worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    static TimingWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Something that happens once its time is up. Can only be scheduled once.
+     */
+    abstract static class Timeout {
+        private Timeout previous;
+        private Timeout next;
+        private long tick;
+        /**
+         * The bucket this timeout is in, or null if it isn't in one.
+         */
+        private volatile Bucket bucket;
+
+        /**
+         * Called on the wheel thread when the time is up, unless the timeout was canceled first.
+         */
+        abstract void expire();
+
+        /**
+         * Takes the timeout off of the wheel.
+         *
+         * @return Whether the timeout was still scheduled.
+         */
+        final boolean cancel(TimingWheel wheel) {
+            final var bucket = this.bucket;
+            if (bucket == null) return false;
+
+            synchronized (bucket) {
+                if (this.bucket != bucket) return false;
+                bucket.unlink(this);
+            }
+            wheel.active.decrementAndGet();
+            return true;
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        /**
+         * Last tick this bucket has been processed for. Anything scheduled for that tick or earlier is overdue.
+         */
+        private long processedTick = -1;
+
+        void link(Timeout timeout) {
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) head.previous = timeout;
+            head = timeout;
+            timeout.bucket = this;
+        }
+
+        void unlink(Timeout timeout) {
+            if (timeout.previous != null) timeout.previous.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.previous = timeout.previous;
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    // ====== scheduling ======
+
+    /**
+     * Expires the timeout after the delay. If it's already due it expires on the calling thread.
+     */
+    void schedule(Timeout timeout, long delayNanos) {
+        if (delayNanos <= 0) {
+            timeout.expire();
+            return;
+        }
+
+        final var delay = Math.min(delayNanos, MAX_DELAY);
+        final var elapsed = System.nanoTime() - startNanos + delay;
+        // round up so it never expires early
+        final var tick = elapsed / tickNanos + (elapsed % tickNanos == 0 ? 0 : 1);
+        final var bucket = buckets[(int) (tick & mask)];
+
+        synchronized (bucket) {
+            if (timeout.bucket != null) throw new IllegalStateException("Timeout is already scheduled");
+
+            if (tick > bucket.processedTick) {
+                timeout.tick = tick;
+                bucket.link(timeout);
+                if (active.getAndIncrement() == 0) LockSupport.unpark(worker);
+                return;
+            }
+        }
+
+        // the wheel has gone past it already
+        timeout.expire();
+    }
+
+    // ====== wheel thread ======
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void run() {
+        var done = currentTick();
+        while (true) {
+            if (active.get() == 0) {
+                LockSupport.park(this);
+            }
+
+            final var now = currentTick();
+            if (now <= done) {
+                LockSupport.parkNanos(this, (done + 1) * tickNanos - (System.nanoTime() - startNanos));
+                continue;
+            }
+
+            advance(done + 1, now);
+            done = now;
+        }
+    }
+
+    /**
+     * Processes the ticks from first to last, inclusive. Each bucket is only visited once, for the latest of those
+     * ticks that lands on it, so waking up after a long idle stretch costs at most one lap of the wheel.
+     */
+    private void advance(long first, long last) {
+        final var laps = Math.min(last - first + 1, buckets.length);
+        for (long tick = last - laps + 1; tick <= last; tick++) {
+            Timeout expired = null;
+            final var bucket = buckets[(int) (tick & mask)];
+
+            synchronized (bucket) {
+                bucket.processedTick = tick;
+
+                var timeout = bucket.head;
+                while (timeout != null) {
+                    final var next = timeout.next;
+                    if (timeout.tick <= tick) {
+                        bucket.unlink(timeout);
+                        timeout.next = expired;
+                        expired = timeout;
+                    }
+                    timeout = next;
+                }
+            }
+
+            while (expired != null) {
+                final var next = expired.next;
+                expired.next = null;
+                active.decrementAndGet();
+                try {
+                    expired.expire();
+                } catch (Throwable e) {
+                    final var thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+                expired = next;
+            }
+        }
+    }
+}
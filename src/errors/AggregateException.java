@@ -0,0 +1,23 @@
+package errors;
+
+import collections.persistent.PersistentList;
+
+/**
+ * Several things went wrong at once. The individual errors are kept in order and are also attached as suppressed
+ * exceptions so they show up in stack traces.
+ */
+public class AggregateException extends RuntimeException {
+    private final PersistentList<Throwable> errors;
+
+    public AggregateException(String message, PersistentList<Throwable> errors) {
+        super(message);
+        this.errors = errors;
+        for (final var error : errors) {
+            if (error != null) addSuppressed(error);
+        }
+    }
+
+    public PersistentList<Throwable> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,111 @@
+package memoization.impure;
+
+import concurrency.Concurrency;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * When a {@link MemoizedRoutine}'s cached results go stale. Built with {@link #builder()}.
+ *
+ * <ul>
+ *     <li>expireAfterWrite: a result this old is thrown out and the next call recalculates it.</li>
+ *     <li>expireAfterAccess: a result that hasn't been asked for in this long is thrown out.</li>
+ *     <li>refreshAfterWrite: a result this old is still returned, but it's recalculated on the refresh executor in
+ *     the meantime. Set it below expireAfterWrite so popular results are replaced before anyone has to wait for
+ *     them.</li>
+ * </ul>
+ */
+public final class Expiration {
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final Expiration NONE = builder().build();
+
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+    final long refreshAfterWriteNanos;
+    @NotNull
+    final Executor refreshExecutor;
+
+    private Expiration(Builder builder) {
+        expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+        refreshExecutor = builder.refreshExecutor;
+    }
+
+    /**
+     * @return Results never expire.
+     */
+    public static Expiration none() {
+        return NONE;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    boolean isNone() {
+        return expireAfterWriteNanos == NEVER && expireAfterAccessNanos == NEVER && refreshAfterWriteNanos == NEVER;
+    }
+
+    boolean tracksAccess() {
+        return expireAfterAccessNanos != NEVER;
+    }
+
+    boolean isExpired(long writeNanos, long accessNanos, long now) {
+        return now - writeNanos >= expireAfterWriteNanos || now - accessNanos >= expireAfterAccessNanos;
+    }
+
+    boolean needsRefresh(long writeNanos, long now) {
+        return now - writeNanos >= refreshAfterWriteNanos;
+    }
+
+    public static class Builder {
+        private long expireAfterWriteNanos = NEVER;
+        private long expireAfterAccessNanos = NEVER;
+        private long refreshAfterWriteNanos = NEVER;
+        private Executor refreshExecutor = Concurrency.virtualThreadExecutor();
+
+        private Builder() {
+        }
+
+        public Builder expireAfterWrite(@NotNull Duration duration) {
+            expireAfterWriteNanos = toNanos(duration);
+            return this;
+        }
+
+        public Builder expireAfterAccess(@NotNull Duration duration) {
+            expireAfterAccessNanos = toNanos(duration);
+            return this;
+        }
+
+        public Builder refreshAfterWrite(@NotNull Duration duration) {
+            refreshAfterWriteNanos = toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Where refreshes run. Defaults to {@link Concurrency#virtualThreadExecutor()}, since routines tend to read
+         * from outside.
+         */
+        public Builder refreshExecutor(@NotNull Executor executor) {
+            refreshExecutor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        public Expiration build() {
+            return new Expiration(this);
+        }
+
+        private static long toNanos(Duration duration) {
+            if (duration.isNegative()) throw new IllegalArgumentException("duration must not be negative");
+            try {
+                return duration.toNanos();
+            } catch (ArithmeticException e) {
+                return NEVER;
+            }
+        }
+    }
+}
@@ -2,23 +2,48 @@ package memoization.impure;
 
 import collections.decorators.NullSafeMap;
 import collections.records.ListRecord;
+import memoization.stats.CacheStats;
+import memoization.stats.Instrumented;
+import memoization.stats.StatsRecorder;
 import org.jetbrains.annotations.NotNull;
 import reference.VolatileUntilSet;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
-public class MemoizedRoutine<T, R> implements BiFunction<T, ListRecord<?>, R> {
+/**
+ * Memoizes a routine whose result depends on its argument and on some outside state, given as the dependencies. A
+ * result is reused for as long as the argument and the dependencies are equal to a previous call's, and until it
+ * expires according to the {@link Expiration}.
+ * <p>
+ * Expired results are dropped when they're next asked for, and the whole cache is swept for them every so often
+ * while new results are being calculated.
+ */
+public class MemoizedRoutine<T, R> implements BiFunction<T, ListRecord<?>, R>, Instrumented {
+    /**
+     * How many results are calculated between sweeps for expired ones.
+     */
+    private static final int SWEEP_INTERVAL = 1 << 10;
+
     @NotNull
     private final Map<Context<T>, VolatileUntilSet<Supplier<R>>> cache = buildCache();
     @NotNull
     private final Function<T, R> subRoutine;
+    @NotNull
+    private final Expiration expiration;
+    private final AtomicInteger calculations = new AtomicInteger();
+    @NotNull
+    private volatile StatsRecorder stats = StatsRecorder.disabled();
 
     @NotNull
     protected Map<Context<T>, VolatileUntilSet<Supplier<R>>> buildCache() {
@@ -26,43 +51,83 @@ public class MemoizedRoutine<T, R> implements BiFunction<T, ListRecord<?>, R> {
     }
 
     public MemoizedRoutine(@NotNull Function<T, R> subRoutine) {
-        Objects.requireNonNull(subRoutine);
-        this.subRoutine = subRoutine;
+        this(subRoutine, Expiration.none());
+    }
+
+    public MemoizedRoutine(@NotNull Function<T, R> subRoutine, @NotNull Expiration expiration) {
+        this.subRoutine = Objects.requireNonNull(subRoutine);
+        this.expiration = Objects.requireNonNull(expiration);
     }
 
     private VolatileUntilSet<Supplier<R>> getCachedResult(Context<T> context) {
         final var newResult = new VolatileUntilSet<Supplier<R>>();
-        final var existingResult = cache.putIfAbsent(context, new VolatileUntilSet<>());
+        final var existingResult = cache.putIfAbsent(context, newResult);
         return existingResult == null ? newResult : existingResult;
     }
 
     @Override
     public R apply(T argument, @NotNull ListRecord<?> dependencies) {
         Objects.requireNonNull(dependencies);
-        final var result = getCachedResult(new Context<>(argument, dependencies));
-
-        // check cache
-        var cacheValue = result.get();
-        if (cacheValue != null) return cacheValue.get();
-
-        // lock and check again
-        synchronized (result) {
-            cacheValue = result.get();
-            if (cacheValue != null) return cacheValue.get();
-            // result is not cached
-            // run the subroutine
-            R newValue;
-            try {
-                newValue = subRoutine.apply(argument);
-            } catch (RuntimeException re) {
-                result.set(() -> {
-                    throw re;
-                });
-                throw re;
+        final var context = new Context<T>(argument, dependencies);
+        final var stats = this.stats;
+        // a call that had to wait for the result counts as a miss, even if someone else calculated it
+        var missed = false;
+
+        while (true) {
+            final var result = getCachedResult(context);
+
+            // check cache
+            var cacheValue = result.get();
+            if (cacheValue != null) {
+                if (!(cacheValue instanceof Timed<R> timed) || checkFreshness(context, result, timed)) {
+                    if (!missed) stats.recordHit();
+                    return cacheValue.get();
+                }
+
+                // expired, start over with a new holder
+                if (cache.remove(context, result)) stats.recordEviction();
+                continue;
+            }
+
+            if (!missed) {
+                stats.recordMiss();
+                missed = true;
             }
-            result.set(() -> newValue);
-            return newValue;
+
+            // lock and check again
+            synchronized (result) {
+                cacheValue = result.get();
+                if (cacheValue != null) continue;
+                // result is not cached
+                // run the subroutine
+                final var newValue = calculate(argument);
+                result.set(newValue);
+                return newValue.get();
+            }
+        }
+    }
+
+    /**
+     * Runs the subroutine and wraps up the result, or the runtime exception it threw, for the cache.
+     */
+    private Supplier<R> calculate(T argument) {
+        if (!expiration.isNone() && calculations.incrementAndGet() % SWEEP_INTERVAL == 0) cleanUp();
+
+        final var stats = this.stats;
+        final var start = stats.startLoad();
+        Supplier<R> value;
+        try {
+            final var newValue = subRoutine.apply(argument);
+            stats.recordLoadSuccess(start);
+            value = () -> newValue;
+        } catch (RuntimeException re) {
+            stats.recordLoadFailure(start);
+            value = () -> {
+                throw re;
+            };
         }
+
+        return expiration.isNone() ? value : new Timed<>(value, System.nanoTime());
     }
 
     public R apply(T argument, Object[] dependencies) {
@@ -87,7 +152,7 @@ public class MemoizedRoutine<T, R> implements BiFunction<T, ListRecord<?>, R> {
         if (cachedResult != null) {
             final var fromCache = cachedResult.get();
 
-            if (fromCache != null) {
+            if (fromCache != null && !isExpired(fromCache, System.nanoTime())) {
                 return fromCache.get();
             } else return null;
         } else return null;
@@ -114,7 +179,11 @@ public class MemoizedRoutine<T, R> implements BiFunction<T, ListRecord<?>, R> {
     }
 
     public boolean isCached(T argument, ListRecord<?> dependencies) {
-        return cache.get(new Context<>(argument, dependencies)) != null;
+        final var cachedResult = cache.get(new Context<>(argument, dependencies));
+        if (cachedResult == null) return false;
+
+        final var fromCache = cachedResult.get();
+        return fromCache != null && !isExpired(fromCache, System.nanoTime());
     }
 
     public boolean isCached(T argument, Object[] dependencies) {
@@ -135,4 +204,121 @@ public class MemoizedRoutine<T, R> implements BiFunction<T, ListRecord<?>, R> {
 
     protected record Context<T>(T argument, ListRecord<?> dependencies) {
     }
+
+    // ====== expiration ======
+
+    /**
+     * A cached result along with when it was calculated and last used. Only used when results can expire.
+     */
+    private static final class Timed<R> implements Supplier<R> {
+        private static final VarHandle REFRESHING;
+
+        static {
+            try {
+                REFRESHING = MethodHandles.lookup().findVarHandle(Timed.class, "refreshing", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Supplier<R> value;
+        private final long writeNanos;
+        private volatile long accessNanos;
+        private volatile boolean refreshing = false;
+
+        Timed(Supplier<R> value, long writeNanos) {
+            this.value = value;
+            this.writeNanos = writeNanos;
+            accessNanos = writeNanos;
+        }
+
+        @Override
+        public R get() {
+            return value.get();
+        }
+
+        /**
+         * @return Whether the caller gets to do the refresh. Only one caller does.
+         */
+        boolean claimRefresh() {
+            return !refreshing && REFRESHING.compareAndSet(this, false, true);
+        }
+
+        void releaseRefresh() {
+            refreshing = false;
+        }
+    }
+
+    private boolean isExpired(Supplier<R> cacheValue, long now) {
+        return cacheValue instanceof Timed<R> timed && expiration.isExpired(timed.writeNanos, timed.accessNanos, now);
+    }
+
+    /**
+     * Records the access and starts a refresh if one's due.
+     *
+     * @return False if the result has expired and can't be used.
+     */
+    private boolean checkFreshness(Context<T> context, VolatileUntilSet<Supplier<R>> result, Timed<R> timed) {
+        final var now = System.nanoTime();
+        if (expiration.isExpired(timed.writeNanos, timed.accessNanos, now)) return false;
+
+        if (expiration.tracksAccess()) timed.accessNanos = now;
+        if (expiration.needsRefresh(timed.writeNanos, now) && timed.claimRefresh()) refresh(context, result, timed);
+        return true;
+    }
+
+    /**
+     * Recalculates the result on the refresh executor and swaps it in once it's ready. The old result keeps being
+     * used until then. If the subroutine throws, the old result stays and the next call tries again.
+     */
+    private void refresh(Context<T> context, VolatileUntilSet<Supplier<R>> result, Timed<R> timed) {
+        try {
+            expiration.refreshExecutor.execute(() -> {
+                final var stats = this.stats;
+                final var start = stats.startLoad();
+                final R newValue;
+                try {
+                    newValue = subRoutine.apply(context.argument());
+                } catch (RuntimeException e) {
+                    stats.recordLoadFailure(start);
+                    timed.releaseRefresh();
+                    return;
+                }
+                stats.recordLoadSuccess(start);
+
+                final var refreshed = new VolatileUntilSet<Supplier<R>>();
+                refreshed.set(new Timed<>(() -> newValue, System.nanoTime()));
+                // does nothing if the old result was dropped in the meantime
+                cache.replace(context, result, refreshed);
+            });
+        } catch (RejectedExecutionException e) {
+            timed.releaseRefresh();
+        }
+    }
+
+    /**
+     * Drops every expired result.
+     */
+    public void cleanUp() {
+        final var now = System.nanoTime();
+        for (final var entry : cache.entrySet()) {
+            final var fromCache = entry.getValue().get();
+            if (fromCache != null && isExpired(fromCache, now) && cache.remove(entry.getKey(), entry.getValue())) {
+                stats.recordEviction();
+            }
+        }
+    }
+
+    // ====== stats ======
+
+    @Override
+    public void enableStats(@NotNull String name) {
+        stats = new StatsRecorder(name);
+    }
+
+    @NotNull
+    @Override
+    public CacheStats stats() {
+        return stats.snapshot(cache.size());
+    }
 }
\ No newline at end of file
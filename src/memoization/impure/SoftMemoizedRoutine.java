@@ -1,6 +1,7 @@
 package memoization.impure;
 
-import collections.reference.SoftConcurrentHashMap;
+import collections.reference.CleanupMode;
+import collections.reference.SoftValueConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 import reference.VolatileUntilSet;
 
@@ -12,10 +13,14 @@ public class SoftMemoizedRoutine<T, R> extends MemoizedRoutine<T, R> {
     @Override
     @NotNull
     protected Map<Context<T>, VolatileUntilSet<Supplier<R>>> buildCache() {
-        return new SoftConcurrentHashMap<>();
+        return new SoftValueConcurrentHashMap<>(CleanupMode.BACKGROUND);
     }
 
     public SoftMemoizedRoutine(@NotNull Function<T, R> subRoutine) {
         super(subRoutine);
     }
+
+    public SoftMemoizedRoutine(@NotNull Function<T, R> subRoutine, @NotNull Expiration expiration) {
+        super(subRoutine, expiration);
+    }
 }
@@ -0,0 +1,67 @@
+package memoization.pure.function;
+
+import collections.bounded.BoundedConcurrentHashMap;
+import collections.bounded.EvictionPolicy;
+import collections.bounded.Weigher;
+import collections.decorators.NullSafeMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Memoized function whose cache holds a bounded number of results, or a bounded total weight of results, and evicts
+ * by an {@link EvictionPolicy}. Unlike {@link SoftMemoizedFunction} and {@link WeakMemoizedFunction}, the cache
+ * doesn't empty out whenever the garbage collector feels like it, so the hit rate and memory use are predictable.
+ * <p>
+ * The result for a null input is kept outside of the bound.
+ */
+public class BoundedMemoizedFunction<T, R> extends MemoizedFunction<T, R> {
+    private final BoundedConcurrentHashMap<T, Supplier<R>> bounded;
+
+    public BoundedMemoizedFunction(@NotNull Function<T, R> original, long maximumSize) {
+        this(original, maximumSize, EvictionPolicy.WINDOW_TINY_LFU, false);
+    }
+
+    public BoundedMemoizedFunction(@NotNull Function<T, R> original, long maximumSize, @NotNull EvictionPolicy evictionPolicy, boolean coalesce) {
+        this(original, coalesce, BoundedConcurrentHashMap.<T, Supplier<R>>builder()
+                .maximumSize(maximumSize)
+                .evictionPolicy(evictionPolicy)
+                .build());
+    }
+
+    /**
+     * @param weigher Weighs the input and result. Exceptions that are cached, and results that are still being
+     *                calculated in coalescing mode, weigh 1.
+     */
+    public BoundedMemoizedFunction(
+            @NotNull Function<T, R> original,
+            long maximumWeight,
+            @NotNull Weigher<? super T, ? super R> weigher,
+            @NotNull EvictionPolicy evictionPolicy,
+            boolean coalesce) {
+        this(original, coalesce, BoundedConcurrentHashMap.<T, Supplier<R>>builder()
+                .maximumWeight(maximumWeight, weighResults(weigher))
+                .evictionPolicy(evictionPolicy)
+                .build());
+    }
+
+    private BoundedMemoizedFunction(Function<T, R> original, boolean coalesce, BoundedConcurrentHashMap<T, Supplier<R>> bounded) {
+        super(original, coalesce, new NullSafeMap<>(bounded));
+        this.bounded = bounded;
+    }
+
+    @Override
+    protected long evictionCount() {
+        return bounded.evictionCount();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, R> Weigher<T, Supplier<R>> weighResults(@NotNull Weigher<? super T, ? super R> weigher) {
+        Objects.requireNonNull(weigher);
+        return (input, entry) -> entry instanceof Result<?> result
+                ? weigher.weigh(input, (R) result.result())
+                : 1;
+    }
+}
@@ -0,0 +1,101 @@
+package memoization.pure.function;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * Memoization decorator for {@link BiFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedBiFunction<A, B, R> extends MemoizedNaryFunction<MemoizedBiFunction.Key<A, B>, R> implements BiFunction<A, B, R> {
+    private static final ThreadLocal<Key<?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final BiFunction<A, B, R> original;
+
+    public MemoizedBiFunction(@NotNull BiFunction<A, B, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedBiFunction(@NotNull BiFunction<A, B, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b) {
+        return applyProbe(probe(a, b));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b) {
+        return original.apply(a, b);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b) {
+        return cacheApplyProbe(probe(a, b));
+    }
+
+    public boolean isCached(A a, B b) {
+        return isCachedProbe(probe(a, b));
+    }
+
+    private Key<A, B> probe(A a, B b) {
+        final var probe = probe();
+        probe.set(a, b);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B> extends MemoizedNaryFunction.Key<Key<A, B>> {
+        private A a;
+        private B b;
+
+        void set(A a, B b) {
+            this.a = a;
+            this.b = b;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+        }
+
+        @Override
+        Key<A, B> copy() {
+            final var copy = new Key<A, B>();
+            copy.a = a;
+            copy.b = b;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b);
+        }
+    }
+}
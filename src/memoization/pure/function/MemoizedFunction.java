@@ -1,11 +1,16 @@
 package memoization.pure.function;
 
 import collections.decorators.NullSafeMap;
+import concurrency.Promise;
+import memoization.stats.CacheStats;
+import memoization.stats.Instrumented;
+import memoization.stats.StatsRecorder;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -13,15 +18,23 @@ import java.util.function.Supplier;
  * Memoization decorator for {@link Function}. It is assumed that the original function is pure,
  * ie: no side effects and no mutable dependencies. The result is the only effect and is determined
  * only by the input parameter: t.
+ * <p>
+ * By default, concurrent calls that miss the cache for the same input each call the original function and the last
+ * one to finish is what stays cached. In coalescing mode only the first of them calls it and the rest wait for its
+ * result. The wait is per input, so a slow call never holds up calls for other inputs.
  *
  * @param <T> Input type.
  * @param <R> Return type.
  */
-public class MemoizedFunction<T, R> implements Function<T, R> {
+public class MemoizedFunction<T, R> implements Function<T, R>, Instrumented {
     @NotNull
     private final Function<T, R> original;
     @NotNull
-    private final Map<T, Supplier<R>> cache = buildCache();
+    private final Map<T, Supplier<R>> cache;
+    private final boolean coalesce;
+    @NotNull
+    private volatile StatsRecorder stats = StatsRecorder.disabled();
+    private long evictionBaseline = 0;
 
     /**
      * @return The map to be used as a cache. If null values are to be given to the function, then the map must allow null keys.
@@ -32,31 +45,188 @@ public class MemoizedFunction<T, R> implements Function<T, R> {
     }
 
     public MemoizedFunction(@NotNull Function<T, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same input should share a single call to the original
+     *                 function.
+     */
+    public MemoizedFunction(@NotNull Function<T, R> original, boolean coalesce) {
         this.original = Objects.requireNonNull(original);
+        this.coalesce = coalesce;
+        cache = buildCache();
+    }
+
+    /**
+     * For subclasses whose cache depends on constructor arguments, which {@link #buildCache()} can't see yet.
+     */
+    protected MemoizedFunction(@NotNull Function<T, R> original, boolean coalesce, @NotNull Map<T, Supplier<R>> cache) {
+        this.original = Objects.requireNonNull(original);
+        this.coalesce = coalesce;
+        this.cache = Objects.requireNonNull(cache);
     }
 
     public R apply(T t) {
+        final var stats = this.stats;
+
         // Check the cache.
         final var fromCache = cache.get(t);
-        if (fromCache != null) return fromCache.get();
+        if (fromCache != null) {
+            recordLookup(stats, fromCache);
+            return fromCache.get();
+        }
+
+        stats.recordMiss();
+        final var key = insertionKey(t);
+        if (coalesce) return load(key).get();
 
         // Cache miss, calculate result for real.
         // it's ok that this can run in multiple threads at the same time
         // because it is assumed that the original function is pure and therefor causes no side effects.
+        final var start = stats.startLoad();
         R result;
         try {
-            result = original.apply(t);
+            result = original.apply(key);
         } catch (RuntimeException e) {
-            cache.put(t, () -> {
+            stats.recordLoadFailure(start);
+            cache.put(key, () -> {
                 throw e;
             });
             throw e;
         }
+        stats.recordLoadSuccess(start);
 
-        cache.put(t, () -> result);
+        cache.put(key, new Result<>(result));
         return result;
     }
 
+    /**
+     * Like {@link #apply} but the result comes as a promise. If another thread is already calculating the result
+     * (in coalescing mode), the promise settles when it's done instead of blocking. Otherwise the result is
+     * calculated on this thread, if it isn't cached, and the promise is already settled.
+     * <p>
+     * The promise is this caller's own; canceling it doesn't affect anyone else waiting on the same result.
+     */
+    public Promise<R> promiseApply(T t) {
+        var fromCache = cache.get(t);
+        if (fromCache != null) {
+            recordLookup(stats, fromCache);
+        } else if (coalesce) {
+            stats.recordMiss();
+            fromCache = load(insertionKey(t));
+        }
+
+        if (fromCache instanceof Loading<R> loading) {
+            return loading.promise.defer().promise();
+        } else if (fromCache != null) {
+            try {
+                return Promise.resolved(fromCache.get());
+            } catch (RuntimeException e) {
+                return Promise.rejected(e);
+            }
+        }
+
+        try {
+            return Promise.resolved(apply(t));
+        } catch (RuntimeException e) {
+            return Promise.rejected(e);
+        }
+    }
+
+    /**
+     * Cache entry for a result.
+     */
+    record Result<R>(R result) implements Supplier<R> {
+        @Override
+        public R get() {
+            return result;
+        }
+    }
+
+    // ====== coalescing ======
+
+    /**
+     * Cache entry for a result that's still being calculated. It's swapped out for the result when done.
+     */
+    private static final class Loading<R> implements Supplier<R> {
+        private final Promise<R> promise;
+        private final Thread loader = Thread.currentThread();
+
+        Loading(Promise<R> promise) {
+            this.promise = promise;
+        }
+
+        @Override
+        public R get() {
+            if (Thread.currentThread() == loader && promise.isPending()) {
+                throw new IllegalStateException("Memoized function called itself with the same input");
+            }
+
+            try {
+                return promise.joinUninterruptibly();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * @return The input to store in the cache and to pass to the original function, after t missed the cache. Lets
+     * subclasses look up with a reusable probe that would be overwritten by the next lookup, and only allocate a key
+     * of their own on a miss.
+     */
+    protected T insertionKey(T t) {
+        return t;
+    }
+
+    /**
+     * Claims the calculation of t's result, or joins in on whoever already has. The claim is a putIfAbsent of a
+     * {@link Loading} entry, so unlike {@link Map#computeIfAbsent} no lock is held while the original function runs.
+     *
+     * @return The entry to get the result from.
+     */
+    private Supplier<R> load(T t) {
+        final var deferred = Promise.<R>deferred();
+        // Every caller gets their own copy of the promise. This one is never let go of, so callers canceling their
+        // copies can't cancel the calculation for the rest.
+        deferred.promise().defer();
+
+        final var loading = new Loading<>(deferred.promise());
+        final var existing = cache.putIfAbsent(t, loading);
+        if (existing != null) return existing;
+
+        final var stats = this.stats;
+        final var start = stats.startLoad();
+        final R result;
+        try {
+            result = original.apply(t);
+        } catch (RuntimeException e) {
+            stats.recordLoadFailure(start);
+            final Supplier<R> thrower = () -> {
+                throw e;
+            };
+            cache.put(t, thrower);
+            deferred.settle().reject(e);
+            return thrower;
+        } catch (Error e) {
+            stats.recordLoadFailure(start);
+            // not cached, the next call tries again
+            cache.remove(t, loading);
+            deferred.settle().reject(e);
+            throw e;
+        }
+
+        stats.recordLoadSuccess(start);
+
+        final Supplier<R> resolved = new Result<>(result);
+        cache.put(t, resolved);
+        deferred.settle().resolve(result);
+        return resolved;
+    }
+
     /**
      * Circumvent the cache and call the original function.
      */
@@ -71,7 +241,7 @@ public class MemoizedFunction<T, R> implements Function<T, R> {
      */
     public R cacheApply(T t) {
         final var fromCache = cache.get(t);
-        if (fromCache != null) {
+        if (fromCache != null && !isLoading(fromCache)) {
             return fromCache.get();
         } else {
             return null;
@@ -82,6 +252,42 @@ public class MemoizedFunction<T, R> implements Function<T, R> {
      * @return Whether the result of t is cached.
      */
     public boolean isCached(T t) {
-        return cache.get(t) != null;
+        final var fromCache = cache.get(t);
+        return fromCache != null && !isLoading(fromCache);
+    }
+
+    private static boolean isLoading(Supplier<?> entry) {
+        return entry instanceof Loading<?> loading && loading.promise.isPending();
+    }
+
+    // ====== stats ======
+
+    /**
+     * A result that's still being calculated by another call counts as a miss.
+     */
+    private static void recordLookup(StatsRecorder stats, Supplier<?> fromCache) {
+        if (!stats.isEnabled()) return;
+
+        if (isLoading(fromCache)) stats.recordMiss();
+        else stats.recordHit();
+    }
+
+    @Override
+    public void enableStats(@NotNull String name) {
+        evictionBaseline = evictionCount();
+        stats = new StatsRecorder(name);
+    }
+
+    @NotNull
+    @Override
+    public CacheStats stats() {
+        return stats.snapshot(cache.size(), evictionCount() - evictionBaseline);
+    }
+
+    /**
+     * @return How many results the cache has evicted on its own, for caches that do.
+     */
+    protected long evictionCount() {
+        return 0;
     }
 }
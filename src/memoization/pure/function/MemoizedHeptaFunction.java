@@ -0,0 +1,131 @@
+package memoization.pure.function;
+
+import functionPlus.HeptaFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Memoization decorator for {@link HeptaFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedHeptaFunction<A, B, C, D, E, F, G, R> extends MemoizedNaryFunction<MemoizedHeptaFunction.Key<A, B, C, D, E, F, G>, R> implements HeptaFunction<A, B, C, D, E, F, G, R> {
+    private static final ThreadLocal<Key<?, ?, ?, ?, ?, ?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final HeptaFunction<A, B, C, D, E, F, G, R> original;
+
+    public MemoizedHeptaFunction(@NotNull HeptaFunction<A, B, C, D, E, F, G, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedHeptaFunction(@NotNull HeptaFunction<A, B, C, D, E, F, G, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b, key.c, key.d, key.e, key.f, key.g), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b, C c, D d, E e, F f, G g) {
+        return applyProbe(probe(a, b, c, d, e, f, g));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b, C c, D d, E e, F f, G g) {
+        return original.apply(a, b, c, d, e, f, g);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b, C c, D d, E e, F f, G g) {
+        return cacheApplyProbe(probe(a, b, c, d, e, f, g));
+    }
+
+    public boolean isCached(A a, B b, C c, D d, E e, F f, G g) {
+        return isCachedProbe(probe(a, b, c, d, e, f, g));
+    }
+
+    private Key<A, B, C, D, E, F, G> probe(A a, B b, C c, D d, E e, F f, G g) {
+        final var probe = probe();
+        probe.set(a, b, c, d, e, f, g);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B, C, D, E, F, G> extends MemoizedNaryFunction.Key<Key<A, B, C, D, E, F, G>> {
+        private A a;
+        private B b;
+        private C c;
+        private D d;
+        private E e;
+        private F f;
+        private G g;
+
+        void set(A a, B b, C c, D d, E e, F f, G g) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.e = e;
+            this.f = f;
+            this.g = g;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            result = 31 * result + Objects.hashCode(c);
+            result = 31 * result + Objects.hashCode(d);
+            result = 31 * result + Objects.hashCode(e);
+            result = 31 * result + Objects.hashCode(f);
+            result = 31 * result + Objects.hashCode(g);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+            c = null;
+            d = null;
+            e = null;
+            f = null;
+            g = null;
+        }
+
+        @Override
+        Key<A, B, C, D, E, F, G> copy() {
+            final var copy = new Key<A, B, C, D, E, F, G>();
+            copy.a = a;
+            copy.b = b;
+            copy.c = c;
+            copy.d = d;
+            copy.e = e;
+            copy.f = f;
+            copy.g = g;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?, ?, ?, ?, ?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b)
+                    && Objects.equals(c, other.c)
+                    && Objects.equals(d, other.d)
+                    && Objects.equals(e, other.e)
+                    && Objects.equals(f, other.f)
+                    && Objects.equals(g, other.g);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package memoization.pure.function;
+
+import functionPlus.HexaFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Memoization decorator for {@link HexaFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedHexaFunction<A, B, C, D, E, F, R> extends MemoizedNaryFunction<MemoizedHexaFunction.Key<A, B, C, D, E, F>, R> implements HexaFunction<A, B, C, D, E, F, R> {
+    private static final ThreadLocal<Key<?, ?, ?, ?, ?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final HexaFunction<A, B, C, D, E, F, R> original;
+
+    public MemoizedHexaFunction(@NotNull HexaFunction<A, B, C, D, E, F, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedHexaFunction(@NotNull HexaFunction<A, B, C, D, E, F, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b, key.c, key.d, key.e, key.f), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b, C c, D d, E e, F f) {
+        return applyProbe(probe(a, b, c, d, e, f));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b, C c, D d, E e, F f) {
+        return original.apply(a, b, c, d, e, f);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b, C c, D d, E e, F f) {
+        return cacheApplyProbe(probe(a, b, c, d, e, f));
+    }
+
+    public boolean isCached(A a, B b, C c, D d, E e, F f) {
+        return isCachedProbe(probe(a, b, c, d, e, f));
+    }
+
+    private Key<A, B, C, D, E, F> probe(A a, B b, C c, D d, E e, F f) {
+        final var probe = probe();
+        probe.set(a, b, c, d, e, f);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B, C, D, E, F> extends MemoizedNaryFunction.Key<Key<A, B, C, D, E, F>> {
+        private A a;
+        private B b;
+        private C c;
+        private D d;
+        private E e;
+        private F f;
+
+        void set(A a, B b, C c, D d, E e, F f) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.e = e;
+            this.f = f;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            result = 31 * result + Objects.hashCode(c);
+            result = 31 * result + Objects.hashCode(d);
+            result = 31 * result + Objects.hashCode(e);
+            result = 31 * result + Objects.hashCode(f);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+            c = null;
+            d = null;
+            e = null;
+            f = null;
+        }
+
+        @Override
+        Key<A, B, C, D, E, F> copy() {
+            final var copy = new Key<A, B, C, D, E, F>();
+            copy.a = a;
+            copy.b = b;
+            copy.c = c;
+            copy.d = d;
+            copy.e = e;
+            copy.f = f;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?, ?, ?, ?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b)
+                    && Objects.equals(c, other.c)
+                    && Objects.equals(d, other.d)
+                    && Objects.equals(e, other.e)
+                    && Objects.equals(f, other.f);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package memoization.pure.function;
+
+import memoization.stats.CacheStats;
+import memoization.stats.Instrumented;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * What {@link MemoizedBiFunction} through {@link MemoizedDecaFunction} have in common. They memoize a
+ * {@link MemoizedFunction} of a key holding all the arguments. The cache is probed with a reusable per-thread key
+ * that's hashed and compared over the arguments themselves, so a cache hit doesn't allocate anything. A key of its
+ * own is only made for arguments that miss.
+ * <p>
+ * A subclass sets the arguments on {@link #probe()} and hands the probe to {@link #applyProbe},
+ * {@link #cacheApplyProbe} or {@link #isCachedProbe}, which clear it afterwards.
+ *
+ * @param <K> The subclass's key.
+ * @param <R> Return type.
+ */
+abstract class MemoizedNaryFunction<K extends MemoizedNaryFunction.Key<K>, R> implements Instrumented {
+    @NotNull
+    private final ThreadLocal<? extends Key<?>> probes;
+    @NotNull
+    private final MemoizedFunction<K, R> function;
+
+    /**
+     * @param probes   The subclass's per-thread probes, shared by all of its instances whatever their type arguments.
+     * @param call     Calls the original function with the arguments in a key.
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    MemoizedNaryFunction(@NotNull ThreadLocal<? extends Key<?>> probes, @NotNull Function<K, R> call, boolean coalesce) {
+        this.probes = Objects.requireNonNull(probes);
+        function = new MemoizedFunction<>(call, coalesce) {
+            @Override
+            protected K insertionKey(K probe) {
+                return probe.copy();
+            }
+        };
+    }
+
+    /**
+     * @return The thread's probe, marked as in use.
+     */
+    @SuppressWarnings("unchecked")
+    final K probe() {
+        // the probe only ever has arguments of this instance's types set on it
+        var probe = (K) probes.get();
+        // an argument's hashCode or equals can call another memoized function while the probe is still in use. A copy
+        // will do as a new key, setting the arguments overwrites all of it
+        if (probe.inUse) probe = probe.copy();
+        probe.inUse = true;
+        return probe;
+    }
+
+    final R applyProbe(K probe) {
+        try {
+            return function.apply(probe);
+        } finally {
+            probe.clear();
+        }
+    }
+
+    final R cacheApplyProbe(K probe) {
+        try {
+            return function.cacheApply(probe);
+        } finally {
+            probe.clear();
+        }
+    }
+
+    final boolean isCachedProbe(K probe) {
+        try {
+            return function.isCached(probe);
+        } finally {
+            probe.clear();
+        }
+    }
+
+    @Override
+    public void enableStats(@NotNull String name) {
+        function.enableStats(name);
+    }
+
+    @NotNull
+    @Override
+    public CacheStats stats() {
+        return function.stats();
+    }
+
+    /**
+     * The arguments as a cache key. Only the per-thread probe ever changes; the copies in the cache don't.
+     */
+    abstract static class Key<K extends Key<K>> {
+        /**
+         * Set along with the arguments.
+         */
+        int hash;
+        /**
+         * Whether this is the per-thread probe and a call is using it right now.
+         */
+        boolean inUse = false;
+
+        /**
+         * @return A key with the same arguments, for the cache.
+         */
+        abstract K copy();
+
+        /**
+         * So the probe doesn't keep the last arguments alive.
+         */
+        abstract void clearArguments();
+
+        final void clear() {
+            clearArguments();
+            inUse = false;
+        }
+
+        @Override
+        public final int hashCode() {
+            return hash;
+        }
+    }
+}
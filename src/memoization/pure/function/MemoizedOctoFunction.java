@@ -0,0 +1,137 @@
+package memoization.pure.function;
+
+import functionPlus.OctoFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Memoization decorator for {@link OctoFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedOctoFunction<A, B, C, D, E, F, G, H, R> extends MemoizedNaryFunction<MemoizedOctoFunction.Key<A, B, C, D, E, F, G, H>, R> implements OctoFunction<A, B, C, D, E, F, G, H, R> {
+    private static final ThreadLocal<Key<?, ?, ?, ?, ?, ?, ?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final OctoFunction<A, B, C, D, E, F, G, H, R> original;
+
+    public MemoizedOctoFunction(@NotNull OctoFunction<A, B, C, D, E, F, G, H, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedOctoFunction(@NotNull OctoFunction<A, B, C, D, E, F, G, H, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b, key.c, key.d, key.e, key.f, key.g, key.h), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b, C c, D d, E e, F f, G g, H h) {
+        return applyProbe(probe(a, b, c, d, e, f, g, h));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b, C c, D d, E e, F f, G g, H h) {
+        return original.apply(a, b, c, d, e, f, g, h);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b, C c, D d, E e, F f, G g, H h) {
+        return cacheApplyProbe(probe(a, b, c, d, e, f, g, h));
+    }
+
+    public boolean isCached(A a, B b, C c, D d, E e, F f, G g, H h) {
+        return isCachedProbe(probe(a, b, c, d, e, f, g, h));
+    }
+
+    private Key<A, B, C, D, E, F, G, H> probe(A a, B b, C c, D d, E e, F f, G g, H h) {
+        final var probe = probe();
+        probe.set(a, b, c, d, e, f, g, h);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B, C, D, E, F, G, H> extends MemoizedNaryFunction.Key<Key<A, B, C, D, E, F, G, H>> {
+        private A a;
+        private B b;
+        private C c;
+        private D d;
+        private E e;
+        private F f;
+        private G g;
+        private H h;
+
+        void set(A a, B b, C c, D d, E e, F f, G g, H h) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.e = e;
+            this.f = f;
+            this.g = g;
+            this.h = h;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            result = 31 * result + Objects.hashCode(c);
+            result = 31 * result + Objects.hashCode(d);
+            result = 31 * result + Objects.hashCode(e);
+            result = 31 * result + Objects.hashCode(f);
+            result = 31 * result + Objects.hashCode(g);
+            result = 31 * result + Objects.hashCode(h);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+            c = null;
+            d = null;
+            e = null;
+            f = null;
+            g = null;
+            h = null;
+        }
+
+        @Override
+        Key<A, B, C, D, E, F, G, H> copy() {
+            final var copy = new Key<A, B, C, D, E, F, G, H>();
+            copy.a = a;
+            copy.b = b;
+            copy.c = c;
+            copy.d = d;
+            copy.e = e;
+            copy.f = f;
+            copy.g = g;
+            copy.h = h;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?, ?, ?, ?, ?, ?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b)
+                    && Objects.equals(c, other.c)
+                    && Objects.equals(d, other.d)
+                    && Objects.equals(e, other.e)
+                    && Objects.equals(f, other.f)
+                    && Objects.equals(g, other.g)
+                    && Objects.equals(h, other.h);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package memoization.pure.function;
+
+import functionPlus.PentaFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Memoization decorator for {@link PentaFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedPentaFunction<A, B, C, D, E, R> extends MemoizedNaryFunction<MemoizedPentaFunction.Key<A, B, C, D, E>, R> implements PentaFunction<A, B, C, D, E, R> {
+    private static final ThreadLocal<Key<?, ?, ?, ?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final PentaFunction<A, B, C, D, E, R> original;
+
+    public MemoizedPentaFunction(@NotNull PentaFunction<A, B, C, D, E, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedPentaFunction(@NotNull PentaFunction<A, B, C, D, E, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b, key.c, key.d, key.e), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b, C c, D d, E e) {
+        return applyProbe(probe(a, b, c, d, e));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b, C c, D d, E e) {
+        return original.apply(a, b, c, d, e);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b, C c, D d, E e) {
+        return cacheApplyProbe(probe(a, b, c, d, e));
+    }
+
+    public boolean isCached(A a, B b, C c, D d, E e) {
+        return isCachedProbe(probe(a, b, c, d, e));
+    }
+
+    private Key<A, B, C, D, E> probe(A a, B b, C c, D d, E e) {
+        final var probe = probe();
+        probe.set(a, b, c, d, e);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B, C, D, E> extends MemoizedNaryFunction.Key<Key<A, B, C, D, E>> {
+        private A a;
+        private B b;
+        private C c;
+        private D d;
+        private E e;
+
+        void set(A a, B b, C c, D d, E e) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            this.e = e;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            result = 31 * result + Objects.hashCode(c);
+            result = 31 * result + Objects.hashCode(d);
+            result = 31 * result + Objects.hashCode(e);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+            c = null;
+            d = null;
+            e = null;
+        }
+
+        @Override
+        Key<A, B, C, D, E> copy() {
+            final var copy = new Key<A, B, C, D, E>();
+            copy.a = a;
+            copy.b = b;
+            copy.c = c;
+            copy.d = d;
+            copy.e = e;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?, ?, ?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b)
+                    && Objects.equals(c, other.c)
+                    && Objects.equals(d, other.d)
+                    && Objects.equals(e, other.e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package memoization.pure.function;
+
+import functionPlus.QuadFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Memoization decorator for {@link QuadFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedQuadFunction<A, B, C, D, R> extends MemoizedNaryFunction<MemoizedQuadFunction.Key<A, B, C, D>, R> implements QuadFunction<A, B, C, D, R> {
+    private static final ThreadLocal<Key<?, ?, ?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final QuadFunction<A, B, C, D, R> original;
+
+    public MemoizedQuadFunction(@NotNull QuadFunction<A, B, C, D, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedQuadFunction(@NotNull QuadFunction<A, B, C, D, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b, key.c, key.d), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b, C c, D d) {
+        return applyProbe(probe(a, b, c, d));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b, C c, D d) {
+        return original.apply(a, b, c, d);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b, C c, D d) {
+        return cacheApplyProbe(probe(a, b, c, d));
+    }
+
+    public boolean isCached(A a, B b, C c, D d) {
+        return isCachedProbe(probe(a, b, c, d));
+    }
+
+    private Key<A, B, C, D> probe(A a, B b, C c, D d) {
+        final var probe = probe();
+        probe.set(a, b, c, d);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B, C, D> extends MemoizedNaryFunction.Key<Key<A, B, C, D>> {
+        private A a;
+        private B b;
+        private C c;
+        private D d;
+
+        void set(A a, B b, C c, D d) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            result = 31 * result + Objects.hashCode(c);
+            result = 31 * result + Objects.hashCode(d);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+            c = null;
+            d = null;
+        }
+
+        @Override
+        Key<A, B, C, D> copy() {
+            final var copy = new Key<A, B, C, D>();
+            copy.a = a;
+            copy.b = b;
+            copy.c = c;
+            copy.d = d;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?, ?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b)
+                    && Objects.equals(c, other.c)
+                    && Objects.equals(d, other.d);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package memoization.pure.function;
+
+import functionPlus.TriFunction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Memoization decorator for {@link TriFunction}, with the same assumptions as {@link MemoizedFunction}. The cache is
+ * probed with a reusable per-thread key that's hashed and compared over the arguments themselves, so a cache hit
+ * doesn't allocate anything. A key of its own is only made for arguments that miss.
+ */
+public class MemoizedTriFunction<A, B, C, R> extends MemoizedNaryFunction<MemoizedTriFunction.Key<A, B, C>, R> implements TriFunction<A, B, C, R> {
+    private static final ThreadLocal<Key<?, ?, ?>> PROBE = ThreadLocal.withInitial(Key::new);
+
+    @NotNull
+    private final TriFunction<A, B, C, R> original;
+
+    public MemoizedTriFunction(@NotNull TriFunction<A, B, C, R> original) {
+        this(original, false);
+    }
+
+    /**
+     * @param coalesce Whether concurrent cache misses for the same arguments should share a single call to the
+     *                 original function.
+     */
+    public MemoizedTriFunction(@NotNull TriFunction<A, B, C, R> original, boolean coalesce) {
+        super(PROBE, key -> original.apply(key.a, key.b, key.c), coalesce);
+        this.original = Objects.requireNonNull(original);
+    }
+
+    @Override
+    public R apply(A a, B b, C c) {
+        return applyProbe(probe(a, b, c));
+    }
+
+    /**
+     * Circumvent the cache and call the original function.
+     */
+    public R hardApply(A a, B b, C c) {
+        return original.apply(a, b, c);
+    }
+
+    /**
+     * @return The cached result or null if the result is not cached.
+     */
+    public R cacheApply(A a, B b, C c) {
+        return cacheApplyProbe(probe(a, b, c));
+    }
+
+    public boolean isCached(A a, B b, C c) {
+        return isCachedProbe(probe(a, b, c));
+    }
+
+    private Key<A, B, C> probe(A a, B b, C c) {
+        final var probe = probe();
+        probe.set(a, b, c);
+        return probe;
+    }
+
+    /**
+     * Package-private only because it's the type argument of the superclass.
+     */
+    static final class Key<A, B, C> extends MemoizedNaryFunction.Key<Key<A, B, C>> {
+        private A a;
+        private B b;
+        private C c;
+
+        void set(A a, B b, C c) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            var result = Objects.hashCode(a);
+            result = 31 * result + Objects.hashCode(b);
+            result = 31 * result + Objects.hashCode(c);
+            hash = result;
+        }
+
+        @Override
+        void clearArguments() {
+            a = null;
+            b = null;
+            c = null;
+        }
+
+        @Override
+        Key<A, B, C> copy() {
+            final var copy = new Key<A, B, C>();
+            copy.a = a;
+            copy.b = b;
+            copy.c = c;
+            copy.hash = hash;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+
+            return obj instanceof Key<?, ?, ?> other
+                    && hash == other.hash
+                    && Objects.equals(a, other.a)
+                    && Objects.equals(b, other.b)
+                    && Objects.equals(c, other.c);
+        }
+    }
+}
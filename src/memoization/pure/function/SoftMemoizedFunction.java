@@ -1,20 +1,29 @@
 package memoization.pure.function;
 
-import collections.reference.SoftConcurrentHashMap;
+import collections.decorators.NullSafeMap;
+import collections.reference.CleanupMode;
+import collections.reference.SoftValueConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * Memoized function whose results can be reclaimed when memory runs low. The inputs are held strongly until then.
+ */
 public class SoftMemoizedFunction<T, R> extends MemoizedFunction<T, R> {
     public SoftMemoizedFunction(@NotNull Function<T, R> original) {
         super(original);
     }
 
+    public SoftMemoizedFunction(@NotNull Function<T, R> original, boolean coalesce) {
+        super(original, coalesce);
+    }
+
     @NotNull
     @Override
     protected Map<T, Supplier<R>> buildCache() {
-        return new SoftConcurrentHashMap<>();
+        return new NullSafeMap<>(new SoftValueConcurrentHashMap<>(CleanupMode.BACKGROUND));
     }
 }
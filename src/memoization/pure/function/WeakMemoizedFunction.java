@@ -1,5 +1,6 @@
 package memoization.pure.function;
 
+import collections.reference.CleanupMode;
 import collections.reference.WeakConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 
@@ -12,9 +13,13 @@ public class WeakMemoizedFunction<T, R> extends MemoizedFunction<T, R> {
         super(original);
     }
 
+    public WeakMemoizedFunction(@NotNull Function<T, R> original, boolean coalesce) {
+        super(original, coalesce);
+    }
+
     @NotNull
     @Override
     protected Map<T, Supplier<R>> buildCache() {
-        return new WeakConcurrentHashMap<>();
+        return new WeakConcurrentHashMap<>(CleanupMode.BACKGROUND);
     }
 }
\ No newline at end of file
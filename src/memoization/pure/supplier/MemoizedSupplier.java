@@ -1,5 +1,9 @@
 package memoization.pure.supplier;
 
+import memoization.stats.CacheStats;
+import memoization.stats.Instrumented;
+import memoization.stats.StatsRecorder;
+import org.jetbrains.annotations.NotNull;
 import reference.VolatileUntilSet;
 
 import java.util.Objects;
@@ -9,24 +13,33 @@ import java.util.function.Supplier;
  * A memoized {@link Supplier}. Possibly useful for lazy execution, hence the name.
  * @param <T>
  */
-public class MemoizedSupplier<T> implements Supplier<T> {
+public class MemoizedSupplier<T> implements Supplier<T>, Instrumented {
     private Supplier<T> original;
     private final VolatileUntilSet<Supplier<T>> cache = new VolatileUntilSet<>();
+    @NotNull
+    private volatile StatsRecorder stats = StatsRecorder.disabled();
 
     public MemoizedSupplier(Supplier<T> original) {
         this.original = Objects.requireNonNull(original);
     }
 
     public T get() {
-        if (cache.isSet()) return cache.get().get();
+        final var stats = this.stats;
+        if (cache.isSet()) {
+            stats.recordHit();
+            return cache.get().get();
+        }
 
+        stats.recordMiss();
         synchronized (this) {
             if (cache.isSet()) return cache.get().get();
 
+            final var start = stats.startLoad();
             T result;
             try {
                 result = original.get();
             } catch (RuntimeException error) {
+                stats.recordLoadFailure(start);
                 cache.set(() -> {
                     throw error;
                 });
@@ -34,6 +47,7 @@ public class MemoizedSupplier<T> implements Supplier<T> {
                 throw error;
             }
 
+            stats.recordLoadSuccess(start);
             cache.set(() -> result);
             original = null;
             return result;
@@ -43,4 +57,15 @@ public class MemoizedSupplier<T> implements Supplier<T> {
     public boolean isCached() {
         return cache.isSet();
     }
+
+    @Override
+    public void enableStats(@NotNull String name) {
+        stats = new StatsRecorder(name);
+    }
+
+    @NotNull
+    @Override
+    public CacheStats stats() {
+        return stats.snapshot(isCached() ? 1 : 0);
+    }
 }
@@ -1,41 +1,69 @@
 package memoization.pure.supplier;
 
+import memoization.stats.CacheStats;
+import memoization.stats.Instrumented;
+import memoization.stats.StatsRecorder;
+import org.jetbrains.annotations.NotNull;
 import reference.pointers.FinalPointer;
 
 import java.lang.ref.WeakReference;
 import java.util.Objects;
 import java.util.function.Supplier;
 
-public class WeakMemoizedSupplier<T> implements Supplier<T> {
+public class WeakMemoizedSupplier<T> implements Supplier<T>, Instrumented {
     private Supplier<T> original;
     private volatile WeakReference<FinalPointer<T>> cache = new WeakReference<>(null);
     private volatile RuntimeException exceptionCache = null;
+    @NotNull
+    private volatile StatsRecorder stats = StatsRecorder.disabled();
 
     public WeakMemoizedSupplier(Supplier<T> original) {
         this.original = Objects.requireNonNull(original);
     }
 
     public T get() {
+        final var stats = this.stats;
         var fromCache = cache.get();
-        if (fromCache != null) return fromCache.current;
-        if (exceptionCache != null) throw exceptionCache;
+        if (fromCache != null) {
+            stats.recordHit();
+            return fromCache.current;
+        }
+        if (exceptionCache != null) {
+            stats.recordHit();
+            throw exceptionCache;
+        }
 
+        stats.recordMiss();
         synchronized (this) {
             fromCache = cache.get();
             if (fromCache != null) return fromCache.current;
             if (exceptionCache != null) throw exceptionCache;
 
+            final var start = stats.startLoad();
             T result;
             try {
                 result = original.get();
             } catch (RuntimeException error) {
+                stats.recordLoadFailure(start);
                 exceptionCache = error;
                 original = null;
                 throw error;
             }
 
+            stats.recordLoadSuccess(start);
             cache = new WeakReference<>(new FinalPointer<>(result));
             return result;
         }
     }
+
+    @Override
+    public void enableStats(@NotNull String name) {
+        stats = new StatsRecorder(name);
+    }
+
+    @NotNull
+    @Override
+    public CacheStats stats() {
+        return stats.snapshot(cache.get() != null || exceptionCache != null ? 1 : 0);
+    }
 }
@@ -0,0 +1,38 @@
+package memoization.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a memoizer calling the original. Only emitted for memoizers with stats enabled, and only while a
+ * recording has the event turned on.
+ */
+@Name("memoization.CacheLoad")
+@Label("Cache Load")
+@Category("Memoization")
+@Description("A memoizer calculated a result it didn't have cached")
+class CacheLoadEvent extends Event {
+    @Label("Cache")
+    String cache;
+
+    @Label("Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long loadTime;
+
+    @Label("Failed")
+    boolean failed;
+
+    static void emit(String cache, long loadTime, boolean failed) {
+        final var event = new CacheLoadEvent();
+        if (!event.isEnabled()) return;
+
+        event.cache = cache;
+        event.loadTime = loadTime;
+        event.failed = failed;
+        event.commit();
+    }
+}
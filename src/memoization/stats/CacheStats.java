@@ -0,0 +1,65 @@
+package memoization.stats;
+
+/**
+ * A memoizer's counters at one point in time. Everything but the size only counts from when stats were enabled.
+ *
+ * @param name             The name stats were enabled with, or null if they weren't.
+ * @param hitCount         Calls answered from the cache.
+ * @param missCount        Calls that weren't, whether they calculated the result or waited for another call to.
+ * @param loadSuccessCount Calls to the original that returned.
+ * @param loadFailureCount Calls to the original that threw.
+ * @param totalLoadNanos   Time spent in the original.
+ * @param evictionCount    Results the memoizer dropped to stay in its bounds or because they expired. Results the
+ *                         garbage collector takes from soft and weak caches aren't counted; they only show in the size.
+ * @param size             How many results are cached right now.
+ */
+public record CacheStats(
+        String name,
+        long hitCount,
+        long missCount,
+        long loadSuccessCount,
+        long loadFailureCount,
+        long totalLoadNanos,
+        long evictionCount,
+        long size) {
+
+    public static CacheStats empty(long size) {
+        return new CacheStats(null, 0, 0, 0, 0, 0, 0, size);
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * @return The fraction of calls answered from the cache. 1 if there haven't been any calls.
+     */
+    public double hitRate() {
+        final var requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    public double averageLoadNanos() {
+        final var loads = loadCount();
+        return loads == 0 ? 0.0 : (double) totalLoadNanos / loads;
+    }
+
+    /**
+     * @return What happened between an earlier snapshot and this one. The size is this one's.
+     */
+    public CacheStats minus(CacheStats earlier) {
+        return new CacheStats(
+                name,
+                hitCount - earlier.hitCount,
+                missCount - earlier.missCount,
+                loadSuccessCount - earlier.loadSuccessCount,
+                loadFailureCount - earlier.loadFailureCount,
+                totalLoadNanos - earlier.totalLoadNanos,
+                evictionCount - earlier.evictionCount,
+                size);
+    }
+}
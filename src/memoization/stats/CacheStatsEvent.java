@@ -0,0 +1,63 @@
+package memoization.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+/**
+ * Periodic JFR event with the stats of every memoizer registered through {@link StatsExport#registerJfr}.
+ */
+@Name("memoization.CacheStats")
+@Label("Cache Statistics")
+@Category("Memoization")
+@Description("Counters of a memoizer")
+@Period("10 s")
+class CacheStatsEvent extends Event {
+    @Label("Cache")
+    String cache;
+
+    @Label("Hits")
+    long hitCount;
+
+    @Label("Misses")
+    long missCount;
+
+    @Label("Hit Rate")
+    @Percentage
+    double hitRate;
+
+    @Label("Loads")
+    long loadCount;
+
+    @Label("Load Failures")
+    long loadFailureCount;
+
+    @Label("Average Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long averageLoadTime;
+
+    @Label("Evictions")
+    long evictionCount;
+
+    @Label("Size")
+    long size;
+
+    static void emit(CacheStats stats) {
+        final var event = new CacheStatsEvent();
+        event.cache = stats.name();
+        event.hitCount = stats.hitCount();
+        event.missCount = stats.missCount();
+        event.hitRate = stats.hitRate();
+        event.loadCount = stats.loadCount();
+        event.loadFailureCount = stats.loadFailureCount();
+        event.averageLoadTime = (long) stats.averageLoadNanos();
+        event.evictionCount = stats.evictionCount();
+        event.size = stats.size();
+        event.commit();
+    }
+}
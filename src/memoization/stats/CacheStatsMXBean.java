@@ -0,0 +1,24 @@
+package memoization.stats;
+
+/**
+ * What {@link StatsExport#registerMBean} shows over JMX.
+ */
+public interface CacheStatsMXBean {
+    String getName();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    double getAverageLoadNanos();
+
+    long getEvictionCount();
+
+    long getSize();
+}
@@ -0,0 +1,21 @@
+package memoization.stats;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A memoizer that can keep stats. Stats are off until {@link #enableStats} is called.
+ */
+public interface Instrumented {
+    /**
+     * Starts counting from zero.
+     *
+     * @param name Which memoizer this is, in snapshots, JFR events and MBean names.
+     */
+    void enableStats(@NotNull String name);
+
+    /**
+     * @return The counters so far. All zero, other than the size, if stats aren't enabled.
+     */
+    @NotNull
+    CacheStats stats();
+}
@@ -0,0 +1,154 @@
+package memoization.stats;
+
+import jdk.jfr.FlightRecorder;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Publishes memoizer stats to JMX and to JFR.
+ */
+public class StatsExport {
+    private static final String DOMAIN = "memoization";
+
+    /**
+     * Memoizers whose stats go into the periodic JFR event. Held weakly, so they can be collected without being
+     * unregistered.
+     */
+    private static final Map<Instrumented, Boolean> JFR_SOURCES = Collections.synchronizedMap(new WeakHashMap<>());
+    private static volatile boolean jfrHookAdded = false;
+
+    // ====== JMX ======
+
+    /**
+     * Registers an MBean named memoization:type=Cache,name=(the stats name) with the platform MBean server. The
+     * server holds on to the memoizer until it's unregistered.
+     *
+     * @throws IllegalStateException If the memoizer doesn't have stats enabled, or the name is already taken.
+     */
+    public static ObjectName registerMBean(@NotNull Instrumented memoizer) {
+        final var objectName = objectName(memoizer);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(memoizer), objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + objectName, e);
+        }
+        return objectName;
+    }
+
+    /**
+     * @return Whether there was an MBean to unregister.
+     */
+    public static boolean unregisterMBean(@NotNull Instrumented memoizer) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(memoizer));
+            return true;
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    private static ObjectName objectName(Instrumented memoizer) {
+        final var name = memoizer.stats().name();
+        if (name == null) throw new IllegalStateException("Stats are not enabled");
+
+        try {
+            return new ObjectName(DOMAIN + ":type=Cache,name=" + ObjectName.quote(name));
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Bean implements CacheStatsMXBean {
+        private final Instrumented memoizer;
+
+        Bean(Instrumented memoizer) {
+            this.memoizer = memoizer;
+        }
+
+        @Override
+        public String getName() {
+            return memoizer.stats().name();
+        }
+
+        @Override
+        public long getHitCount() {
+            return memoizer.stats().hitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return memoizer.stats().missCount();
+        }
+
+        @Override
+        public double getHitRate() {
+            return memoizer.stats().hitRate();
+        }
+
+        @Override
+        public long getLoadSuccessCount() {
+            return memoizer.stats().loadSuccessCount();
+        }
+
+        @Override
+        public long getLoadFailureCount() {
+            return memoizer.stats().loadFailureCount();
+        }
+
+        @Override
+        public double getAverageLoadNanos() {
+            return memoizer.stats().averageLoadNanos();
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return memoizer.stats().evictionCount();
+        }
+
+        @Override
+        public long getSize() {
+            return memoizer.stats().size();
+        }
+    }
+
+    // ====== JFR ======
+
+    /**
+     * Includes the memoizer in the periodic memoization.CacheStats event. Load events don't need this; they're
+     * emitted for every memoizer with stats enabled.
+     */
+    public static void registerJfr(@NotNull Instrumented memoizer) {
+        JFR_SOURCES.put(Objects.requireNonNull(memoizer), Boolean.TRUE);
+
+        if (jfrHookAdded) return;
+        synchronized (StatsExport.class) {
+            if (jfrHookAdded) return;
+            FlightRecorder.addPeriodicEvent(CacheStatsEvent.class, StatsExport::emitStatsEvents);
+            jfrHookAdded = true;
+        }
+    }
+
+    public static void unregisterJfr(@NotNull Instrumented memoizer) {
+        JFR_SOURCES.remove(memoizer);
+    }
+
+    private static void emitStatsEvents() {
+        final ArrayList<Instrumented> sources;
+        synchronized (JFR_SOURCES) {
+            sources = new ArrayList<>(JFR_SOURCES.keySet());
+        }
+
+        for (final var source : sources) {
+            final var stats = source.stats();
+            if (stats.name() != null) CacheStatsEvent.emit(stats);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package memoization.stats;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what a memoizer does. The counters are {@link LongAdder}s, which spread updates over cells so threads
+ * hitting the same memoizer don't fight over one counter. The disabled recorder ignores everything and doesn't read
+ * the clock, so memoizers without stats pay next to nothing.
+ */
+public final class StatsRecorder {
+    private static final StatsRecorder DISABLED = new StatsRecorder();
+
+    private final String name;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder loadSuccesses;
+    private final LongAdder loadFailures;
+    private final LongAdder loadNanos;
+    private final LongAdder evictions;
+
+    private StatsRecorder() {
+        name = null;
+        hits = null;
+        misses = null;
+        loadSuccesses = null;
+        loadFailures = null;
+        loadNanos = null;
+        evictions = null;
+    }
+
+    /**
+     * @param name Which memoizer this is, in snapshots, JFR events and MBean names.
+     */
+    public StatsRecorder(@NotNull String name) {
+        this.name = Objects.requireNonNull(name);
+        hits = new LongAdder();
+        misses = new LongAdder();
+        loadSuccesses = new LongAdder();
+        loadFailures = new LongAdder();
+        loadNanos = new LongAdder();
+        evictions = new LongAdder();
+    }
+
+    public static StatsRecorder disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // ====== recording ======
+
+    public void recordHit() {
+        if (this != DISABLED) hits.increment();
+    }
+
+    public void recordMiss() {
+        if (this != DISABLED) misses.increment();
+    }
+
+    public void recordEviction() {
+        if (this != DISABLED) evictions.increment();
+    }
+
+    /**
+     * @return The start time to pass to {@link #recordLoadSuccess} or {@link #recordLoadFailure}.
+     */
+    public long startLoad() {
+        return this != DISABLED ? System.nanoTime() : 0;
+    }
+
+    public void recordLoadSuccess(long start) {
+        if (this == DISABLED) return;
+        final var nanos = System.nanoTime() - start;
+        loadSuccesses.increment();
+        loadNanos.add(nanos);
+        CacheLoadEvent.emit(name, nanos, false);
+    }
+
+    public void recordLoadFailure(long start) {
+        if (this == DISABLED) return;
+        final var nanos = System.nanoTime() - start;
+        loadFailures.increment();
+        loadNanos.add(nanos);
+        CacheLoadEvent.emit(name, nanos, true);
+    }
+
+    // ====== snapshot ======
+
+    /**
+     * @param size           The memoizer's current size.
+     * @param moreEvictions Evictions counted somewhere else, like by the cache itself, since stats were enabled.
+     */
+    public CacheStats snapshot(long size, long moreEvictions) {
+        if (this == DISABLED) return CacheStats.empty(size);
+
+        return new CacheStats(
+                name,
+                hits.sum(),
+                misses.sum(),
+                loadSuccesses.sum(),
+                loadFailures.sum(),
+                loadNanos.sum(),
+                evictions.sum() + moreEvictions,
+                size);
+    }
+
+    public CacheStats snapshot(long size) {
+        return snapshot(size, 0);
+    }
+}